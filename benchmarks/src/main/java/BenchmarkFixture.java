@@ -0,0 +1,142 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import moviebot.benchmarks.Workload;
+
+/**
+ * Synthetic data set behind the JMH benchmarks. Lives in the default package so it can
+ * reach package-private engine methods; see {@link Workload}.
+ */
+public class BenchmarkFixture implements Workload {
+    private MovieDatabase movieDatabase;
+    private UserDatabase userDatabase;
+    private RecommendationEngine engine;
+    private Movie[] movies;
+    private User[] users;
+    private AlsModel model;
+    private BatchRecommender batchRecommender;
+
+    @Override
+    public void build(int movieCount, int userCount, int ratingsPerUser, double popularitySkew, long seed) {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator();
+        generator.setMovieCount(movieCount);
+        generator.setUserCount(userCount);
+        generator.setMeanRatingsPerUser(ratingsPerUser);
+        generator.setPopularitySkew(popularitySkew);
+        generator.setSeed(seed);
+        movieDatabase = new MovieDatabase(false);
+        userDatabase = new UserDatabase(false);
+        try {
+            generator.populate(movieDatabase, userDatabase);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        movies = movieDatabase.getAllMovies().toArray(new Movie[0]);
+        users = userDatabase.getAllUsers().toArray(new User[0]);
+        engine = new RecommendationEngine(movieDatabase, userDatabase);
+        batchRecommender = new BatchRecommender(engine);
+        batchRecommender.setUseCache(false);
+    }
+
+    @Override
+    public int movieCount() {
+        return movies.length;
+    }
+
+    @Override
+    public int userCount() {
+        return users.length;
+    }
+
+    @Override
+    public Object getRecommendations(int user, int count) {
+        return engine.getRecommendations(users[user], count);
+    }
+
+    @Override
+    public Object computeRecommendations(int user, int count) {
+        return engine.computeRecommendations(users[user], count);
+    }
+
+    @Override
+    public int computeRecommendationsBatch(int firstUser, int count, int maxRecommendations) {
+        List<User> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            batch.add(users[(firstUser + i) % users.length]);
+        }
+        try {
+            return batchRecommender.run(batch, maxRecommendations, (user, movies) -> { });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Object findSimilarUsers(int user, int count) {
+        return engine.findSimilarUsers(users[user], count);
+    }
+
+    @Override
+    public long trainModel(int factors, int iterations) {
+        AlsTrainer trainer = new AlsTrainer();
+        trainer.setFactors(factors);
+        trainer.setIterations(iterations);
+        long started = System.nanoTime();
+        try {
+            model = trainer.train(userDatabase);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    @Override
+    public Object recommendFromModel(int user, int count) {
+        User target = users[user];
+        return model.recommend(target, count, target::hasWatched);
+    }
+
+    @Override
+    public double calculateUserSimilarity(int user, int other) {
+        return engine.calculateUserSimilarity(users[user], users[other]);
+    }
+
+    @Override
+    public Object getSimilarMovies(int movie, int count) {
+        return engine.getSimilarMovies(movies[movie], count);
+    }
+
+    @Override
+    public Object computeSimilarMovies(int movie, int count) {
+        return engine.findSimilarMovies(movies[movie], count);
+    }
+
+    @Override
+    public Object searchByTitle(String query) {
+        return movieDatabase.searchByTitle(query);
+    }
+
+    @Override
+    public Object searchByGenre(String genre) {
+        return movieDatabase.searchByGenre(genre);
+    }
+
+    @Override
+    public Object getTopRatedMovies(int count) {
+        return movieDatabase.getTopRatedMovies(count);
+    }
+
+    @Override
+    public String titleQuery(int index) {
+        String[] words = SyntheticDataGenerator.TITLE_WORDS;
+        return words[index % words.length] + " " + words[(index / words.length) % words.length];
+    }
+
+    @Override
+    public String genre(int index) {
+        return SyntheticDataGenerator.GENRES[index % SyntheticDataGenerator.GENRES.length];
+    }
+}
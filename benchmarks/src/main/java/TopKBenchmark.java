@@ -0,0 +1,58 @@
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Times getTopRatedMovies on a large catalog against the full sort it replaced.
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar TopKBenchmark [movies] [k] [rounds]}
+ * (defaults: 1,000,000 movies, k = 10, 20 rounds).
+ */
+public class TopKBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        MovieDatabase database = new MovieDatabase();
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            database.addMovie("Movie " + i, "Drama", 1950 + random.nextInt(75), random.nextInt(1000) / 100.0,
+                    "Director " + (i % 5000), "", 90);
+        }
+        List<Movie> movies = database.getAllMovies();
+        Comparator<Movie> byRating = Comparator.comparingDouble(Movie::getRating).reversed();
+
+        // Warm both paths up before timing them.
+        for (int i = 0; i < 5; i++) {
+            fullSort(movies, byRating, k);
+            database.getTopRatedMovies(k);
+        }
+        long sortNanos = 0;
+        long topKNanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            List<Movie> sorted = fullSort(movies, byRating, k);
+            sortNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            List<Movie> top = database.getTopRatedMovies(k);
+            topKNanos += System.nanoTime() - start;
+            if (!ratings(sorted).equals(ratings(top))) {
+                throw new IllegalStateException("TopK disagrees with the full sort");
+            }
+        }
+        System.out.printf("%,d movies, k=%d: sorted().limit() %.2f ms, TopK %.2f ms%n",
+                movies.size(), k, sortNanos / 1e6 / rounds, topKNanos / 1e6 / rounds);
+    }
+
+    private static List<Movie> fullSort(List<Movie> movies, Comparator<Movie> comparator, int k) {
+        return movies.stream().sorted(comparator).limit(k).collect(Collectors.toList());
+    }
+
+    private static List<Double> ratings(List<Movie> movies) {
+        List<Double> ratings = new ArrayList<>();
+        for (Movie movie : movies) {
+            ratings.add(movie.getRating());
+        }
+        return ratings;
+    }
+}
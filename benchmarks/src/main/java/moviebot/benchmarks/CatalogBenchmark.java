@@ -0,0 +1,67 @@
+package moviebot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Catalog search paths. Runs without users so large catalogs set up quickly;
+ * override the size with e.g. {@code -p movies=5000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CatalogBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int movies;
+
+    @Param({"10"})
+    public int count;
+
+    private Workload workload;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int bound) {
+            next = (next + 7919) % bound;
+            return next;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workload.create();
+        workload.build(movies, 0, 0, 1.0, 42L);
+    }
+
+    @Benchmark
+    public Object searchByTitle(Cursor cursor) {
+        return workload.searchByTitle(workload.titleQuery(cursor.next(400)));
+    }
+
+    @Benchmark
+    public Object searchByGenre(Cursor cursor) {
+        return workload.searchByGenre(workload.genre(cursor.next(17)));
+    }
+
+    @Benchmark
+    public Object getTopRatedMovies() {
+        return workload.getTopRatedMovies(count);
+    }
+
+    @Benchmark
+    public Object getSimilarMovies(Cursor cursor) {
+        return workload.getSimilarMovies(cursor.next(movies), count);
+    }
+
+    @Benchmark
+    public Object computeSimilarMovies(Cursor cursor) {
+        return workload.computeSimilarMovies(cursor.next(movies), count);
+    }
+}
@@ -0,0 +1,229 @@
+package moviebot.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load-test harness comparing the platform-thread and virtual-thread server modes.
+ * For each mode it starts {@code WebServer} in a child JVM, drives it with a fixed number
+ * of concurrent clients for a fixed time, then prints throughput and latency percentiles.
+ *
+ * Optional slow clients run alongside the measured ones: each posts a rating but sends the
+ * form body one byte every {@value #SLOW_BYTE_MILLIS} ms, so the handler sits blocked on
+ * the read. That shows whether a server mode keeps serving fast requests while many
+ * threads are parked on slow connections.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar moviebot.benchmarks.LoadTest
+ *          [clients] [seconds] [path] [modes] [slowClients]
+ *   e.g. ... LoadTest 500 20 /api/movies?genre=Drama platform,virtual 300
+ */
+public class LoadTest {
+    private static final int BASE_PORT = 18080;
+    private static final long SLOW_BYTE_MILLIS = 200;
+    private static final byte[] SLOW_BODY = "userId=1&movieId=1&rating=4.0".getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        String path = args.length > 2 ? args[2] : "/api/users/1/recommendations";
+        String[] modes = (args.length > 3 ? args[3] : "platform,virtual").split(",");
+        int slowClients = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        System.out.printf("%d clients, %d slow clients, %ds per mode, GET %s%n", clients, slowClients, seconds, path);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s %10s%n",
+                "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "slow done");
+        int port = BASE_PORT;
+        for (String mode : modes) {
+            File log = File.createTempFile("moviebot-" + mode.trim() + "-", ".log");
+            Process server = startServer(mode.trim(), port, log);
+            try {
+                waitUntilUp(server, port, path, log);
+                run(port, path, clients, 0, 2);
+                Result result = run(port, path, clients, slowClients, seconds);
+                System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %8d %10d%n", mode.trim(),
+                        result.throughput(), result.percentile(50), result.percentile(99),
+                        result.percentile(100), result.errors, result.slowCompleted);
+            } catch (IOException e) {
+                System.out.printf("%-10s failed: %s%n", mode.trim(), e.getMessage());
+            } finally {
+                server.destroy();
+                server.waitFor(10, TimeUnit.SECONDS);
+            }
+            port++;
+        }
+    }
+
+    private static Process startServer(String mode, int port, File log) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                "-Dmoviebot.threads=" + mode,
+                "-Dmoviebot.port=" + port,
+                "WebServer")
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+    }
+
+    private static void waitUntilUp(Process server, int port, String path, File log)
+            throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (!server.isAlive()) {
+                throw new IOException("server exited with code " + server.exitValue() + ", see " + log);
+            }
+            try {
+                if (request(port, path) == 200) return;
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IOException("server did not start on port " + port);
+    }
+
+    private static Result run(int port, String path, int clients, int slowClients, int seconds)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(clients + slowClients);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicInteger slowCompleted = new AtomicInteger();
+        for (int i = 0; i < slowClients; i++) {
+            pool.execute(() -> {
+                while (System.nanoTime() < end) {
+                    try {
+                        if (slowRequest(port, end) == 200) slowCompleted.incrementAndGet();
+                    } catch (IOException e) {
+                        // server dropped the connection; open another one
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        List<Future<long[]>> futures = new ArrayList<>();
+        int[] errors = new int[1];
+        for (int i = 0; i < clients; i++) {
+            futures.add(pool.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = request(port, path);
+                    } catch (IOException e) {
+                        status = -1;
+                    }
+                    if (status != 200) {
+                        synchronized (errors) {
+                            errors[0]++;
+                        }
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            try {
+                long[] part = future.get();
+                int offset = all.length;
+                all = Arrays.copyOf(all, offset + part.length);
+                System.arraycopy(part, 0, all, offset, part.length);
+            } catch (ExecutionException e) {
+                errors[0]++;
+            }
+        }
+        Arrays.sort(all);
+        return new Result(all, errors[0], slowCompleted.get(), seconds);
+    }
+
+    /** Posts a rating, trickling the body; returns the status, or -1 if the deadline passed first. */
+    private static int slowRequest(int port, long end) throws IOException, InterruptedException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", port), 5000);
+            socket.setSoTimeout(30000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /api/ratings HTTP/1.1\r\n"
+                    + "Host: localhost:" + port + "\r\n"
+                    + "Content-Type: application/x-www-form-urlencoded\r\n"
+                    + "Content-Length: " + SLOW_BODY.length + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            for (byte b : SLOW_BODY) {
+                if (System.nanoTime() >= end) return -1;
+                Thread.sleep(SLOW_BYTE_MILLIS);
+                out.write(b);
+                out.flush();
+            }
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[8192];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) >= 0) {
+                length += read;
+            }
+            // "HTTP/1.1 200 ..."
+            String statusLine = new String(buffer, 0, Math.min(length, 12), StandardCharsets.US_ASCII);
+            return statusLine.length() == 12 ? Integer.parseInt(statusLine.substring(9, 12)) : -1;
+        }
+    }
+
+    private static int request(int port, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        int status = connection.getResponseCode();
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (body != null) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) >= 0) {
+                    // drain so the connection can be reused
+                }
+            }
+        }
+        return status;
+    }
+
+    private static class Result {
+        private final long[] sortedLatencies;
+        private final int errors;
+        private final int slowCompleted;
+        private final int seconds;
+
+        Result(long[] sortedLatencies, int errors, int slowCompleted, int seconds) {
+            this.sortedLatencies = sortedLatencies;
+            this.errors = errors;
+            this.slowCompleted = slowCompleted;
+            this.seconds = seconds;
+        }
+
+        double throughput() {
+            return sortedLatencies.length / (double) seconds;
+        }
+
+        double percentile(double p) {
+            if (sortedLatencies.length == 0) return Double.NaN;
+            int index = (int) Math.ceil(p / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package moviebot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Recommendations served from a trained latent-factor model. The cost is one dot product
+ * per movie, so it should track {@code movies} and {@code factors} and stay flat as
+ * {@code users} grows; compare with {@link RecommendationBenchmark#computeRecommendations}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ModelBenchmark {
+
+    @Param({"20000"})
+    public int movies;
+
+    @Param({"20000"})
+    public int users;
+
+    @Param({"50"})
+    public int ratingsPerUser;
+
+    @Param({"1.0"})
+    public double popularitySkew;
+
+    @Param({"32"})
+    public int factors;
+
+    @Param({"10"})
+    public int count;
+
+    private Workload workload;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int bound) {
+            next = (next + 7919) % bound;
+            return next;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workload.create();
+        workload.build(movies, users, ratingsPerUser, popularitySkew, 42L);
+        long millis = workload.trainModel(factors, 10);
+        System.out.println("Trained " + factors + " factors in " + millis + " ms");
+    }
+
+    @Benchmark
+    public Object recommendFromModel(Cursor cursor) {
+        return workload.recommendFromModel(cursor.next(users), count);
+    }
+}
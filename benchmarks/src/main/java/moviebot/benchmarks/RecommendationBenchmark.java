@@ -0,0 +1,80 @@
+package moviebot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * User-facing recommendation paths over a synthetic user base. The "get" benchmarks go
+ * through the engine's caches as production traffic does; the "compute" ones bypass them.
+ * Sizes are JMH parameters, e.g. {@code -p users=1000000 -p ratingsPerUser=100 -p popularitySkew=1.2}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RecommendationBenchmark {
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"20000"})
+    public int movies;
+
+    @Param({"20000"})
+    public int users;
+
+    @Param({"50"})
+    public int ratingsPerUser;
+
+    @Param({"1.0"})
+    public double popularitySkew;
+
+    @Param({"10"})
+    public int count;
+
+    private Workload workload;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int bound) {
+            next = (next + 7919) % bound;
+            return next;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workload.create();
+        workload.build(movies, users, ratingsPerUser, popularitySkew, 42L);
+    }
+
+    @Benchmark
+    public Object getRecommendations(Cursor cursor) {
+        return workload.getRecommendations(cursor.next(users), count);
+    }
+
+    @Benchmark
+    public Object computeRecommendations(Cursor cursor) {
+        return workload.computeRecommendations(cursor.next(users), count);
+    }
+
+    /** Per-user cost when users are computed in batches; compare with {@link #computeRecommendations}. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int computeRecommendationsBatch(Cursor cursor) {
+        return workload.computeRecommendationsBatch(cursor.next(users), BATCH_SIZE, count);
+    }
+
+    @Benchmark
+    public Object findSimilarUsers(Cursor cursor) {
+        return workload.findSimilarUsers(cursor.next(users), count);
+    }
+
+    @Benchmark
+    public double calculateUserSimilarity(Cursor cursor) {
+        return workload.calculateUserSimilarity(cursor.next(users), cursor.next(users));
+    }
+}
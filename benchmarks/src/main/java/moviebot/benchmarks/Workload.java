@@ -0,0 +1,59 @@
+package moviebot.benchmarks;
+
+/**
+ * Bridge between the JMH benchmarks and the application classes. JMH refuses benchmarks in
+ * the default package and named packages cannot see default-package classes, so the
+ * benchmarks drive the application through this interface and {@code BenchmarkFixture}
+ * implements it next to the application classes.
+ */
+public interface Workload {
+
+    /**
+     * Builds a synthetic catalog and user base. Movie popularity follows a Zipf law with
+     * exponent {@code popularitySkew} (0 is uniform) and per-user rating counts follow a
+     * power law with mean {@code ratingsPerUser}.
+     */
+    void build(int movies, int users, int ratingsPerUser, double popularitySkew, long seed);
+
+    int movieCount();
+
+    int userCount();
+
+    Object getRecommendations(int user, int count);
+
+    Object computeRecommendations(int user, int count);
+
+    /** Computes recommendations for {@code users} consecutive users (wrapping) as one batch; returns how many. */
+    int computeRecommendationsBatch(int firstUser, int users, int count);
+
+    Object findSimilarUsers(int user, int count);
+
+    /** Trains a latent-factor model over the current ratings and returns the training time in milliseconds. */
+    long trainModel(int factors, int iterations);
+
+    Object recommendFromModel(int user, int count);
+
+    double calculateUserSimilarity(int user, int other);
+
+    Object getSimilarMovies(int movie, int count);
+
+    Object computeSimilarMovies(int movie, int count);
+
+    Object searchByTitle(String query);
+
+    Object searchByGenre(String genre);
+
+    Object getTopRatedMovies(int count);
+
+    String titleQuery(int index);
+
+    String genre(int index);
+
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("BenchmarkFixture").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkFixture is missing from the classpath", e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Latent-factor model produced by {@link AlsTrainer}: every user and movie is a vector of
+ * {@code factors} floats and a predicted rating is the global mean plus their dot product.
+ * Immutable, so a retrained model can replace this one while requests still use it.
+ *
+ * Users whose ratings changed since training, or who joined later, are folded in on the
+ * fly: their vector is re-solved from their current ratings against the fixed movie
+ * vectors, which costs one small linear solve and keeps recommendations current without
+ * retraining. Recommending is then one dot product per movie and a bounded heap.
+ */
+public class AlsModel {
+    private final int factors;
+    private final float mean;
+    private final double regularization;
+    private final int[] userIds;
+    private final float[] userFactors;
+    private final User.Ratings[] trainedRatings;
+    private final int[] movieIds;
+    private final float[] movieFactors;
+    private final double trainingRmse;
+    private final long trainedAt;
+
+    AlsModel(int factors, float mean, double regularization, int[] userIds, float[] userFactors,
+             User.Ratings[] trainedRatings, int[] movieIds, float[] movieFactors, double trainingRmse) {
+        this.factors = factors;
+        this.mean = mean;
+        this.regularization = regularization;
+        this.userIds = userIds;
+        this.userFactors = userFactors;
+        this.trainedRatings = trainedRatings;
+        this.movieIds = movieIds;
+        this.movieFactors = movieFactors;
+        this.trainingRmse = trainingRmse;
+        this.trainedAt = System.currentTimeMillis();
+    }
+
+    public int getFactors() { return factors; }
+
+    public int getUserCount() { return userIds.length; }
+
+    public int getMovieCount() { return movieIds.length; }
+
+    public double getTrainingRmse() { return trainingRmse; }
+
+    public long getTrainedAt() { return trainedAt; }
+
+    /** Predicted rating, or NaN when the movie or the user's ratings are unknown to the model. */
+    public double predict(User user, int movieId) {
+        int column = Arrays.binarySearch(movieIds, movieId);
+        float[] vector = userVector(user);
+        if (column < 0 || vector == null) return Double.NaN;
+        return mean + dot(vector, movieFactors, column * factors);
+    }
+
+    /**
+     * Ids of the {@code count} movies with the highest predicted rating, best first.
+     * Movies for which {@code exclude} is true are skipped; it is only consulted for
+     * movies that would otherwise make the list.
+     */
+    public int[] recommend(User user, int count, IntPredicate exclude) {
+        float[] vector = userVector(user);
+        if (vector == null || count <= 0) return new int[0];
+        int[] heapColumns = new int[count];
+        float[] heapScores = new float[count];
+        int size = 0;
+        for (int column = 0; column < movieIds.length; column++) {
+            float score = dot(vector, movieFactors, column * factors);
+            if (size == count && score <= heapScores[0]) continue;
+            if (exclude.test(movieIds[column])) continue;
+            if (size < count) {
+                heapColumns[size] = column;
+                heapScores[size] = score;
+                siftUp(heapColumns, heapScores, size++);
+            } else {
+                heapColumns[0] = column;
+                heapScores[0] = score;
+                siftDown(heapColumns, heapScores, size);
+            }
+        }
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = movieIds[heapColumns[0]];
+            heapColumns[0] = heapColumns[i];
+            heapScores[0] = heapScores[i];
+            siftDown(heapColumns, heapScores, i);
+        }
+        return result;
+    }
+
+    /** The trained vector if the user's ratings are unchanged since training, else a fold-in; null if nothing is known. */
+    float[] userVector(User user) {
+        User.Ratings ratings = user.ratings();
+        int row = Arrays.binarySearch(userIds, user.getUserId());
+        if (row >= 0 && trainedRatings[row] == ratings) {
+            return Arrays.copyOfRange(userFactors, row * factors, (row + 1) * factors);
+        }
+        int[] columns = new int[ratings.count];
+        float[] values = new float[ratings.count];
+        int known = 0;
+        for (int i = 0; i < ratings.count; i++) {
+            int column = Arrays.binarySearch(movieIds, ratings.ids[i]);
+            if (column >= 0) {
+                columns[known] = column;
+                values[known++] = ratings.values[i] - mean;
+            }
+        }
+        if (known == 0) return null;
+        float[] vector = new float[factors];
+        solveRow(columns, values, 0, known, movieFactors, factors, regularization,
+                new double[factors * factors], new double[factors], vector, 0);
+        return vector;
+    }
+
+    /**
+     * Regularized least squares for one row of the factorization: finds the x minimizing
+     * sum((values[i] - x . fixed[columns[i]])^2) + lambda * n * |x|^2 over {@code [from, to)}
+     * and stores it at {@code out[offset]}. {@code a} and {@code b} are k*k and k scratch.
+     */
+    static void solveRow(int[] columns, float[] values, int from, int to, float[] fixed, int k,
+                         double lambda, double[] a, double[] b, float[] out, int offset) {
+        Arrays.fill(a, 0.0);
+        Arrays.fill(b, 0.0);
+        for (int i = from; i < to; i++) {
+            int base = columns[i] * k;
+            double value = values[i];
+            for (int p = 0; p < k; p++) {
+                double fp = fixed[base + p];
+                b[p] += value * fp;
+                int row = p * k;
+                for (int q = 0; q <= p; q++) {
+                    a[row + q] += fp * fixed[base + q];
+                }
+            }
+        }
+        double ridge = lambda * Math.max(1, to - from);
+        for (int p = 0; p < k; p++) {
+            a[p * k + p] += ridge;
+        }
+        // Cholesky factorization A = L L^T in the lower triangle, then forward and back substitution.
+        for (int j = 0; j < k; j++) {
+            double diagonal = a[j * k + j];
+            for (int m = 0; m < j; m++) {
+                diagonal -= a[j * k + m] * a[j * k + m];
+            }
+            diagonal = Math.sqrt(Math.max(diagonal, 1e-12));
+            a[j * k + j] = diagonal;
+            for (int i = j + 1; i < k; i++) {
+                double sum = a[i * k + j];
+                for (int m = 0; m < j; m++) {
+                    sum -= a[i * k + m] * a[j * k + m];
+                }
+                a[i * k + j] = sum / diagonal;
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            double sum = b[i];
+            for (int m = 0; m < i; m++) {
+                sum -= a[i * k + m] * b[m];
+            }
+            b[i] = sum / a[i * k + i];
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int m = i + 1; m < k; m++) {
+                sum -= a[m * k + i] * b[m];
+            }
+            b[i] = sum / a[i * k + i];
+            out[offset + i] = (float) b[i];
+        }
+    }
+
+    static float dot(float[] vector, float[] matrix, int offset) {
+        float sum = 0f;
+        for (int i = 0; i < vector.length; i++) {
+            sum += vector[i] * matrix[offset + i];
+        }
+        return sum;
+    }
+
+    private static void siftUp(int[] columns, float[] scores, int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (scores[parent] <= scores[pos]) return;
+            swap(columns, scores, parent, pos);
+            pos = parent;
+        }
+    }
+
+    private static void siftDown(int[] columns, float[] scores, int size) {
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) return;
+            if (child + 1 < size && scores[child + 1] < scores[child]) child++;
+            if (scores[pos] <= scores[child]) return;
+            swap(columns, scores, pos, child);
+            pos = child;
+        }
+    }
+
+    private static void swap(int[] columns, float[] scores, int i, int j) {
+        int column = columns[i];
+        columns[i] = columns[j];
+        columns[j] = column;
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Trains an {@link AlsModel} by alternating least squares on the explicit rating matrix.
+ * The ratings are copied once into two compressed sparse layouts (by user and by movie)
+ * of primitive arrays; each half-iteration then fixes one side's vectors and solves every
+ * row of the other side independently, split across a worker pool with per-task scratch.
+ * Regularization is weighted by each row's rating count, and ratings are centered on the
+ * global mean. Training reads one rating snapshot per user, so it can run while users rate.
+ */
+public class AlsTrainer {
+    private int factors = 32;
+    private int iterations = 10;
+    private double regularization = 0.1;
+    private long seed = 42L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public void setFactors(int factors) { this.factors = Math.max(1, factors); }
+    public void setIterations(int iterations) { this.iterations = Math.max(1, iterations); }
+    public void setRegularization(double regularization) { this.regularization = regularization; }
+    public void setSeed(long seed) { this.seed = seed; }
+    public void setThreads(int threads) { this.threads = Math.max(1, threads); }
+
+    public AlsModel train(UserDatabase userDatabase) throws InterruptedException {
+        List<User> users = userDatabase.getAllUsers();
+        users.removeIf(user -> user.getRatingCount() == 0);
+        users.sort(Comparator.comparingInt(User::getUserId));
+        int userCount = users.size();
+        int[] userIds = new int[userCount];
+        User.Ratings[] ratings = new User.Ratings[userCount];
+        int[] userStart = new int[userCount + 1];
+        IntHashSet rated = new IntHashSet();
+        double total = 0.0;
+        for (int row = 0; row < userCount; row++) {
+            User.Ratings snapshot = users.get(row).ratings();
+            userIds[row] = users.get(row).getUserId();
+            ratings[row] = snapshot;
+            if ((long) userStart[row] + snapshot.count > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many ratings to train on");
+            }
+            userStart[row + 1] = userStart[row] + snapshot.count;
+            total += snapshot.sum;
+            for (int i = 0; i < snapshot.count; i++) {
+                rated.add(snapshot.ids[i]);
+            }
+        }
+        int[] movieIds = rated.toSortedArray();
+        int ratingCount = userStart[userCount];
+        float mean = ratingCount == 0 ? 0f : (float) (total / ratingCount);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // By user: movie column and centered rating of every rating, rows in user order.
+            int[] userColumns = new int[ratingCount];
+            float[] userValues = new float[ratingCount];
+            forEachRange(pool, userCount, (from, to) -> {
+                for (int row = from; row < to; row++) {
+                    User.Ratings snapshot = ratings[row];
+                    for (int i = 0, at = userStart[row]; i < snapshot.count; i++, at++) {
+                        userColumns[at] = Arrays.binarySearch(movieIds, snapshot.ids[i]);
+                        userValues[at] = snapshot.values[i] - mean;
+                    }
+                }
+            });
+
+            // By movie: the transpose, built with one counting pass.
+            int[] movieStart = new int[movieIds.length + 1];
+            for (int column : userColumns) {
+                movieStart[column + 1]++;
+            }
+            for (int column = 0; column < movieIds.length; column++) {
+                movieStart[column + 1] += movieStart[column];
+            }
+            int[] movieRows = new int[ratingCount];
+            float[] movieValues = new float[ratingCount];
+            int[] fill = Arrays.copyOf(movieStart, movieIds.length);
+            for (int row = 0; row < userCount; row++) {
+                for (int at = userStart[row]; at < userStart[row + 1]; at++) {
+                    int slot = fill[userColumns[at]]++;
+                    movieRows[slot] = row;
+                    movieValues[slot] = userValues[at];
+                }
+            }
+
+            SplittableRandom random = new SplittableRandom(seed);
+            float scale = (float) (1.0 / Math.sqrt(factors));
+            float[] movieFactors = new float[movieIds.length * factors];
+            for (int i = 0; i < movieFactors.length; i++) {
+                movieFactors[i] = (float) random.nextDouble() * scale;
+            }
+            float[] userFactors = new float[userCount * factors];
+
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                solveAll(pool, userCount, userStart, userColumns, userValues, movieFactors, userFactors);
+                solveAll(pool, movieIds.length, movieStart, movieRows, movieValues, userFactors, movieFactors);
+            }
+
+            DoubleAdder squaredError = new DoubleAdder();
+            forEachRange(pool, userCount, (from, to) -> {
+                double sum = 0.0;
+                float[] vector = new float[factors];
+                for (int row = from; row < to; row++) {
+                    System.arraycopy(userFactors, row * factors, vector, 0, factors);
+                    for (int at = userStart[row]; at < userStart[row + 1]; at++) {
+                        double error = userValues[at] - AlsModel.dot(vector, movieFactors, userColumns[at] * factors);
+                        sum += error * error;
+                    }
+                }
+                squaredError.add(sum);
+            });
+            double rmse = ratingCount == 0 ? 0.0 : Math.sqrt(squaredError.sum() / ratingCount);
+            return new AlsModel(factors, mean, regularization, userIds, userFactors, ratings,
+                    movieIds, movieFactors, rmse);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void solveAll(ExecutorService pool, int rows, int[] start, int[] columns, float[] values,
+                          float[] fixed, float[] out) throws InterruptedException {
+        forEachRange(pool, rows, (from, to) -> {
+            double[] a = new double[factors * factors];
+            double[] b = new double[factors];
+            for (int row = from; row < to; row++) {
+                AlsModel.solveRow(columns, values, start[row], start[row + 1], fixed, factors,
+                        regularization, a, b, out, row * factors);
+            }
+        });
+    }
+
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /** Splits {@code [0, rows)} into a few ranges per thread so uneven rows still balance. */
+    private void forEachRange(ExecutorService pool, int rows, RangeTask task) throws InterruptedException {
+        int chunk = Math.max(64, (rows + threads * 8 - 1) / (threads * 8));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < rows; from += chunk) {
+            int start = from;
+            int end = Math.min(rows, from + chunk);
+            futures.add(pool.submit(() -> task.run(start, end)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("ALS training failed", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Recommendations for many users at once, for digests and cache pre-warming. The parts of
+ * the pipeline that do not depend on the user (each genre's movies sorted by rating and the
+ * top-rated list) are computed once per batch and shared; only the per-user work repeats.
+ * Users are processed in chunks on a worker pool and every result is handed to the sink as
+ * soon as it is ready, so the sink is called concurrently and must be thread-safe.
+ *
+ * By default results go through the engine's recommendation cache, which warms it; with
+ * {@link #setUseCache(boolean) setUseCache(false)} every list is freshly computed.
+ */
+public class BatchRecommender {
+    private final RecommendationEngine engine;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 256;
+    private boolean useCache = true;
+
+    public BatchRecommender(RecommendationEngine engine) {
+        this.engine = engine;
+    }
+
+    public void setThreads(int threads) { this.threads = Math.max(1, threads); }
+    public void setChunkSize(int chunkSize) { this.chunkSize = Math.max(1, chunkSize); }
+    public void setUseCache(boolean useCache) { this.useCache = useCache; }
+
+    /** Sends up to {@code maxRecommendations} movies for every user to {@code sink}; returns the number of users. */
+    public int run(Collection<User> users, int maxRecommendations, BiConsumer<User, List<Movie>> sink)
+            throws InterruptedException {
+        List<User> batch = new ArrayList<>(users);
+        SharedCandidates candidates = new SharedCandidates(engine.directCandidates, maxRecommendations * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < batch.size(); from += chunkSize) {
+                List<User> chunk = batch.subList(from, Math.min(batch.size(), from + chunkSize));
+                futures.add(pool.submit(() -> {
+                    for (User user : chunk) {
+                        sink.accept(user, useCache
+                                ? engine.getRecommendations(user, maxRecommendations, candidates)
+                                : engine.computeRecommendations(user, maxRecommendations, candidates));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof RuntimeException
+                            ? (RuntimeException) cause
+                            : new IllegalStateException("Batch recommendation failed", cause);
+                }
+            }
+            return batch.size();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Per-batch memo of the user-independent candidate lists. */
+    private static class SharedCandidates implements RecommendationEngine.CandidateSource {
+        private final RecommendationEngine.CandidateSource source;
+        private final Map<String, List<Movie>> byGenre = new ConcurrentHashMap<>();
+        private final List<Movie> topRated;
+        private final int topRatedLimit;
+
+        SharedCandidates(RecommendationEngine.CandidateSource source, int topRatedLimit) {
+            this.source = source;
+            this.topRated = Collections.unmodifiableList(source.topRated(topRatedLimit));
+            this.topRatedLimit = topRatedLimit;
+        }
+
+        @Override
+        public List<Movie> moviesByRating(String genre) {
+            return byGenre.computeIfAbsent(genre, g -> Collections.unmodifiableList(source.moviesByRating(g)));
+        }
+
+        @Override
+        public List<Movie> topRated(int count) {
+            if (count > topRatedLimit) return source.topRated(count);
+            return topRated.subList(0, Math.min(count, topRated.size()));
+        }
+    }
+}
@@ -0,0 +1,705 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Bulk loader for MovieLens-style {@code movies.csv}/{@code ratings.csv} files and their
+ * JSON Lines equivalents ({@code .jsonl}). Each file is split into line-aligned chunks that
+ * are memory-mapped and parsed on a worker pool; ratings are parsed straight from bytes into
+ * primitive arrays. Nothing is inserted until every chunk is parsed: ratings are then grouped
+ * by user with one counting sort over dense user slots, each user's arrays are built once, and
+ * movies and users are stored in the databases before their indexes and rater postings are
+ * built in one pass. Ids may be sparse or large: nothing is sized by the largest id unless
+ * the ids are dense enough for a lookup table to cost no more than the ratings themselves.
+ *
+ * Load into databases created without sample data, before building a {@link RecommendationEngine}.
+ * Ratings for users that already exist are merged in with {@link User#rateMovies} instead.
+ * New users are named {@code user<id>}; when that name is taken a numbered suffix is added.
+ *
+ * CSV: {@code movieId,title,genres} (year taken from a trailing "(1995)" in the title, every
+ * genre kept) and {@code userId,movieId,rating[,timestamp]}, each with a header line.
+ * JSONL: one object per line with the {@link Movie} field names ({@code id} or {@code movieId})
+ * and {@code userId}, {@code movieId}, {@code rating}.
+ */
+public class BulkImporter {
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    private static final byte[] ID = bytes("id");
+    private static final byte[] USER_ID = bytes("userId");
+    private static final byte[] MOVIE_ID = bytes("movieId");
+    private static final byte[] RATING = bytes("rating");
+    private static final byte[] TITLE = bytes("title");
+    private static final byte[] GENRE = bytes("genre");
+    private static final byte[] GENRES = bytes("genres");
+    private static final byte[] YEAR = bytes("year");
+    private static final byte[] DIRECTOR = bytes("director");
+    private static final byte[] DESCRIPTION = bytes("description");
+    private static final byte[] DURATION = bytes("duration");
+
+    private final MovieDatabase movieDatabase;
+    private final UserDatabase userDatabase;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public BulkImporter(MovieDatabase movieDatabase, UserDatabase userDatabase) {
+        this.movieDatabase = movieDatabase;
+        this.userDatabase = userDatabase;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /** Loads either file (pass null to skip one) and returns what was added. */
+    public Stats load(Path moviesFile, Path ratingsFile) throws IOException {
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel moviesIn = open(moviesFile); FileChannel ratingsIn = open(ratingsFile)) {
+            List<Future<List<Movie>>> movieChunks = moviesIn == null ? Collections.emptyList()
+                    : parse(pool, moviesIn, isJson(moviesFile) ? BulkImporter::parseJsonMovies : BulkImporter::parseCsvMovies);
+            List<Future<RatingChunk>> ratingChunks = ratingsIn == null ? Collections.emptyList()
+                    : parse(pool, ratingsIn, isJson(ratingsFile) ? BulkImporter::parseJsonRatings : BulkImporter::parseCsvRatings);
+
+            List<Movie> movies = new ArrayList<>();
+            for (Future<List<Movie>> chunk : movieChunks) {
+                movies.addAll(await(chunk));
+            }
+            List<RatingChunk> ratings = new ArrayList<>();
+            for (Future<RatingChunk> chunk : ratingChunks) {
+                ratings.add(await(chunk));
+            }
+
+            Stats stats = new Stats();
+            GroupedRatings grouped = group(ratings);
+            User[] users = buildUsers(pool, grouped);
+            MovieAverages averages = new MovieAverages(movies, users, grouped.size);
+            for (Movie movie : movies) {
+                if (Double.isNaN(movie.getRating())) {
+                    movie.setRating(averages.onTenPointScale(movie.getId()));
+                }
+            }
+            stats.movies = movieDatabase.restoreMovies(movies);
+            List<User> newUsers = new ArrayList<>();
+            for (User user : users) {
+                stats.ratings += user.getRatingCount();
+                User existing = userDatabase.getUserById(user.getUserId());
+                if (existing == null) {
+                    user.setUsername(freeUsername(user.getUserId()));
+                    newUsers.add(user);
+                } else {
+                    User.Ratings loaded = user.ratings();
+                    existing.rateMovies(loaded.ids, loaded.values, loaded.count);
+                }
+            }
+            stats.users = userDatabase.restoreUsers(newUsers);
+            stats.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            return stats;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** {@code user<id>}, or with a suffix when someone already registered that name. */
+    private String freeUsername(int userId) {
+        String username = "user" + userId;
+        for (int n = 2; userDatabase.getUserByUsername(username) != null; n++) {
+            username = "user" + userId + "-" + n;
+        }
+        return username;
+    }
+
+    private interface ChunkParser<T> {
+        T parse(ByteBuffer chunk, boolean first);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return file == null ? null : FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    private <T> List<Future<T>> parse(ExecutorService pool, FileChannel channel, ChunkParser<T> parser)
+            throws IOException {
+        long size = channel.size();
+        long chunkBytes = Math.max(1 << 20, Math.min(MAX_CHUNK_BYTES, size / (threads * 4L) + 1));
+        List<long[]> ranges = new ArrayList<>();
+        for (long start = 0; start < size; ) {
+            long end = nextLineStart(channel, Math.min(size, start + chunkBytes));
+            ranges.add(new long[] {start, end});
+            start = end;
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        for (long[] range : ranges) {
+            futures.add(pool.submit(() -> {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                return parser.parse(chunk, range[0] == 0);
+            }));
+        }
+        return futures;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static RatingChunk parseCsvRatings(ByteBuffer in, boolean first) {
+        RatingChunk chunk = new RatingChunk();
+        if (first) skipLine(in);
+        while (in.hasRemaining()) {
+            int userId = parseInt(in);
+            skipPast(in, ',');
+            int movieId = parseInt(in);
+            skipPast(in, ',');
+            float rating = (float) parseNumber(in);
+            skipLine(in);
+            if (userId > 0 && movieId > 0 && validRating(rating)) {
+                chunk.add(userId, movieId, rating);
+            }
+        }
+        return chunk;
+    }
+
+    private static RatingChunk parseJsonRatings(ByteBuffer in, boolean first) {
+        RatingChunk chunk = new RatingChunk();
+        while (in.hasRemaining()) {
+            int userId = 0;
+            int movieId = 0;
+            float rating = 0;
+            if (skipPast(in, '{')) {
+                for (long key = nextKey(in); key >= 0; key = nextKey(in)) {
+                    if (keyIs(in, key, USER_ID)) userId = (int) readNumber(in);
+                    else if (keyIs(in, key, MOVIE_ID)) movieId = (int) readNumber(in);
+                    else if (keyIs(in, key, RATING)) rating = (float) readNumber(in);
+                    else skipValue(in);
+                }
+            }
+            skipLine(in);
+            if (userId > 0 && movieId > 0 && validRating(rating)) {
+                chunk.add(userId, movieId, rating);
+            }
+        }
+        return chunk;
+    }
+
+    /** Same range {@link User#rateMovie} accepts; MovieLens 0.5 stars and missing ratings are dropped. */
+    private static boolean validRating(float rating) {
+        return rating >= 1.0f && rating <= 5.0f;
+    }
+
+    private static List<Movie> parseCsvMovies(ByteBuffer in, boolean first) {
+        List<Movie> movies = new ArrayList<>();
+        if (first) skipLine(in);
+        while (in.hasRemaining()) {
+            int id = parseInt(in);
+            skipPast(in, ',');
+            String title = readCsvField(in);
+            String genres = readCsvField(in);
+            skipLine(in);
+            if (id <= 0 || title == null) continue;
+            int year = 0;
+            String trimmed = title.trim();
+            if (trimmed.length() >= 6 && trimmed.endsWith(")") && trimmed.charAt(trimmed.length() - 6) == '(') {
+                try {
+                    year = Integer.parseInt(trimmed.substring(trimmed.length() - 5, trimmed.length() - 1));
+                    trimmed = trimmed.substring(0, trimmed.length() - 6).trim();
+                } catch (NumberFormatException e) {
+                    // no year suffix
+                }
+            }
+            movies.add(new Movie(id, trimmed, movieGenres(genres), year, Double.NaN, "", "", 0));
+        }
+        return movies;
+    }
+
+    private static List<Movie> parseJsonMovies(ByteBuffer in, boolean first) {
+        List<Movie> movies = new ArrayList<>();
+        while (in.hasRemaining()) {
+            Movie movie = new Movie(0, "", "", 0, Double.NaN, "", "", 0);
+            if (skipPast(in, '{')) {
+                for (long key = nextKey(in); key >= 0; key = nextKey(in)) {
+                    if (keyIs(in, key, ID) || keyIs(in, key, MOVIE_ID)) movie.setId((int) readNumber(in));
+                    else if (keyIs(in, key, TITLE)) movie.setTitle(readString(in));
+                    else if (keyIs(in, key, GENRE) || keyIs(in, key, GENRES)) movie.setGenre(movieGenres(readString(in)));
+                    else if (keyIs(in, key, YEAR)) movie.setYear((int) readNumber(in));
+                    else if (keyIs(in, key, RATING)) movie.setRating(readNumber(in));
+                    else if (keyIs(in, key, DIRECTOR)) movie.setDirector(readString(in));
+                    else if (keyIs(in, key, DESCRIPTION)) movie.setDescription(readString(in));
+                    else if (keyIs(in, key, DURATION)) movie.setDuration((int) readNumber(in));
+                    else skipValue(in);
+                }
+            }
+            skipLine(in);
+            if (movie.getId() > 0) {
+                movies.add(movie);
+            }
+        }
+        return movies;
+    }
+
+    /** MovieLens genre lists are already joined by {@link Movie#GENRE_SEPARATOR}. */
+    private static String movieGenres(String genres) {
+        if (genres == null || genres.isEmpty() || genres.equals("(no genres listed)")) return "Unknown";
+        return genres;
+    }
+
+    /** Groups every rating by user with a counting sort, keeping file order within a user. */
+    private static GroupedRatings group(List<RatingChunk> chunks) {
+        GroupedRatings grouped = new GroupedRatings();
+        int maxUser = 0;
+        for (RatingChunk chunk : chunks) {
+            grouped.size += chunk.size;
+            maxUser = Math.max(maxUser, chunk.maxUserId);
+        }
+        grouped.users = new IdSlots(distinctUserIds(chunks, maxUser, grouped.size), tableBudget(grouped.size));
+        grouped.offsets = new int[grouped.users.count() + 1];
+        for (RatingChunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                grouped.offsets[grouped.users.slotOf(chunk.userIds[i]) + 1]++;
+            }
+        }
+        for (int slot = 1; slot < grouped.offsets.length; slot++) {
+            grouped.offsets[slot] += grouped.offsets[slot - 1];
+        }
+        int[] cursor = Arrays.copyOf(grouped.offsets, grouped.offsets.length);
+        grouped.movieIds = new int[grouped.size];
+        grouped.values = new float[grouped.size];
+        for (ListIterator<RatingChunk> it = chunks.listIterator(); it.hasNext(); ) {
+            RatingChunk chunk = it.next();
+            for (int i = 0; i < chunk.size; i++) {
+                int slot = cursor[grouped.users.slotOf(chunk.userIds[i])]++;
+                grouped.movieIds[slot] = chunk.movieIds[i];
+                grouped.values[slot] = chunk.values[i];
+            }
+            it.set(null);
+        }
+        return grouped;
+    }
+
+    /** Largest id worth a direct lookup table: one no bigger than the rating arrays. */
+    private static long tableBudget(int ratings) {
+        return 2L * ratings + 1024;
+    }
+
+    private static int[] distinctUserIds(List<RatingChunk> chunks, int maxUser, int ratings) {
+        if (maxUser < tableBudget(ratings)) {
+            BitSet seen = new BitSet(maxUser + 1);
+            for (RatingChunk chunk : chunks) {
+                for (int i = 0; i < chunk.size; i++) {
+                    seen.set(chunk.userIds[i]);
+                }
+            }
+            return seen.stream().toArray();
+        }
+        IntHashSet seen = new IntHashSet();
+        for (RatingChunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                seen.add(chunk.userIds[i]);
+            }
+        }
+        return seen.toSortedArray();
+    }
+
+    private User[] buildUsers(ExecutorService pool, GroupedRatings grouped) throws IOException {
+        int userSlots = grouped.users.count();
+        User[] users = new User[userSlots];
+        int batch = Math.max(1024, userSlots / (threads * 8) + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < userSlots; from += batch) {
+            int start = from;
+            int end = Math.min(userSlots, from + batch);
+            futures.add(pool.submit(() -> {
+                for (int slot = start; slot < end; slot++) {
+                    users[slot] = grouped.buildUser(slot);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            await(future);
+        }
+        return users;
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Import failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // ---- byte-level parsing helpers; all advance the buffer position ----
+
+    private static void skipLine(ByteBuffer in) {
+        while (in.hasRemaining() && in.get() != '\n') {
+            // consume
+        }
+    }
+
+    /** Advances past the next {@code target} on this line; false if the line ended first. */
+    private static boolean skipPast(ByteBuffer in, char target) {
+        while (in.hasRemaining()) {
+            byte b = in.get(in.position());
+            if (b == '\n') return false;
+            in.get();
+            if (b == target) return true;
+        }
+        return false;
+    }
+
+    private static void skipSpaces(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte b = in.get(in.position());
+            if (b != ' ' && b != '\t' && b != '\r') return;
+            in.get();
+        }
+    }
+
+    private static int parseInt(ByteBuffer in) {
+        skipSpaces(in);
+        boolean negative = in.hasRemaining() && in.get(in.position()) == '-';
+        if (negative) in.get();
+        int value = 0;
+        while (in.hasRemaining()) {
+            byte b = in.get(in.position());
+            if (b < '0' || b > '9') break;
+            value = value * 10 + (b - '0');
+            in.get();
+        }
+        return negative ? -value : value;
+    }
+
+    /** Plain decimal like "3.5" or "-12"; exponents are handed to {@link Double#parseDouble}. */
+    private static double parseNumber(ByteBuffer in) {
+        skipSpaces(in);
+        int start = in.position();
+        boolean negative = in.hasRemaining() && in.get(start) == '-';
+        if (negative) in.get();
+        double value = 0;
+        double scale = 0;
+        while (in.hasRemaining()) {
+            byte b = in.get(in.position());
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (scale > 0) scale *= 10;
+            } else if (b == '.' && scale == 0) {
+                scale = 1;
+            } else if (b == 'e' || b == 'E') {
+                while (in.hasRemaining() && "+-0123456789eE.".indexOf(in.get(in.position())) >= 0) in.get();
+                byte[] text = new byte[in.position() - start];
+                in.duplicate().position(start).get(text);
+                return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+            } else {
+                break;
+            }
+            in.get();
+        }
+        if (scale > 0) value /= scale;
+        return negative ? -value : value;
+    }
+
+    private static String readCsvField(ByteBuffer in) {
+        ByteArray raw = new ByteArray();
+        boolean quoted = in.hasRemaining() && in.get(in.position()) == '"';
+        if (quoted) in.get();
+        while (in.hasRemaining()) {
+            byte b = in.get(in.position());
+            if (quoted && b == '"') {
+                in.get();
+                if (in.hasRemaining() && in.get(in.position()) == '"') {
+                    raw.add(in.get());
+                    continue;
+                }
+                quoted = false;
+                continue;
+            }
+            if (!quoted && (b == ',' || b == '\n' || b == '\r')) {
+                if (b == ',') in.get();
+                break;
+            }
+            raw.add(in.get());
+        }
+        return new String(raw.bytes, 0, raw.size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves past the next key of the current object and its colon. Returns the key's start and
+     * end positions packed into a long, or -1 at the end of the object or line.
+     */
+    private static long nextKey(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte b = in.get(in.position());
+            if (b == '}' || b == '\n') return -1;
+            if (b == '"') break;
+            in.get();
+        }
+        if (!in.hasRemaining()) return -1;
+        in.get();
+        int start = in.position();
+        while (in.hasRemaining() && in.get(in.position()) != '"') {
+            in.get();
+        }
+        int end = in.position();
+        if (in.hasRemaining()) in.get();
+        skipPast(in, ':');
+        skipSpaces(in);
+        return ((long) start << 32) | end;
+    }
+
+    private static boolean keyIs(ByteBuffer in, long key, byte[] name) {
+        int start = (int) (key >>> 32);
+        if ((int) key - start != name.length) return false;
+        for (int i = 0; i < name.length; i++) {
+            if (in.get(start + i) != name[i]) return false;
+        }
+        return true;
+    }
+
+    private static double readNumber(ByteBuffer in) {
+        skipSpaces(in);
+        if (in.hasRemaining() && in.get(in.position()) == 'n') {
+            skipValue(in);
+            return 0;
+        }
+        return parseNumber(in);
+    }
+
+    private static String readString(ByteBuffer in) {
+        skipSpaces(in);
+        if (!in.hasRemaining() || in.get(in.position()) != '"') {
+            skipValue(in);
+            return null;
+        }
+        in.get();
+        ByteArray raw = new ByteArray();
+        StringBuilder text = new StringBuilder();
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (b == '"') break;
+            if (b != '\\') {
+                raw.add(b);
+                continue;
+            }
+            byte escaped = in.get();
+            char c;
+            switch (escaped) {
+                case 'n': c = '\n'; break;
+                case 't': c = '\t'; break;
+                case 'r': c = '\r'; break;
+                case 'b': c = '\b'; break;
+                case 'f': c = '\f'; break;
+                case 'u': {
+                    byte[] hex = new byte[4];
+                    in.get(hex);
+                    c = (char) Integer.parseInt(new String(hex, StandardCharsets.US_ASCII), 16);
+                    break;
+                }
+                default: c = (char) escaped;
+            }
+            text.append(new String(raw.bytes, 0, raw.size, StandardCharsets.UTF_8)).append(c);
+            raw.size = 0;
+        }
+        return text.append(new String(raw.bytes, 0, raw.size, StandardCharsets.UTF_8)).toString();
+    }
+
+    private static void skipValue(ByteBuffer in) {
+        skipSpaces(in);
+        if (in.hasRemaining() && in.get(in.position()) == '"') {
+            readString(in);
+            return;
+        }
+        int depth = 0;
+        while (in.hasRemaining()) {
+            byte b = in.get(in.position());
+            if (b == '\n') return;
+            if (depth == 0 && (b == ',' || b == '}')) return;
+            if (b == '[' || b == '{') depth++;
+            if (b == ']' || b == '}') depth--;
+            if (b == '"') {
+                readString(in);
+                continue;
+            }
+            in.get();
+        }
+    }
+
+    private static boolean isJson(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".json") || name.endsWith(".ndjson");
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static class ByteArray {
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        void add(byte b) {
+            if (size == bytes.length) bytes = Arrays.copyOf(bytes, size * 2);
+            bytes[size++] = b;
+        }
+    }
+
+    private static class RatingChunk {
+        private int[] userIds = new int[1 << 16];
+        private int[] movieIds = new int[1 << 16];
+        private float[] values = new float[1 << 16];
+        private int size;
+        private int maxUserId;
+
+        void add(int userId, int movieId, float rating) {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+                movieIds = Arrays.copyOf(movieIds, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            userIds[size] = userId;
+            movieIds[size] = movieId;
+            values[size] = rating;
+            size++;
+            maxUserId = Math.max(maxUserId, userId);
+        }
+    }
+
+    /**
+     * Dense slots for a sorted set of ids, in id order. Ids are looked up in a table indexed
+     * by id when the largest id is within budget, and by binary search otherwise.
+     */
+    private static final class IdSlots {
+        private final int[] ids;
+        /** Slot plus one by id, zero when absent; null when the ids are too sparse. */
+        private final int[] table;
+
+        IdSlots(int[] sortedIds, long tableBudget) {
+            this.ids = sortedIds;
+            int maxId = sortedIds.length == 0 ? 0 : sortedIds[sortedIds.length - 1];
+            if (maxId < tableBudget) {
+                table = new int[maxId + 1];
+                for (int slot = 0; slot < sortedIds.length; slot++) {
+                    table[sortedIds[slot]] = slot + 1;
+                }
+            } else {
+                table = null;
+            }
+        }
+
+        int count() {
+            return ids.length;
+        }
+
+        int idAt(int slot) {
+            return ids[slot];
+        }
+
+        /** Slot of {@code id}, or -1. */
+        int slotOf(int id) {
+            if (table != null) return id >= 0 && id < table.length ? table[id] - 1 : -1;
+            int pos = Arrays.binarySearch(ids, id);
+            return pos < 0 ? -1 : pos;
+        }
+    }
+
+    private static class GroupedRatings {
+        private int size;
+        private IdSlots users;
+        private int[] offsets;
+        private int[] movieIds;
+        private float[] values;
+
+        /** Builds the sorted rating arrays of the user in {@code slot}; a repeated movie keeps its last rating. */
+        User buildUser(int slot) {
+            int from = offsets[slot];
+            int to = offsets[slot + 1];
+            long[] keys = new long[to - from];
+            for (int i = from; i < to; i++) {
+                keys[i - from] = ((long) movieIds[i] << 32) | (i - from);
+            }
+            Arrays.sort(keys);
+            int[] ids = new int[keys.length];
+            float[] ratings = new float[keys.length];
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                int movieId = (int) (keys[i] >>> 32);
+                if (i + 1 < keys.length && (int) (keys[i + 1] >>> 32) == movieId) continue;
+                ids[count] = movieId;
+                ratings[count] = values[from + (int) keys[i]];
+                count++;
+            }
+            int userId = users.idAt(slot);
+            User user = new User(userId, "user" + userId, null, null);
+            user.restoreRatings(ids, ratings, count);
+            user.restoreWatched(Arrays.copyOf(ids, count));
+            return user;
+        }
+    }
+
+    /** Mean user rating of each movie that carries no rating of its own. */
+    private static class MovieAverages {
+        private final IdSlots movies;
+        private final double[] sums;
+        private final int[] counts;
+
+        MovieAverages(List<Movie> catalog, User[] users, int ratings) {
+            IntHashSet unrated = new IntHashSet();
+            for (Movie movie : catalog) {
+                if (Double.isNaN(movie.getRating())) {
+                    unrated.add(movie.getId());
+                }
+            }
+            this.movies = new IdSlots(unrated.toSortedArray(), tableBudget(ratings));
+            this.sums = new double[movies.count()];
+            this.counts = new int[movies.count()];
+            if (movies.count() == 0) return;
+            for (User user : users) {
+                User.Ratings rated = user.ratings();
+                for (int i = 0; i < rated.count; i++) {
+                    int slot = movies.slotOf(rated.ids[i]);
+                    if (slot >= 0) {
+                        sums[slot] += rated.values[i];
+                        counts[slot]++;
+                    }
+                }
+            }
+        }
+
+        /** Movie ratings use the ten-point scale of the sample catalog; user ratings go up to 5. */
+        double onTenPointScale(int movieId) {
+            int slot = movies.slotOf(movieId);
+            if (slot < 0 || counts[slot] == 0) return 0.0;
+            return Math.round(sums[slot] / counts[slot] * 20.0) / 10.0;
+        }
+    }
+
+    public static class Stats {
+        private int movies;
+        private int users;
+        private long ratings;
+        private long millis;
+
+        public int getMovies() { return movies; }
+        public int getUsers() { return users; }
+        public long getRatings() { return ratings; }
+        public long getMillis() { return millis; }
+
+        @Override
+        public String toString() {
+            return "Imported " + movies + " movies, " + users + " users, " + ratings + " ratings in " + millis + " ms";
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns small, dense int codes to strings so that repeated attribute values such as
+ * genres and directors are compared as ints. Matching ignores case, like the movie
+ * indexes do; a code decodes to the first spelling seen. Codes are never reused.
+ */
+public class CodeDictionary {
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /** Code of {@code value}, assigning the next free code the first time it is seen. */
+    public int encode(String value) {
+        String key = key(value);
+        Integer code = codes.get(key);
+        if (code != null) return code;
+        synchronized (this) {
+            code = codes.get(key);
+            if (code != null) return code;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value == null ? "" : value;
+            codes.put(key, size);
+            return size++;
+        }
+    }
+
+    /** Code of {@code value}, or -1 if it was never encoded. */
+    public int codeOf(String value) {
+        Integer code = codes.get(key(value));
+        return code == null ? -1 : code;
+    }
+
+    public synchronized String decode(int code) {
+        if (code < 0 || code >= size) throw new IllegalArgumentException("Unknown code " + code);
+        return values[code];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,601 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Read-only movie catalog stored column by column and served straight from a memory mapping.
+ * Rows are sorted by id. Id, year, duration and rating are fixed-width columns; genre and
+ * director are codes into small dictionaries; dictionary entries, titles and descriptions
+ * live in one string heap addressed by an offset table. Only the dictionaries are loaded on
+ * open, and a {@link Movie} is materialized only for rows a lookup actually returns. A movie
+ * with several genres has the {@link Movie#GENRE_SEPARATOR}-joined list as its genre entry.
+ *
+ * Genre, director, year, rating and title-prefix lookups never scan the catalog: the file
+ * also carries the rows of every genre and director (posting lists) and the rows in year,
+ * rating and normalized-title order for range and prefix searches. Substring search is the
+ * exception: it scans every row, but only compares the stored normalized title bytes and
+ * materializes just the matches.
+ *
+ * Layout: {@code [magic][count][genre entries][directors][genres][genre postings][pad]},
+ * then the id, year, duration, genre and director int columns, the rating double column,
+ * the string end offsets (genre entries, directors, then title, description and normalized
+ * title per row), the director and genre posting ends and rows, the year, rating and title
+ * orders, and the UTF-8 string bytes. Null strings are stored as empty strings.
+ */
+public class ColumnarCatalog {
+    private static final long MAGIC = 0x4D42434F4C533032L; // "MBCOLS02"
+    private static final long OLD_MAGIC = 0x4D42434F4C533031L; // "MBCOLS01", no index sections
+    private static final int HEADER_BYTES = 32;
+    private static final int STRINGS_PER_ROW = 3;
+    private static final long CHUNK_BYTES = 1L << 30;
+
+    private final int count;
+    private final MappedByteBuffer columns;
+    private final MappedByteBuffer[] heap;
+    private final int yearBase;
+    private final int durationBase;
+    private final int genreBase;
+    private final int directorBase;
+    private final int ratingBase;
+    private final int offsetBase;
+    private final int directorEndBase;
+    private final int directorRowBase;
+    private final int genreEndBase;
+    private final int genreRowBase;
+    private final int yearOrderBase;
+    private final int ratingOrderBase;
+    private final int titleOrderBase;
+    private final String[] genres;
+    private final String[] directors;
+    /** Genre name to its index in the genre posting table. */
+    private final Map<String, Integer> genreCodes;
+    private final List<String> genreNames;
+    private final Map<String, Integer> directorCodes;
+    /** Dictionaries of the database the catalog is mounted in, and each table entry's codes in them. */
+    private CodeDictionary genreDictionary;
+    private CodeDictionary directorDictionary;
+    private int[][] genreTableCodes;
+    private int[] directorTableCodes;
+
+    private ColumnarCatalog(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // read the fixed header
+        }
+        header.flip();
+        long magic = header.remaining() < HEADER_BYTES ? 0 : header.getLong();
+        if (magic == OLD_MAGIC) {
+            throw new IOException("Catalog was written by an older version; write it again with ColumnarCatalog.write");
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Not a columnar catalog");
+        }
+        this.count = header.getInt();
+        int genreCount = header.getInt();
+        int directorCount = header.getInt();
+        int genreNameCount = header.getInt();
+        int genrePostings = header.getInt();
+        long strings = (long) genreCount + directorCount + (long) STRINGS_PER_ROW * count;
+        long indexInts = (long) directorCount + count + genreNameCount + genrePostings + 3L * count;
+        long columnBytes = HEADER_BYTES + 28L * count + 8L * strings + 4L * indexInts;
+        if (columnBytes > Integer.MAX_VALUE) throw new IOException("Catalog too large to map");
+        this.columns = channel.map(FileChannel.MapMode.READ_ONLY, 0, columnBytes);
+        this.yearBase = HEADER_BYTES + 4 * count;
+        this.durationBase = yearBase + 4 * count;
+        this.genreBase = durationBase + 4 * count;
+        this.directorBase = genreBase + 4 * count;
+        this.ratingBase = directorBase + 4 * count;
+        this.offsetBase = ratingBase + 8 * count;
+        this.directorEndBase = offsetBase + (int) (8 * strings);
+        this.directorRowBase = directorEndBase + 4 * directorCount;
+        this.genreEndBase = directorRowBase + 4 * count;
+        this.genreRowBase = genreEndBase + 4 * genreNameCount;
+        this.yearOrderBase = genreRowBase + 4 * genrePostings;
+        this.ratingOrderBase = yearOrderBase + 4 * count;
+        this.titleOrderBase = ratingOrderBase + 4 * count;
+
+        long heapBytes = channel.size() - columnBytes;
+        this.heap = new MappedByteBuffer[(int) ((heapBytes + CHUNK_BYTES - 1) / CHUNK_BYTES)];
+        for (int i = 0; i < heap.length; i++) {
+            long start = i * CHUNK_BYTES;
+            heap[i] = channel.map(FileChannel.MapMode.READ_ONLY, columnBytes + start,
+                    Math.min(CHUNK_BYTES, heapBytes - start));
+        }
+
+        this.genres = new String[genreCount];
+        for (int i = 0; i < genreCount; i++) {
+            genres[i] = string(i);
+        }
+        this.genreNames = genreNames(Arrays.asList(genres));
+        if (genreNames.size() != genreNameCount) throw new IOException("Corrupt genre table");
+        this.genreCodes = new HashMap<>();
+        for (int i = 0; i < genreNames.size(); i++) {
+            genreCodes.put(key(genreNames.get(i)), i);
+        }
+        this.directors = new String[directorCount];
+        this.directorCodes = new HashMap<>();
+        for (int i = 0; i < directorCount; i++) {
+            directors[i] = string(genreCount + i);
+            directorCodes.put(key(directors[i]), i);
+        }
+    }
+
+    public static ColumnarCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ColumnarCatalog(channel);
+        }
+    }
+
+    public static void write(Path file, Collection<Movie> movies) throws IOException {
+        List<Movie> rows = new ArrayList<>(movies);
+        rows.sort(Comparator.comparingInt(Movie::getId));
+        for (int i = 1; i < rows.size(); i++) {
+            if (rows.get(i).getId() == rows.get(i - 1).getId()) {
+                throw new IllegalArgumentException("Duplicate movie id " + rows.get(i).getId());
+            }
+        }
+        int count = rows.size();
+        List<String> genreDictionary = new ArrayList<>();
+        List<String> directorDictionary = new ArrayList<>();
+        int[] genreColumn = encode(rows, true, genreDictionary);
+        int[] directorColumn = encode(rows, false, directorDictionary);
+        List<String> genreNames = genreNames(genreDictionary);
+        Map<String, Integer> nameCodes = new HashMap<>();
+        for (int i = 0; i < genreNames.size(); i++) {
+            nameCodes.put(key(genreNames.get(i)), i);
+        }
+        int[][] entryNames = new int[genreDictionary.size()][];
+        for (int code = 0; code < entryNames.length; code++) {
+            List<String> parts = Movie.splitGenres(genreDictionary.get(code));
+            entryNames[code] = new int[parts.size()];
+            for (int i = 0; i < parts.size(); i++) {
+                entryNames[code][i] = nameCodes.get(key(parts.get(i)));
+            }
+        }
+        int[][] directorPostings = postings(directorDictionary.size(), count, row -> new int[] {directorColumn[row]});
+        int[][] genrePostings = postings(genreNames.size(), count, row -> entryNames[genreColumn[row]]);
+        int genrePostingCount = 0;
+        for (int[] posting : genrePostings) {
+            genrePostingCount += posting.length;
+        }
+        byte[][] normalizedTitles = new byte[count][];
+        for (int row = 0; row < count; row++) {
+            normalizedTitles[row] = utf8(TitleIndex.normalize(rows.get(row).getTitle()));
+        }
+        Integer[] yearOrder = order(count, Comparator.comparingInt(row -> rows.get(row).getYear()));
+        Integer[] ratingOrder = order(count,
+                (a, b) -> Double.compare(rows.get(b).getRating(), rows.get(a).getRating()));
+        Integer[] titleOrder = order(count,
+                (a, b) -> Arrays.compareUnsigned(normalizedTitles[a], normalizedTitles[b]));
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 20))) {
+            out.writeLong(MAGIC);
+            out.writeInt(count);
+            out.writeInt(genreDictionary.size());
+            out.writeInt(directorDictionary.size());
+            out.writeInt(genreNames.size());
+            out.writeInt(genrePostingCount);
+            out.writeInt(0);
+            for (Movie movie : rows) out.writeInt(movie.getId());
+            for (Movie movie : rows) out.writeInt(movie.getYear());
+            for (Movie movie : rows) out.writeInt(movie.getDuration());
+            for (int code : genreColumn) out.writeInt(code);
+            for (int code : directorColumn) out.writeInt(code);
+            for (Movie movie : rows) out.writeDouble(movie.getRating());
+
+            long end = 0;
+            for (String value : genreDictionary) out.writeLong(end += utf8(value).length);
+            for (String value : directorDictionary) out.writeLong(end += utf8(value).length);
+            for (int row = 0; row < count; row++) {
+                out.writeLong(end += utf8(rows.get(row).getTitle()).length);
+                out.writeLong(end += utf8(rows.get(row).getDescription()).length);
+                out.writeLong(end += normalizedTitles[row].length);
+            }
+            writePostings(out, directorPostings);
+            writePostings(out, genrePostings);
+            for (int row : yearOrder) out.writeInt(row);
+            for (int row : ratingOrder) out.writeInt(row);
+            for (int row : titleOrder) out.writeInt(row);
+
+            for (String value : genreDictionary) out.write(utf8(value));
+            for (String value : directorDictionary) out.write(utf8(value));
+            for (int row = 0; row < count; row++) {
+                out.write(utf8(rows.get(row).getTitle()));
+                out.write(utf8(rows.get(row).getDescription()));
+                out.write(normalizedTitles[row]);
+            }
+        }
+    }
+
+    private interface RowCodes {
+        int[] codes(int row);
+    }
+
+    /** Rows of every code, ascending, built with one counting pass. */
+    private static int[][] postings(int codes, int count, RowCodes rowCodes) {
+        int[] sizes = new int[codes];
+        for (int row = 0; row < count; row++) {
+            for (int code : rowCodes.codes(row)) sizes[code]++;
+        }
+        int[][] postings = new int[codes][];
+        for (int code = 0; code < codes; code++) {
+            postings[code] = new int[sizes[code]];
+        }
+        int[] fill = new int[codes];
+        for (int row = 0; row < count; row++) {
+            for (int code : rowCodes.codes(row)) postings[code][fill[code]++] = row;
+        }
+        return postings;
+    }
+
+    private static void writePostings(DataOutputStream out, int[][] postings) throws IOException {
+        int end = 0;
+        for (int[] posting : postings) out.writeInt(end += posting.length);
+        for (int[] posting : postings) {
+            for (int row : posting) out.writeInt(row);
+        }
+    }
+
+    private static Integer[] order(int count, Comparator<Integer> comparator) {
+        Integer[] rows = new Integer[count];
+        for (int row = 0; row < count; row++) {
+            rows[row] = row;
+        }
+        Arrays.sort(rows, comparator);
+        return rows;
+    }
+
+    /** Distinct genre names in order of first appearance across the (possibly joined) entries. */
+    private static List<String> genreNames(List<String> entries) {
+        Set<String> seen = new HashSet<>();
+        List<String> names = new ArrayList<>();
+        for (String entry : entries) {
+            for (String genre : Movie.splitGenres(entry)) {
+                if (seen.add(key(genre))) {
+                    names.add(genre);
+                }
+            }
+        }
+        return names;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int idAt(int row) {
+        return columns.getInt(HEADER_BYTES + 4 * row);
+    }
+
+    public int yearAt(int row) {
+        return columns.getInt(yearBase + 4 * row);
+    }
+
+    public int durationAt(int row) {
+        return columns.getInt(durationBase + 4 * row);
+    }
+
+    public double ratingAt(int row) {
+        return columns.getDouble(ratingBase + 8 * row);
+    }
+
+    public String genreAt(int row) {
+        return genres[columns.getInt(genreBase + 4 * row)];
+    }
+
+    public String directorAt(int row) {
+        return directors[columns.getInt(directorBase + 4 * row)];
+    }
+
+    public String titleAt(int row) {
+        return string(rowString(row, 0));
+    }
+
+    public String descriptionAt(int row) {
+        return string(rowString(row, 1));
+    }
+
+    private long rowString(int row, int field) {
+        return genres.length + directors.length + (long) STRINGS_PER_ROW * row + field;
+    }
+
+    public Movie movieAt(int row) {
+        int genre = columns.getInt(genreBase + 4 * row);
+        int director = columns.getInt(directorBase + 4 * row);
+        Movie movie = new Movie(idAt(row), titleAt(row), genres[genre], yearAt(row), ratingAt(row),
+                directors[director], descriptionAt(row), durationAt(row));
+        if (genreDictionary != null) {
+            movie.setCodes(genreDictionary, genreTableCodes[genre], directorDictionary, directorTableCodes[director]);
+        }
+        return movie;
+    }
+
+    /**
+     * Codes every genre and director table entry in a database's dictionaries once, so the
+     * movies built from rows come out already coded for that database.
+     */
+    void encodeWith(CodeDictionary genreDictionary, CodeDictionary directorDictionary) {
+        int[][] genreTable = new int[genres.length][];
+        for (int i = 0; i < genres.length; i++) {
+            Movie movie = new Movie();
+            movie.setGenre(genres[i]);
+            movie.encode(genreDictionary, directorDictionary);
+            genreTable[i] = movie.genreCodes();
+        }
+        int[] directorTable = new int[directors.length];
+        for (int i = 0; i < directors.length; i++) {
+            directorTable[i] = directorDictionary.encode(directors[i]);
+        }
+        this.genreTableCodes = genreTable;
+        this.directorTableCodes = directorTable;
+        this.directorDictionary = directorDictionary;
+        this.genreDictionary = genreDictionary;
+    }
+
+    /** Row holding {@code id}, or -1. */
+    public int rowOf(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = idAt(mid);
+            if (midId < id) low = mid + 1;
+            else if (midId > id) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public Movie getMovie(int id) {
+        int row = rowOf(id);
+        return row < 0 ? null : movieAt(row);
+    }
+
+    public int getMinId() {
+        return count == 0 ? 0 : idAt(0);
+    }
+
+    public int getMaxId() {
+        return count == 0 ? 0 : idAt(count - 1);
+    }
+
+    /** Distinct genres; movies with several genres contribute each of them. */
+    public List<String> getGenres() {
+        return new ArrayList<>(genreNames);
+    }
+
+    public List<Movie> getAllMovies() {
+        List<Movie> result = new ArrayList<>(count);
+        for (int row = 0; row < count; row++) {
+            result.add(movieAt(row));
+        }
+        return result;
+    }
+
+    public List<Movie> findByGenre(String genre) {
+        Integer code = genreCodes.get(key(genre));
+        return code == null ? new ArrayList<>() : posting(genreEndBase, genreRowBase, code);
+    }
+
+    public List<Movie> findByDirector(String director) {
+        Integer code = directorCodes.get(key(director));
+        return code == null ? new ArrayList<>() : posting(directorEndBase, directorRowBase, code);
+    }
+
+    public List<Movie> findByYearRange(int startYear, int endYear) {
+        // First position in year order whose year is at least startYear, then walk forward.
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (yearAt(rowAt(yearOrderBase, mid)) < startYear) low = mid + 1;
+            else high = mid;
+        }
+        List<Movie> result = new ArrayList<>();
+        for (int i = low; i < count; i++) {
+            int row = rowAt(yearOrderBase, i);
+            if (yearAt(row) > endYear) break;
+            result.add(movieAt(row));
+        }
+        return result;
+    }
+
+    /** Movies rated within the range, highest first. */
+    public List<Movie> findByRatingRange(double minRating, double maxRating) {
+        // Rating order is descending: skip past everything above maxRating.
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(ratingAt(rowAt(ratingOrderBase, mid)), maxRating) > 0) low = mid + 1;
+            else high = mid;
+        }
+        List<Movie> result = new ArrayList<>();
+        for (int i = low; i < count; i++) {
+            int row = rowAt(ratingOrderBase, i);
+            if (Double.compare(ratingAt(row), minRating) < 0) break;
+            result.add(movieAt(row));
+        }
+        return result;
+    }
+
+    /**
+     * The first {@code limit} movies in rating order, highest or lowest first, plus any
+     * further movies tied with the last one, so a caller re-ranking ties sees all of them.
+     */
+    public List<Movie> getByRating(int limit, boolean highestFirst) {
+        List<Movie> result = new ArrayList<>(Math.min(limit, count));
+        for (int i = 0; i < count; i++) {
+            int row = rowAt(ratingOrderBase, highestFirst ? i : count - 1 - i);
+            if (result.size() >= limit
+                    && Double.compare(ratingAt(row), result.get(result.size() - 1).getRating()) != 0) break;
+            result.add(movieAt(row));
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} movies rated at least {@code minRating} that pass {@code filter},
+     * highest first. Walks the rating order from the top and stops once it has enough.
+     */
+    public List<Movie> findTopRated(int limit, double minRating, Predicate<Movie> filter) {
+        List<Movie> result = new ArrayList<>();
+        for (int i = 0; i < count && result.size() < limit; i++) {
+            int row = rowAt(ratingOrderBase, i);
+            if (Double.compare(ratingAt(row), minRating) < 0) break;
+            Movie movie = movieAt(row);
+            if (filter.test(movie)) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Case-insensitive substring match on titles, like {@link TitleIndex#search}. Compares
+     * the query's UTF-8 bytes against the stored normalized titles without decoding them.
+     */
+    public List<Movie> searchByTitle(String query) {
+        byte[] needle = utf8(TitleIndex.normalize(query));
+        List<Movie> result = new ArrayList<>();
+        for (int row = 0; row < count; row++) {
+            if (contains(rowString(row, 2), needle)) {
+                result.add(movieAt(row));
+            }
+        }
+        return result;
+    }
+
+    /** Up to {@code limit} titles starting with {@code prefix}, ignoring case, in title order. */
+    public List<Movie> searchByTitlePrefix(String prefix, int limit) {
+        byte[] start = utf8(TitleIndex.normalize(prefix));
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(rowString(rowAt(titleOrderBase, mid), 2), start) < 0) low = mid + 1;
+            else high = mid;
+        }
+        List<Movie> result = new ArrayList<>();
+        for (int i = low; i < count && result.size() < limit; i++) {
+            int row = rowAt(titleOrderBase, i);
+            if (!startsWith(rowString(row, 2), start)) break;
+            result.add(movieAt(row));
+        }
+        return result;
+    }
+
+    /** The {@code limit} highest rated movies, highest first. */
+    public List<Movie> getTopRated(int limit) {
+        int size = Math.min(Math.max(0, limit), count);
+        List<Movie> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(movieAt(rowAt(ratingOrderBase, i)));
+        }
+        return result;
+    }
+
+    private int rowAt(int base, int position) {
+        return columns.getInt(base + 4 * position);
+    }
+
+    private List<Movie> posting(int endBase, int rowBase, int code) {
+        int from = code == 0 ? 0 : columns.getInt(endBase + 4 * (code - 1));
+        int to = columns.getInt(endBase + 4 * code);
+        List<Movie> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(movieAt(rowAt(rowBase, i)));
+        }
+        return result;
+    }
+
+    private long stringStart(long index) {
+        return index == 0 ? 0 : columns.getLong(offsetBase + (int) (8 * (index - 1)));
+    }
+
+    private long stringEnd(long index) {
+        return columns.getLong(offsetBase + (int) (8 * index));
+    }
+
+    private byte heapByte(long position) {
+        return heap[(int) (position / CHUNK_BYTES)].get((int) (position % CHUNK_BYTES));
+    }
+
+    private boolean startsWith(long index, byte[] prefix) {
+        long start = stringStart(index);
+        if (stringEnd(index) - start < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (heapByte(start + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    /** Unsigned byte order, which for UTF-8 is code point order. */
+    private int compare(long index, byte[] other) {
+        long start = stringStart(index);
+        long length = stringEnd(index) - start;
+        for (int i = 0; i < length && i < other.length; i++) {
+            int difference = (heapByte(start + i) & 0xFF) - (other[i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return Long.compare(length, other.length);
+    }
+
+    private boolean contains(long index, byte[] needle) {
+        long start = stringStart(index);
+        long last = stringEnd(index) - needle.length;
+        for (long at = start; at <= last; at++) {
+            int i = 0;
+            while (i < needle.length && heapByte(at + i) == needle[i]) i++;
+            if (i == needle.length) return true;
+        }
+        return false;
+    }
+
+    private String string(long index) {
+        long end = stringEnd(index);
+        long start = stringStart(index);
+        byte[] bytes = new byte[(int) (end - start)];
+        int copied = 0;
+        while (copied < bytes.length) {
+            long position = start + copied;
+            ByteBuffer chunk = heap[(int) (position / CHUNK_BYTES)].duplicate();
+            chunk.position((int) (position % CHUNK_BYTES));
+            int length = Math.min(bytes.length - copied, chunk.remaining());
+            chunk.get(bytes, copied, length);
+            copied += length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int[] encode(List<Movie> rows, boolean genre, List<String> dictionary) {
+        Map<String, Integer> codes = new HashMap<>();
+        int[] column = new int[rows.size()];
+        for (int i = 0; i < column.length; i++) {
+            String value = genre ? rows.get(i).joinedGenres() : rows.get(i).getDirector();
+            value = value == null ? "" : value;
+            Integer code = codes.get(key(value));
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(key(value), code);
+                dictionary.add(value);
+            }
+            column[i] = code;
+        }
+        return column;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
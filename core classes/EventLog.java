@@ -0,0 +1,269 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented event log. Each record is {@code [int length][int crc32][payload]}.
+ * A single writer thread drains every pending append, writes them with one gathering
+ * write and forces the file once, so concurrent writers share one fsync (group commit).
+ * Segments roll over at {@link #MAX_SEGMENT_BYTES} or on request, and are replayed
+ * through a read-only memory mapping.
+ */
+public class EventLog implements Closeable {
+    public static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 4096;
+    private static final Pending STOP = new Pending(null, null);
+
+    public interface RecordHandler {
+        void handle(ByteBuffer payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private FileChannel channel;
+    private long segment;
+    private volatile boolean closed;
+
+    public EventLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<Long> segments = listSegments(directory);
+        this.segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        this.channel = openSegment(segment);
+        truncateTornTail();
+        this.queue = new LinkedBlockingQueue<>();
+        this.writer = new Thread(this::writeLoop, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /** Queues a non-empty record; the future completes once it has been forced to disk. */
+    public CompletableFuture<Void> append(ByteBuffer payload) {
+        if (closed) throw new IllegalStateException("Event log is closed");
+        if (!payload.hasRemaining()) throw new IllegalArgumentException("Empty record");
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.remaining());
+        record.putInt(payload.remaining()).putInt(crc(payload)).put(payload.duplicate()).flip();
+        Pending pending = new Pending(record, null);
+        queue.add(pending);
+        return pending.done;
+    }
+
+    /** Closes the current segment after everything queued so far and returns the new segment number. */
+    public long roll() throws IOException {
+        Pending pending = new Pending(null, this::startNextSegment);
+        queue.add(pending);
+        try {
+            pending.done.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        return currentSegment();
+    }
+
+    public synchronized long currentSegment() {
+        return segment;
+    }
+
+    /** Deletes every segment numbered below {@code segment}. */
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (long number : listSegments(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /** Feeds every intact record of segments numbered {@code fromSegment} and up to the handler, in order. */
+    public static long replay(Path directory, long fromSegment, RecordHandler handler) throws IOException {
+        long records = 0;
+        for (long number : listSegments(directory)) {
+            if (number < fromSegment) continue;
+            try (FileChannel in = FileChannel.open(segmentPath(directory, number), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                while (true) {
+                    ByteBuffer payload = nextRecord(buffer);
+                    if (payload == null) break;
+                    handler.handle(payload);
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    public static boolean hasSegments(Path directory) throws IOException {
+        return !listSegments(directory).isEmpty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        queue.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            List<Pending> records = new ArrayList<>();
+            for (Pending pending : batch) {
+                if (pending == STOP) {
+                    stopping = true;
+                } else if (pending.record != null) {
+                    records.add(pending);
+                } else {
+                    commit(records);
+                    records.clear();
+                    run(pending);
+                }
+            }
+            commit(records);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Pending> records) {
+        if (records.isEmpty()) return;
+        try {
+            write(records);
+            for (Pending pending : records) {
+                pending.done.complete(null);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Pending pending : records) {
+                pending.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void run(Pending pending) {
+        try {
+            pending.action.call();
+            pending.done.complete(null);
+        } catch (Exception e) {
+            pending.done.completeExceptionally(e);
+        }
+    }
+
+    private synchronized void write(List<Pending> records) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[records.size()];
+        long bytes = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = records.get(i).record;
+            bytes += buffers[i].remaining();
+        }
+        if (channel.size() > 0 && channel.size() + bytes > MAX_SEGMENT_BYTES) {
+            startNextSegment();
+        }
+        while (bytes > 0) {
+            bytes -= channel.write(buffers);
+        }
+        channel.force(false);
+    }
+
+    private synchronized Void startNextSegment() throws IOException {
+        channel.force(false);
+        channel.close();
+        segment++;
+        channel = openSegment(segment);
+        return null;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        opened.position(opened.size());
+        return opened;
+    }
+
+    /** Drops a partially written last record left behind by a crash. */
+    private void truncateTornTail() throws IOException {
+        if (channel.size() == 0) return;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        while (nextRecord(buffer) != null) {
+            // advance to the end of the last intact record
+        }
+        if (buffer.position() < channel.size()) {
+            channel.truncate(buffer.position());
+        }
+        channel.position(channel.size());
+    }
+
+    private static ByteBuffer nextRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) return null;
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        int crc = buffer.getInt(start + 4);
+        // Empty records are never written, and an all-zero tail would otherwise pass the CRC check.
+        if (length < 1 || length > buffer.remaining() - HEADER_BYTES) return null;
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + HEADER_BYTES).limit(start + HEADER_BYTES + length);
+        payload = payload.slice();
+        if (crc(payload) != crc) return null;
+        buffer.position(start + HEADER_BYTES + length);
+        return payload;
+    }
+
+    private static int crc(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return Collections.emptyList();
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> numbers = new ArrayList<>();
+            files.map(path -> path.getFileName().toString())
+                 .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                 .forEach(name -> numbers.add(Long.parseLong(
+                         name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+            Collections.sort(numbers);
+            return numbers;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class Pending {
+        private final ByteBuffer record;
+        private final Callable<Void> action;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(ByteBuffer record, Callable<Void> action) {
+            this.record = record;
+            this.action = action;
+        }
+    }
+}
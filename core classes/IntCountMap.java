@@ -0,0 +1,101 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from int keys to int counts (linear probing, no boxing), for
+ * tallies such as how many movies two users have in common. Zero is used as the
+ * empty-slot marker and its count is tracked separately.
+ */
+public class IntCountMap {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+    private int zeroCount;
+
+    public IntCountMap() {
+        this.keys = EMPTY;
+        this.counts = EMPTY;
+    }
+
+    /** Adds one to the count of {@code key} and returns the new count. */
+    public int increment(int key) {
+        return add(key, 1);
+    }
+
+    /** Adds {@code delta} (non-zero) to the count of {@code key} and returns the new count. */
+    public int add(int key, int delta) {
+        if (key == 0) {
+            if (zeroCount == 0) size++;
+            return zeroCount += delta;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            rehash(capacityFor(size + 1));
+        }
+        int mask = keys.length - 1;
+        int pos = mix(key) & mask;
+        while (keys[pos] != 0) {
+            if (keys[pos] == key) return counts[pos] += delta;
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        counts[pos] = delta;
+        size++;
+        return delta;
+    }
+
+    /** Count of {@code key}, or 0 if it was never incremented. */
+    public int get(int key) {
+        if (key == 0) return zeroCount;
+        if (keys.length == 0) return 0;
+        int mask = keys.length - 1;
+        int pos = mix(key) & mask;
+        while (keys[pos] != 0) {
+            if (keys[pos] == key) return counts[pos];
+            pos = (pos + 1) & mask;
+        }
+        return 0;
+    }
+
+    /** Number of distinct keys. */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(counts, 0);
+        size = 0;
+        zeroCount = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int pos = mix(oldKeys[i]) & mask;
+            while (keys[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = oldKeys[i];
+            counts[pos] = oldCounts[i];
+        }
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = 4;
+        while (capacity * 3 < size * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
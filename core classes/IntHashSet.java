@@ -0,0 +1,127 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Open-addressing set of primitive ints (linear probing, no boxing).
+ * Zero is used as the empty-slot marker and tracked separately.
+ */
+public class IntHashSet {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] slots;
+    private int size;
+    private boolean containsZero;
+
+    public IntHashSet() {
+        this.slots = EMPTY;
+    }
+
+    public IntHashSet(int expectedSize) {
+        this.slots = expectedSize <= 0 ? EMPTY : new int[capacityFor(expectedSize)];
+    }
+
+    public boolean add(int value) {
+        if (value == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if ((size + 1) * 4 > slots.length * 3) {
+            rehash(capacityFor(size + 1));
+        }
+        int mask = slots.length - 1;
+        int pos = mix(value) & mask;
+        while (slots[pos] != 0) {
+            if (slots[pos] == value) return false;
+            pos = (pos + 1) & mask;
+        }
+        slots[pos] = value;
+        size++;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) return containsZero;
+        if (slots.length == 0) return false;
+        int mask = slots.length - 1;
+        int pos = mix(value) & mask;
+        while (slots[pos] != 0) {
+            if (slots[pos] == value) return true;
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+        containsZero = false;
+    }
+
+    public void forEach(IntConsumer action) {
+        if (containsZero) action.accept(0);
+        for (int value : slots) {
+            if (value != 0) action.accept(value);
+        }
+    }
+
+    /** Returns the members in ascending order. */
+    public int[] toSortedArray() {
+        int[] result = new int[size];
+        int i = 0;
+        if (containsZero) result[i++] = 0;
+        for (int value : slots) {
+            if (value != 0) result[i++] = value;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** True if adding one more non-zero value would rehash the table. */
+    boolean isFull() {
+        return (size + 1) * 4 > slots.length * 3;
+    }
+
+    /** A copy with room for at least {@code expectedSize} members before it rehashes. */
+    IntHashSet copy(int expectedSize) {
+        IntHashSet copy = new IntHashSet(Math.max(expectedSize, size));
+        forEach(copy::add);
+        return copy;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : old) {
+            if (value == 0) continue;
+            int pos = mix(value) & mask;
+            while (slots[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+            slots[pos] = value;
+        }
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = 4;
+        while (capacity * 3 < size * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative longs with log-linear buckets, in the style of
+ * HdrHistogram: every power of two is split into {@code 2^SUB_BUCKET_BITS} equal
+ * buckets, so any recorded value is reported within about 3% using a fixed array.
+ * Recording is two atomic increments and never allocates; quantiles are computed
+ * when the histogram is read.
+ */
+public class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /** Upper bound of the bucket holding the {@code quantile} (0..1) value, or 0 when empty. */
+    public long getQuantile(double quantile) {
+        long[] snapshot = snapshot();
+        return quantile(snapshot, total(snapshot), quantile);
+    }
+
+    /**
+     * Appends the histogram as a Prometheus summary: quantile samples plus
+     * {@code _sum} and {@code _count}, with values multiplied by {@code scale}.
+     */
+    public void writePrometheus(StringBuilder out, String name, String labels, double scale, double... quantiles) {
+        long[] snapshot = snapshot();
+        long count = total(snapshot);
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (double quantile : quantiles) {
+            out.append(name).append("{").append(prefix).append("quantile=\"").append(quantile).append("\"} ")
+               .append(quantile(snapshot, count, quantile) * scale).append('\n');
+        }
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(suffix).append(' ').append(getSum() * scale).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(count).append('\n');
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int bucket = exponent - SUB_BUCKET_BITS + 1;
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return bucket * SUB_BUCKETS + sub;
+    }
+
+    static long highestValueAt(int index) {
+        int bucket = index >>> SUB_BUCKET_BITS;
+        if (bucket == 0) return index;
+        long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << (bucket - 1);
+        long width = 1L << (bucket - 1);
+        return lowest + (width - 1) < 0 ? Long.MAX_VALUE : lowest + (width - 1);
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    private static long total(long[] snapshot) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static long quantile(long[] snapshot, long count, double quantile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return highestValueAt(i);
+        }
+        return highestValueAt(snapshot.length - 1);
+    }
+}
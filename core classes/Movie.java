@@ -1,10 +1,33 @@
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A catalog entry. A movie may carry several genres, given as one {@code "A|B"} string or
+ * a list; {@link #getGenre()} is the first. Once a {@link MovieDatabase} holds the movie,
+ * its genres and director are also held as codes of that database's dictionaries, so
+ * indexes and similarity checks compare ints instead of strings. Genre codes below 64 are
+ * additionally kept as a bitmask.
+ */
 public class Movie {
+    public static final String GENRE_SEPARATOR = "|";
+    private static final Pattern GENRE_SPLIT = Pattern.compile(Pattern.quote(GENRE_SEPARATOR));
+    private static final int[] NO_CODES = new int[0];
+
     private int id;
     private String title;
+    /** Lower-cased title, computed on first use and shared with the {@link TitleIndex}. */
+    private String normalizedTitle;
     private String genre;
+    private List<String> genres = Collections.emptyList();
+    /** Dictionary the genre codes belong to; null until a database encodes the movie. */
+    private CodeDictionary genreDictionary;
+    private CodeDictionary directorDictionary;
+    private int[] genreCodes = NO_CODES;
+    private long genreMask;
     private int year;
     private double rating;
     private String director;
+    private int directorCode = -1;
     private String description;
     private int duration;
 
@@ -12,10 +35,10 @@ public class Movie {
                  String director, String description, int duration) {
         this.id = id;
         this.title = title;
-        this.genre = genre;
+        setGenre(genre);
         this.year = year;
         this.rating = rating;
-        this.director = director;
+        setDirector(director);
         this.description = description;
         this.duration = duration;
     }
@@ -26,10 +49,47 @@ public class Movie {
     public void setId(int id) { this.id = id; }
 
     public String getTitle() { return title; }
-    public void setTitle(String title) { this.title = title; }
+    public void setTitle(String title) {
+        this.title = title;
+        this.normalizedTitle = null;
+    }
+
+    String normalizedTitle() {
+        String normalized = normalizedTitle;
+        if (normalized == null) {
+            normalized = TitleIndex.normalize(title);
+            normalizedTitle = normalized;
+        }
+        return normalized;
+    }
 
     public String getGenre() { return genre; }
-    public void setGenre(String genre) { this.genre = genre; }
+
+    /** Sets the genres from one genre or several joined by {@link #GENRE_SEPARATOR}. */
+    public void setGenre(String genre) {
+        List<String> parts = splitGenres(genre);
+        setGenres(parts);
+        if (parts.isEmpty()) {
+            this.genre = genre;
+        }
+    }
+
+    public List<String> getGenres() { return genres; }
+
+    public void setGenres(List<String> genres) {
+        List<String> distinct = new ArrayList<>(genres.size());
+        Set<String> keys = new HashSet<>();
+        for (String value : genres) {
+            if (keys.add(value == null ? "" : value.toLowerCase(Locale.ROOT))) {
+                distinct.add(value);
+            }
+        }
+        this.genres = Collections.unmodifiableList(distinct);
+        this.genre = distinct.isEmpty() ? null : distinct.get(0);
+        if (genreDictionary != null) {
+            encodeGenres(genreDictionary);
+        }
+    }
 
     public int getYear() { return year; }
     public void setYear(int year) { this.year = year; }
@@ -38,7 +98,13 @@ public class Movie {
     public void setRating(double rating) { this.rating = rating; }
 
     public String getDirector() { return director; }
-    public void setDirector(String director) { this.director = director; }
+
+    public void setDirector(String director) {
+        this.director = director;
+        if (directorDictionary != null) {
+            this.directorCode = directorDictionary.encode(director);
+        }
+    }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
@@ -52,12 +118,122 @@ public class Movie {
         return hours + "h " + minutes + "m";
     }
 
+    /** Genres joined by {@link #GENRE_SEPARATOR}; a single genre (or none) is returned as set. */
+    String joinedGenres() {
+        return genres.size() <= 1 ? genre : String.join(GENRE_SEPARATOR, genres);
+    }
+
+    /**
+     * Codes the genres and director in a database's dictionaries. Returns false, leaving
+     * the codes alone, when another database's dictionaries already did.
+     */
+    boolean encode(CodeDictionary genres, CodeDictionary directors) {
+        if (genreDictionary == genres && directorDictionary == directors) return true;
+        if (genreDictionary != null) return false;
+        encodeGenres(genres);
+        this.directorDictionary = directors;
+        this.directorCode = directors.encode(director);
+        return true;
+    }
+
+    /** Same values, not yet coded by any database. */
+    Movie copy() {
+        Movie copy = new Movie();
+        copy.id = id;
+        copy.title = title;
+        copy.normalizedTitle = normalizedTitle;
+        copy.genre = genre;
+        copy.genres = genres;
+        copy.year = year;
+        copy.rating = rating;
+        copy.director = director;
+        copy.description = description;
+        copy.duration = duration;
+        return copy;
+    }
+
+    /** Sets codes already looked up in the dictionaries; {@code genreCodes} follows {@link #getGenres()}. */
+    void setCodes(CodeDictionary genres, int[] genreCodes, CodeDictionary directors, int directorCode) {
+        this.genreDictionary = genres;
+        this.genreCodes = genreCodes;
+        this.genreMask = mask(genreCodes);
+        this.directorDictionary = directors;
+        this.directorCode = directorCode;
+    }
+
+    private void encodeGenres(CodeDictionary dictionary) {
+        int[] codes = new int[genres.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = dictionary.encode(genres.get(i));
+        }
+        this.genreDictionary = dictionary;
+        this.genreCodes = codes;
+        this.genreMask = mask(codes);
+    }
+
+    private static long mask(int[] codes) {
+        long mask = 0L;
+        for (int code : codes) {
+            if (code < Long.SIZE) {
+                mask |= 1L << code;
+            }
+        }
+        return mask;
+    }
+
+    /** Codes of this movie's genres in its database's dictionary, primary first; callers must not modify it. */
+    int[] genreCodes() {
+        return genreCodes;
+    }
+
+    int directorCode() {
+        return directorCode;
+    }
+
+    boolean hasGenre(int code) {
+        if (code < 0) return false;
+        if (code < Long.SIZE) return (genreMask & (1L << code)) != 0;
+        return indexOf(genreCodes, genreCodes.length, code) >= 0;
+    }
+
+    /** Genres both movies have; both must be coded by the same database. */
+    int sharedGenres(Movie other) {
+        int shared = Long.bitCount(genreMask & other.genreMask);
+        if (genreCodes.length > Long.bitCount(genreMask)) {
+            for (int code : genreCodes) {
+                if (code >= Long.SIZE && other.hasGenre(code)) {
+                    shared++;
+                }
+            }
+        }
+        return shared;
+    }
+
+    static List<String> splitGenres(String genre) {
+        List<String> parts = new ArrayList<>();
+        if (genre != null) {
+            for (String part : GENRE_SPLIT.split(genre)) {
+                if (!part.trim().isEmpty()) {
+                    parts.add(part.trim());
+                }
+            }
+        }
+        return parts;
+    }
+
+    private static int indexOf(int[] codes, int count, int code) {
+        for (int i = 0; i < count; i++) {
+            if (codes[i] == code) return i;
+        }
+        return -1;
+    }
+
     @Override
     public String toString() {
         return "Movie{" +
                 "id=" + id +
                 ", title='" + title + '\'' +
-                ", genre='" + genre + '\'' +
+                ", genre='" + joinedGenres() + '\'' +
                 ", year=" + year +
                 ", rating=" + rating +
                 ", director='" + director + '\'' +
@@ -0,0 +1,230 @@
+import static spark.Spark.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletResponse;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * JSON REST routes backed directly by the in-memory databases and recommendation engine.
+ * Responses are streamed through {@link JsonWriter} onto the servlet output stream.
+ */
+public class MovieApi {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final MovieDatabase movieDatabase;
+    private final UserDatabase userDatabase;
+    private final RecommendationEngine recommendationEngine;
+    private RatingIngestor ratingIngestor;
+
+    public MovieApi(MovieDatabase movieDatabase, UserDatabase userDatabase,
+                    RecommendationEngine recommendationEngine) {
+        this.movieDatabase = movieDatabase;
+        this.userDatabase = userDatabase;
+        this.recommendationEngine = recommendationEngine;
+    }
+
+    /** Queue posted ratings on {@code ingestor} and answer 202 instead of applying them inline. */
+    public void setRatingIngestor(RatingIngestor ingestor) {
+        this.ratingIngestor = ingestor;
+    }
+
+    public void register() {
+        get("/api/movies", this::listMovies);
+        get("/api/movies/autocomplete", this::autocomplete);
+        get("/api/movies/trending", this::trending);
+        get("/api/movies/:id", this::movieDetails);
+        get("/api/movies/:id/similar", this::similarMovies);
+        get("/api/users/:id/recommendations", this::recommendations);
+        post("/api/ratings", this::rateMovie);
+
+        exception(NumberFormatException.class, (e, req, res) -> error(res, 400, "Invalid number: " + e.getMessage()));
+        exception(IllegalArgumentException.class, (e, req, res) -> error(res, 400, e.getMessage()));
+    }
+
+    private Object listMovies(Request req, Response res) throws IOException {
+        MovieQuery query = movieDatabase.query();
+        String genre = req.queryParams("genre");
+        if (notEmpty(genre)) query.genre(genre);
+        String director = req.queryParams("director");
+        if (notEmpty(director)) query.director(director);
+        String search = req.queryParams("search");
+        if (notEmpty(search)) query.titleContains(search);
+        if (notEmpty(req.queryParams("year"))) {
+            query.year(Integer.parseInt(req.queryParams("year")));
+        } else if (notEmpty(req.queryParams("yearFrom")) || notEmpty(req.queryParams("yearTo"))) {
+            query.yearBetween(intParam(req, "yearFrom", Integer.MIN_VALUE), intParam(req, "yearTo", Integer.MAX_VALUE));
+        }
+        String minRating = req.queryParams("minRating");
+        if (notEmpty(minRating)) {
+            // The movies page sends its rating filter as "8+".
+            query.minRating(Double.parseDouble(minRating.replace("+", "")));
+        }
+        if (notEmpty(req.queryParams("maxRating"))) {
+            query.maxRating(Double.parseDouble(req.queryParams("maxRating")));
+        }
+        if (notEmpty(req.queryParams("minDuration")) || notEmpty(req.queryParams("maxDuration"))) {
+            query.durationBetween(intParam(req, "minDuration", Integer.MIN_VALUE),
+                    intParam(req, "maxDuration", Integer.MAX_VALUE));
+        }
+        String sort = req.queryParams("sort");
+        if (notEmpty(sort)) {
+            MovieQuery.SortField field = MovieQuery.SortField.valueOf(sort.toUpperCase(Locale.ROOT));
+            query.sortBy(field, !"asc".equalsIgnoreCase(req.queryParams("order")));
+        }
+        int page = intParam(req, "page", 1);
+        int pageSize = Math.min(intParam(req, "pageSize", 20), MAX_PAGE_SIZE);
+        MovieQuery.Result result = query.page(page - 1, pageSize).execute();
+
+        return writeJson(res, 200, json -> {
+            json.beginObject().name("movies");
+            writeMovies(json, result.getMovies());
+            json.name("total").value(result.getTotal())
+                .name("totalPages").value(result.getTotalPages())
+                .name("currentPage").value(page)
+                .endObject();
+        });
+    }
+
+    private Object autocomplete(Request req, Response res) throws IOException {
+        String prefix = req.queryParams("q");
+        List<Movie> movies = movieDatabase.searchByTitlePrefix(prefix == null ? "" : prefix,
+                Math.min(intParam(req, "limit", 10), MAX_PAGE_SIZE));
+        return writeJson(res, 200, json -> writeMovies(json, movies));
+    }
+
+    private Object trending(Request req, Response res) throws IOException {
+        String genre = req.queryParams("genre");
+        List<Movie> movies = recommendationEngine.getTrendingMovies(notEmpty(genre) ? genre : null,
+                Math.min(intParam(req, "count", 10), MAX_PAGE_SIZE));
+        return writeJson(res, 200, json -> writeMovies(json, movies));
+    }
+
+    private Object movieDetails(Request req, Response res) throws IOException {
+        Movie movie = movieDatabase.getMovieById(Integer.parseInt(req.params(":id")));
+        if (movie == null) return error(res, 404, "Movie not found");
+        return writeJson(res, 200, json -> writeMovie(json, movie));
+    }
+
+    private Object similarMovies(Request req, Response res) throws IOException {
+        Movie movie = movieDatabase.getMovieById(Integer.parseInt(req.params(":id")));
+        if (movie == null) return error(res, 404, "Movie not found");
+        List<Movie> similar = recommendationEngine.getSimilarMovies(movie,
+                Math.min(intParam(req, "count", 5), MAX_PAGE_SIZE));
+        return writeJson(res, 200, json -> writeMovies(json, similar));
+    }
+
+    private Object recommendations(Request req, Response res) throws IOException {
+        User user = userDatabase.getUserById(Integer.parseInt(req.params(":id")));
+        if (user == null) return error(res, 404, "User not found");
+        List<Movie> movies = recommendationEngine.getRecommendations(user,
+                Math.min(intParam(req, "count", 10), MAX_PAGE_SIZE));
+        return writeJson(res, 200, json -> writeMovies(json, movies));
+    }
+
+    private Object rateMovie(Request req, Response res) throws IOException {
+        User user = userDatabase.getUserById(Integer.parseInt(requiredParam(req, "userId")));
+        if (user == null) return error(res, 404, "User not found");
+        Movie movie = movieDatabase.getMovieById(Integer.parseInt(requiredParam(req, "movieId")));
+        if (movie == null) return error(res, 404, "Movie not found");
+        double rating = Double.parseDouble(requiredParam(req, "rating"));
+        if (rating < 1.0 || rating > 5.0) return error(res, 400, "Rating must be between 1.0 and 5.0");
+
+        int status = 200;
+        if (ratingIngestor == null) {
+            user.rateMovie(movie.getId(), rating);
+        } else if (ratingIngestor.offer(user.getUserId(), movie.getId(), rating)) {
+            status = 202;
+        } else {
+            res.header("Retry-After", "1");
+            return error(res, 503, "Too many pending ratings");
+        }
+        return writeJson(res, status, json -> json.beginObject()
+                .name("userId").value(user.getUserId())
+                .name("movieId").value(movie.getId())
+                .name("rating").value(rating)
+                .endObject());
+    }
+
+    static void writeMovies(JsonWriter json, List<Movie> movies) throws IOException {
+        json.beginArray();
+        for (Movie movie : movies) {
+            writeMovie(json, movie);
+        }
+        json.endArray();
+    }
+
+    static void writeMovie(JsonWriter json, Movie movie) throws IOException {
+        json.beginObject()
+            .name("id").value(movie.getId())
+            .name("title").value(movie.getTitle())
+            .name("genre").value(movie.getGenre());
+        json.name("genres").beginArray();
+        for (String genre : movie.getGenres()) {
+            json.value(genre);
+        }
+        json.endArray()
+            .name("year").value(movie.getYear())
+            .name("rating").value(movie.getRating())
+            .name("director").value(movie.getDirector())
+            .name("description").value(movie.getDescription())
+            .name("duration").value(movie.getDuration())
+            .name("formattedDuration").value(movie.getFormattedDuration())
+            .endObject();
+    }
+
+    static Object writeJson(Response res, int status, JsonBody body) throws IOException {
+        HttpServletResponse raw = res.raw();
+        raw.setStatus(status);
+        raw.setContentType("application/json;charset=utf-8");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(raw.getOutputStream(), StandardCharsets.UTF_8));
+        JsonWriter json = new JsonWriter(writer);
+        body.write(json);
+        json.flush();
+        return "";
+    }
+
+    static String error(Response res, int status, String message) {
+        StringWriter out = new StringWriter();
+        try {
+            new JsonWriter(out).beginObject().name("error").value(message).endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        res.status(status);
+        res.type("application/json");
+        res.body(out.toString());
+        return out.toString();
+    }
+
+    private static int intParam(Request req, String name, int defaultValue) {
+        String value = req.queryParams(name);
+        return notEmpty(value) ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static String requiredParam(Request req, String name) {
+        String value = req.queryParams(name);
+        if (!notEmpty(value)) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static boolean notEmpty(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    @FunctionalInterface
+    interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+}
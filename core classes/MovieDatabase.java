@@ -1,17 +1,58 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+/**
+ * Heap movies with their secondary indexes, plus an optional mounted {@link ColumnarCatalog}.
+ * Safe for concurrent use: queries share a read lock and see a consistent catalog, while
+ * adds take the write lock only for the index update; listeners run after it is released.
+ */
 public class MovieDatabase {
 
-    private List<Movie> movies;
-    private Map<Integer, Movie> movieMap;
+    private final List<Movie> movies;
+    private final Map<Integer, Movie> movieMap;
+    /** Codes for the genres and directors of this database's movies, catalog rows included. */
+    private final CodeDictionary genreDictionary;
+    private final CodeDictionary directorDictionary;
+    /** Indexed by genre and director code; null where no movie has the code. */
+    private final List<List<Movie>> moviesByGenre;
+    private final List<List<Movie>> moviesByDirector;
+    private final NavigableMap<Integer, List<Movie>> moviesByYear;
+    private final NavigableMap<Double, List<Movie>> moviesByRating;
+    private final List<String> genres;
+    private final TitleIndex titleIndex;
+    private final List<Consumer<Movie>> movieListeners;
+    private final ReentrantReadWriteLock lock;
+    private ColumnarCatalog catalog;
     private int nextId;
+    private volatile int version;
 
     public MovieDatabase() {
+        this(true);
+    }
+
+    public MovieDatabase(boolean withSamples) {
         this.movies = new ArrayList<>();
-        this.movieMap = new HashMap ();
+        this.movieMap = new HashMap<>();
+        this.genreDictionary = new CodeDictionary();
+        this.directorDictionary = new CodeDictionary();
+        this.moviesByGenre = new ArrayList<>();
+        this.moviesByDirector = new ArrayList<>();
+        this.moviesByYear = new TreeMap<>();
+        this.moviesByRating = new TreeMap<>();
+        this.genres = new ArrayList<>();
+        this.titleIndex = new TitleIndex();
+        this.movieListeners = new CopyOnWriteArrayList<>();
+        this.lock = new ReentrantReadWriteLock();
         this.nextId = 1;
-        initializeSampleMovies();
+        if (withSamples) {
+            initializeSampleMovies();
+        }
     }
 
     private void initializeSampleMovies() {
@@ -27,55 +68,394 @@ public class MovieDatabase {
                 "The life journey of a simple man who achieves extraordinary things", 142);
     }
 
-    public void addMovie(String title, String genre, int year, double rating, String director, String description, int duration) {
-        Movie movie = new Movie(nextId, title, genre, year, rating, director, description, duration);
-        movies.add(movie);
-        movieMap.put(nextId, movie);
-        nextId++;
+    public Movie addMovie(String title, String genre, int year, double rating, String director, String description, int duration) {
+        Movie movie;
+        lock.writeLock().lock();
+        try {
+            movie = new Movie(nextId, title, genre, year, rating, director, description, duration);
+            movie.encode(genreDictionary, directorDictionary);
+            movies.add(movie);
+            movieMap.put(nextId, movie);
+            indexMovies(Collections.singletonList(movie));
+            nextId++;
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Consumer<Movie> listener : movieListeners) {
+            listener.accept(movie);
+        }
+        return movie;
+    }
+
+    /**
+     * Adds a movie under its existing id without notifying listeners; returns false if the id
+     * is taken or lies inside a mounted catalog's id range. A movie another database already
+     * holds is stored as a copy, since its codes belong to that database.
+     */
+    boolean restoreMovie(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            if (movieMap.containsKey(movie.getId())) return false;
+            if (catalog != null && movie.getId() >= catalog.getMinId() && movie.getId() <= catalog.getMaxId()) {
+                return false;
+            }
+            Movie owned = own(movie);
+            movies.add(owned);
+            movieMap.put(owned.getId(), owned);
+            indexMovies(Collections.singletonList(owned));
+            nextId = Math.max(nextId, owned.getId() + 1);
+            version++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Lowest id above every stored movie and the mounted catalog's id range. */
+    int nextMovieId() {
+        lock.readLock().lock();
+        try {
+            return nextId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bulk form of {@link #restoreMovie}: stores every movie first, then extends the indexes
+     * in one pass with a single lookup per year and rating bucket. Returns how many were added.
+     */
+    int restoreMovies(Collection<Movie> restored) {
+        lock.writeLock().lock();
+        try {
+            List<Movie> added = new ArrayList<>(restored.size());
+            for (Movie movie : restored) {
+                int id = movie.getId();
+                if (catalog != null && id >= catalog.getMinId() && id <= catalog.getMaxId()) continue;
+                if (movieMap.containsKey(id)) continue;
+                Movie owned = own(movie);
+                movieMap.put(id, owned);
+                added.add(owned);
+                nextId = Math.max(nextId, id + 1);
+            }
+            movies.addAll(added);
+            indexMovies(added);
+            version++;
+            return added.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Codes {@code movie} for this database, or a copy of it when another database coded it. */
+    private Movie own(Movie movie) {
+        if (movie.encode(genreDictionary, directorDictionary)) return movie;
+        Movie copy = movie.copy();
+        copy.encode(genreDictionary, directorDictionary);
+        return copy;
+    }
+
+    /** Codes of genres in this database; {@link Movie#genreCodes()} of its movies index into it. */
+    CodeDictionary genreDictionary() {
+        return genreDictionary;
+    }
+
+    CodeDictionary directorDictionary() {
+        return directorDictionary;
+    }
+
+    public void addMovieListener(Consumer<Movie> listener) {
+        movieListeners.add(listener);
+    }
+
+    /**
+     * Serves the movies of a {@link ColumnarCatalog} file alongside the in-memory ones
+     * without loading them onto the heap. Catalog movies are read-only: lookups return
+     * fresh copies, and new movies get ids above the catalog's. Heap movies already in the
+     * catalog's id range would make lookups by id ambiguous, so they are refused.
+     */
+    public void mountCatalog(Path file) throws IOException {
+        ColumnarCatalog mounted = ColumnarCatalog.open(file);
+        lock.writeLock().lock();
+        try {
+            for (Movie movie : movies) {
+                if (movie.getId() >= mounted.getMinId() && movie.getId() <= mounted.getMaxId()) {
+                    throw new IllegalStateException("Movie id " + movie.getId()
+                            + " is inside the catalog's id range; mount the catalog before adding movies");
+                }
+            }
+            mounted.encodeWith(genreDictionary, directorDictionary);
+            catalog = mounted;
+            nextId = Math.max(nextId, catalog.getMaxId() + 1);
+            for (String genre : catalog.getGenres()) {
+                int pos = Collections.binarySearch(genres, genre);
+                if (pos < 0 && bucket(moviesByGenre, genreDictionary.codeOf(genre)).isEmpty()) {
+                    genres.add(-pos - 1, genre);
+                }
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Runs {@code reader} under the read lock; the package-private index methods must be called this way. */
+    <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexMovies(List<Movie> added) {
+        Map<Integer, List<Movie>> byYear = new HashMap<>();
+        Map<Double, List<Movie>> byRating = new HashMap<>();
+        for (Movie movie : added) {
+            int[] genreCodes = movie.genreCodes();
+            for (int i = 0; i < genreCodes.length; i++) {
+                if (bucket(moviesByGenre, genreCodes[i]).isEmpty()) {
+                    String genre = movie.getGenres().get(i);
+                    int pos = Collections.binarySearch(genres, genre);
+                    if (pos < 0) {
+                        genres.add(-pos - 1, genre);
+                    }
+                }
+                addToBucket(moviesByGenre, genreCodes[i], movie);
+            }
+            addToBucket(moviesByDirector, movie.directorCode(), movie);
+            byYear.computeIfAbsent(movie.getYear(), y -> new ArrayList<>()).add(movie);
+            byRating.computeIfAbsent(movie.getRating(), r -> new ArrayList<>()).add(movie);
+            titleIndex.add(movie);
+        }
+        byYear.forEach((year, bucket) -> moviesByYear.computeIfAbsent(year, y -> new ArrayList<>()).addAll(bucket));
+        byRating.forEach((rating, bucket) -> moviesByRating.computeIfAbsent(rating, r -> new ArrayList<>()).addAll(bucket));
+    }
+
+    private static List<Movie> bucket(List<List<Movie>> index, int code) {
+        List<Movie> bucket = code >= 0 && code < index.size() ? index.get(code) : null;
+        return bucket == null ? Collections.emptyList() : bucket;
+    }
+
+    private static void addToBucket(List<List<Movie>> index, int code, Movie movie) {
+        while (index.size() <= code) {
+            index.add(null);
+        }
+        List<Movie> bucket = index.get(code);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            index.set(code, bucket);
+        }
+        bucket.add(movie);
+    }
+
+    private static List<Movie> flatten(Collection<List<Movie>> buckets) {
+        List<Movie> result = new ArrayList<>();
+        for (List<Movie> bucket : buckets) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    /** Changes every time the catalog changes; lets callers invalidate derived caches. */
+    public int getVersion() {
+        return version;
     }
 
     public List<Movie> getAllMovies() {
-        return new ArrayList<>(movies);
+        return read(() -> {
+            List<Movie> result = new ArrayList<>(movies);
+            if (catalog != null) {
+                result.addAll(catalog.getAllMovies());
+            }
+            return result;
+        });
+    }
+
+    /** Movies held on the heap, excluding any mounted catalog. */
+    List<Movie> getHeapMovies() {
+        return read(() -> new ArrayList<>(movies));
     }
 
     public Movie getMovieById(int id) {
-        return movieMap.get(id);
+        return read(() -> {
+            Movie movie = movieMap.get(id);
+            return movie == null && catalog != null ? catalog.getMovie(id) : movie;
+        });
     }
 
     public List<Movie> searchByTitle(String title) {
-        return movies.stream()
-                .filter(m -> m.getTitle().toLowerCase().contains(title.toLowerCase()))
-                .collect(Collectors.toList());
+        return read(() -> {
+            List<Movie> result = titleIndex.search(title);
+            if (catalog != null) {
+                result.addAll(catalog.searchByTitle(title));
+            }
+            return result;
+        });
+    }
+
+    public List<Movie> searchByTitlePrefix(String prefix, int limit) {
+        return read(() -> {
+            List<Movie> result = titleIndex.searchPrefix(prefix, limit);
+            if (catalog == null) return result;
+            result.addAll(catalog.searchByTitlePrefix(prefix, limit));
+            result.sort(Comparator.comparing(Movie::normalizedTitle));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        });
     }
 
     public List<Movie> searchByGenre(String genre) {
-        return movies.stream()
-                .filter(m -> m.getGenre().equalsIgnoreCase(genre))
-                .collect(Collectors.toList());
+        return read(() -> new ArrayList<>(genreIndex(genre)));
     }
 
     public List<Movie> searchByDirector(String director) {
-        return movies.stream()
-                .filter(m -> m.getDirector().equalsIgnoreCase(director))
-                .collect(Collectors.toList());
+        return read(() -> new ArrayList<>(directorIndex(director)));
     }
 
     public List<Movie> searchByYear(int year) {
-        return movies.stream()
-                .filter(m -> m.getYear() == year)
-                .collect(Collectors.toList());
+        return getMoviesByYearRange(year, year);
     }
 
+    public List<Movie> getMoviesByYearRange(int startYear, int endYear) {
+        return read(() -> flatten(yearIndex(startYear, endYear)));
+    }
+
+    /** Returns movies rated at least {@code minRating}, highest rated first. */
     public List<Movie> getMoviesWithMinRating(double minRating) {
-        return movies.stream()
-                .filter(m -> m.getRating() >= minRating)
-                .collect(Collectors.toList());
+        return read(() -> {
+            List<Movie> indexed = flatten(moviesByRating.tailMap(minRating, true).descendingMap().values());
+            if (catalog == null) return indexed;
+            // Both lists are already highest first, so merge rather than sort.
+            List<Movie> stored = catalog.findByRatingRange(minRating, Double.POSITIVE_INFINITY);
+            List<Movie> result = new ArrayList<>(indexed.size() + stored.size());
+            int i = 0;
+            int j = 0;
+            while (i < indexed.size() || j < stored.size()) {
+                if (j == stored.size()
+                        || i < indexed.size() && indexed.get(i).getRating() >= stored.get(j).getRating()) {
+                    result.add(indexed.get(i++));
+                } else {
+                    result.add(stored.get(j++));
+                }
+            }
+            return result;
+        });
+    }
+
+    public List<Movie> getMoviesWithRatingBetween(double minRating, double maxRating) {
+        return read(() -> flatten(ratingIndex(minRating, maxRating)));
+    }
+
+    public MovieQuery query() {
+        return new MovieQuery(this);
+    }
+
+    List<Movie> genreIndex(String genre) {
+        List<Movie> indexed = bucket(moviesByGenre, genreDictionary.codeOf(genre));
+        return catalog == null ? indexed : concat(indexed, catalog.findByGenre(genre));
+    }
+
+    List<Movie> directorIndex(String director) {
+        List<Movie> indexed = bucket(moviesByDirector, directorDictionary.codeOf(director));
+        return catalog == null ? indexed : concat(indexed, catalog.findByDirector(director));
+    }
+
+    Collection<List<Movie>> yearIndex(int startYear, int endYear) {
+        if (startYear > endYear) return Collections.emptyList();
+        Collection<List<Movie>> indexed = moviesByYear.subMap(startYear, true, endYear, true).values();
+        if (catalog == null) return indexed;
+        List<List<Movie>> buckets = new ArrayList<>(indexed);
+        buckets.add(catalog.findByYearRange(startYear, endYear));
+        return buckets;
+    }
+
+    Collection<List<Movie>> ratingIndex(double minRating, double maxRating) {
+        if (minRating > maxRating) return Collections.emptyList();
+        Collection<List<Movie>> indexed = moviesByRating.subMap(minRating, true, maxRating, true).values();
+        if (catalog == null) return indexed;
+        List<List<Movie>> buckets = new ArrayList<>(indexed);
+        buckets.add(catalog.findByRatingRange(minRating, maxRating));
+        return buckets;
+    }
+
+    /**
+     * At least the first {@code limit} movies in rating order, highest or lowest first, for
+     * ranking a page without an index to narrow it. Ties at the cut are all included.
+     */
+    Collection<List<Movie>> ratingOrder(int limit, boolean highestFirst) {
+        List<List<Movie>> buckets = new ArrayList<>();
+        int size = 0;
+        for (List<Movie> band : (highestFirst ? moviesByRating.descendingMap() : moviesByRating).values()) {
+            if (size >= limit) break;
+            buckets.add(band);
+            size += band.size();
+        }
+        if (catalog != null) {
+            buckets.add(catalog.getByRating(limit, highestFirst));
+        }
+        return buckets;
+    }
+
+    private static List<Movie> concat(List<Movie> first, List<Movie> second) {
+        List<Movie> result = new ArrayList<>(first.size() + second.size());
+        result.addAll(first);
+        result.addAll(second);
+        return result;
+    }
+
+    public List<String> getAllGenres() {
+        return read(() -> new ArrayList<>(genres));
+    }
+
+    public int getMovieCount() {
+        return read(() -> movies.size() + (catalog == null ? 0 : catalog.size()));
     }
 
     public List<Movie> getTopRatedMovies(int count) {
-        return movies.stream()
-                .sorted(Comparator.comparingDouble(Movie::getRating).reversed())
-                .limit(count)
-                .collect(Collectors.toList());
+        return read(() -> {
+            List<Movie> result = topRatedIndexed(count);
+            if (catalog == null) return result;
+            result.addAll(catalog.getTopRated(count));
+            result.sort(Comparator.comparingDouble(Movie::getRating).reversed());
+            return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+        });
+    }
+
+    /**
+     * Up to {@code count} movies rated at least {@code minRating} that pass {@code filter},
+     * highest rated first. Both the heap and the catalog are walked from their best movie
+     * down and stop once they have enough, so the cost follows how far down the matches
+     * are, not the catalog size. {@code filter} runs under the read lock.
+     */
+    public List<Movie> getTopRatedMovies(int count, double minRating, Predicate<Movie> filter) {
+        return read(() -> {
+            List<Movie> result = new ArrayList<>();
+            walk:
+            for (List<Movie> band : moviesByRating.tailMap(minRating, true).descendingMap().values()) {
+                for (Movie movie : band) {
+                    if (result.size() >= count) break walk;
+                    if (filter.test(movie)) {
+                        result.add(movie);
+                    }
+                }
+            }
+            if (catalog == null) return result;
+            result.addAll(catalog.findTopRated(count, minRating, filter));
+            result.sort(Comparator.comparingDouble(Movie::getRating).reversed());
+            return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+        });
+    }
+
+    private List<Movie> topRatedIndexed(int count) {
+        List<Movie> result = new ArrayList<>();
+        for (List<Movie> band : moviesByRating.descendingMap().values()) {
+            for (Movie movie : band) {
+                if (result.size() >= count) return result;
+                result.add(movie);
+            }
+        }
+        return result;
     }
 }
@@ -0,0 +1,232 @@
+import java.util.*;
+
+/**
+ * Compound movie filter built from {@link MovieDatabase#query()}. Any combination of
+ * genre, director, year range, rating range, duration range and title text can be set.
+ * On execution the posting lists of every indexed filter are sized, the smallest one is
+ * walked and its movies are checked against the remaining filters, so the cost follows
+ * the most selective filter rather than the catalog size. A query with no filters sorted
+ * by rating reads only the head of the rating order.
+ */
+public class MovieQuery {
+
+    public enum SortField { RATING, YEAR, TITLE, DURATION, ID }
+
+    private final MovieDatabase database;
+    private String genre;
+    private String director;
+    private int genreCode;
+    private int directorCode;
+    private String titleText;
+    private int minYear = Integer.MIN_VALUE;
+    private int maxYear = Integer.MAX_VALUE;
+    private double minRating = -Double.MAX_VALUE;
+    private double maxRating = Double.MAX_VALUE;
+    private int minDuration = Integer.MIN_VALUE;
+    private int maxDuration = Integer.MAX_VALUE;
+    private SortField sortField = SortField.RATING;
+    private boolean descending = true;
+    private int page = 0;
+    private int pageSize = 20;
+
+    MovieQuery(MovieDatabase database) {
+        this.database = database;
+    }
+
+    public MovieQuery genre(String genre) {
+        this.genre = genre;
+        return this;
+    }
+
+    public MovieQuery director(String director) {
+        this.director = director;
+        return this;
+    }
+
+    public MovieQuery titleContains(String titleText) {
+        this.titleText = titleText == null || titleText.isEmpty() ? null : TitleIndex.normalize(titleText);
+        return this;
+    }
+
+    public MovieQuery year(int year) {
+        return yearBetween(year, year);
+    }
+
+    public MovieQuery yearBetween(int minYear, int maxYear) {
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        return this;
+    }
+
+    public MovieQuery minRating(double minRating) {
+        this.minRating = minRating;
+        return this;
+    }
+
+    public MovieQuery maxRating(double maxRating) {
+        this.maxRating = maxRating;
+        return this;
+    }
+
+    public MovieQuery ratingBetween(double minRating, double maxRating) {
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+        return this;
+    }
+
+    public MovieQuery durationBetween(int minDuration, int maxDuration) {
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        return this;
+    }
+
+    public MovieQuery sortBy(SortField sortField, boolean descending) {
+        this.sortField = sortField;
+        this.descending = descending;
+        return this;
+    }
+
+    /** Selects a zero-based page of {@code pageSize} results. */
+    public MovieQuery page(int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("page must be >= 0 and pageSize > 0");
+        }
+        this.page = page;
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    public Result execute() {
+        return database.read(this::run);
+    }
+
+    private Result run() {
+        long end = (long) (page + 1) * pageSize;
+        int limit = (int) Math.min(end, Integer.MAX_VALUE);
+        // With nothing to filter, a rating-ordered page only needs the head of the rating order.
+        boolean rankOnly = sortField == SortField.RATING && unfiltered();
+        List<List<Movie>> driver = rankOnly
+                ? new ArrayList<>(database.ratingOrder(limit, descending))
+                : smallestSource();
+        genreCode = genre == null ? -1 : database.genreDictionary().codeOf(genre);
+        directorCode = director == null ? -1 : database.directorDictionary().codeOf(director);
+        TopK<Movie> best = new TopK<>(limit, comparator());
+        int total = 0;
+        for (List<Movie> bucket : driver) {
+            for (Movie movie : bucket) {
+                if (matches(movie)) {
+                    total++;
+                    best.offer(movie);
+                }
+            }
+        }
+        if (rankOnly) {
+            total = database.getMovieCount();
+        }
+        List<Movie> ranked = best.toList();
+        int from = (int) Math.min((long) page * pageSize, ranked.size());
+        return new Result(new ArrayList<>(ranked.subList(from, ranked.size())), total, page, pageSize);
+    }
+
+    private List<List<Movie>> smallestSource() {
+        List<List<List<Movie>>> sources = new ArrayList<>();
+        if (genre != null) {
+            sources.add(Collections.singletonList(database.genreIndex(genre)));
+        }
+        if (director != null) {
+            sources.add(Collections.singletonList(database.directorIndex(director)));
+        }
+        if (minYear != Integer.MIN_VALUE || maxYear != Integer.MAX_VALUE) {
+            sources.add(new ArrayList<>(database.yearIndex(minYear, maxYear)));
+        }
+        if (minRating != -Double.MAX_VALUE || maxRating != Double.MAX_VALUE) {
+            sources.add(new ArrayList<>(database.ratingIndex(minRating, maxRating)));
+        }
+        List<List<Movie>> smallest = null;
+        long smallestSize = Long.MAX_VALUE;
+        for (List<List<Movie>> source : sources) {
+            long size = 0;
+            for (List<Movie> bucket : source) {
+                size += bucket.size();
+            }
+            if (size < smallestSize) {
+                smallest = source;
+                smallestSize = size;
+            }
+        }
+        // Trigram lookups cost more than sizing a bucket, so only use them when nothing cheaper narrows the scan.
+        if (titleText != null && titleText.length() >= 3 && smallestSize > database.getMovieCount() / 16) {
+            List<Movie> titleMatches = database.searchByTitle(titleText);
+            if (titleMatches.size() < smallestSize) {
+                return Collections.singletonList(titleMatches);
+            }
+        }
+        return smallest != null ? smallest : Collections.singletonList(database.getAllMovies());
+    }
+
+    private boolean unfiltered() {
+        return genre == null && director == null && titleText == null
+                && minYear == Integer.MIN_VALUE && maxYear == Integer.MAX_VALUE
+                && minRating == -Double.MAX_VALUE && maxRating == Double.MAX_VALUE
+                && minDuration == Integer.MIN_VALUE && maxDuration == Integer.MAX_VALUE;
+    }
+
+    private boolean matches(Movie movie) {
+        return movie.getYear() >= minYear && movie.getYear() <= maxYear
+                && movie.getRating() >= minRating && movie.getRating() <= maxRating
+                && movie.getDuration() >= minDuration && movie.getDuration() <= maxDuration
+                && (genre == null || movie.hasGenre(genreCode))
+                && (director == null || movie.directorCode() == directorCode)
+                && (titleText == null || movie.normalizedTitle().contains(titleText));
+    }
+
+    private Comparator<Movie> comparator() {
+        Comparator<Movie> order;
+        switch (sortField) {
+            case YEAR:
+                order = Comparator.comparingInt(Movie::getYear);
+                break;
+            case TITLE:
+                order = Comparator.comparing(Movie::getTitle, String.CASE_INSENSITIVE_ORDER);
+                break;
+            case DURATION:
+                order = Comparator.comparingInt(Movie::getDuration);
+                break;
+            case ID:
+                order = Comparator.comparingInt(Movie::getId);
+                break;
+            default:
+                order = Comparator.comparingDouble(Movie::getRating);
+        }
+        if (descending) {
+            order = order.reversed();
+        }
+        return order.thenComparingInt(Movie::getId);
+    }
+
+    public static class Result {
+        private final List<Movie> movies;
+        private final int total;
+        private final int page;
+        private final int pageSize;
+
+        public Result(List<Movie> movies, int total, int page, int pageSize) {
+            this.movies = movies;
+            this.total = total;
+            this.page = page;
+            this.pageSize = pageSize;
+        }
+
+        public List<Movie> getMovies() { return movies; }
+
+        public int getTotal() { return total; }
+
+        public int getPage() { return page; }
+
+        public int getPageSize() { return pageSize; }
+
+        public int getTotalPages() {
+            return (total + pageSize - 1) / pageSize;
+        }
+    }
+}
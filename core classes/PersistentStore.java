@@ -0,0 +1,356 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Makes the movie and user databases durable. Every change is appended to an
+ * {@link EventLog}; periodically a {@link Snapshot} is taken and the log segments it
+ * covers are deleted. On startup the latest snapshot is loaded and only the newer
+ * segments are replayed. Replay is idempotent (adds skip known ids, ratings and
+ * genres overwrite), so a change that landed in both a snapshot and the log is harmless.
+ *
+ * Snapshots can run alongside writes: every change is applied before it is logged and
+ * each user is copied from one rating snapshot, so anything a snapshot misses is in a
+ * segment written after the snapshot's roll and is replayed on top of it.
+ *
+ * User changes are logged while the user is still locked, which keeps their order, but
+ * the wait for the disk happens in {@link #changeApplied} after the lock is released, so
+ * other threads reading or rating for that user are not held up by the fsync.
+ */
+public class PersistentStore implements UserListener, Closeable {
+    private static final byte ADD_MOVIE = 1;
+    private static final byte ADD_USER = 2;
+    private static final byte RATE = 3;
+    private static final byte FAVORITE_GENRES = 4;
+    private static final byte WATCH = 5;
+
+    private final Path directory;
+    private final MovieDatabase movieDatabase;
+    private final UserDatabase userDatabase;
+    private final EventLog log;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean waitForDurability = true;
+    /** The latest user change this thread logged and has not yet waited for. */
+    private final ThreadLocal<CompletableFuture<Void>> unsynced = new ThreadLocal<>();
+
+    private PersistentStore(Path directory, MovieDatabase movieDatabase, UserDatabase userDatabase,
+                            EventLog log) {
+        this.directory = directory;
+        this.movieDatabase = movieDatabase;
+        this.userDatabase = userDatabase;
+        this.log = log;
+    }
+
+    /**
+     * Restores the databases from {@code directory} and starts logging their changes.
+     * Pass empty databases when {@link #hasData} is true; otherwise whatever they already
+     * contain is persisted by the first {@link #snapshot()}.
+     */
+    public static PersistentStore open(Path directory, MovieDatabase movieDatabase,
+                                       UserDatabase userDatabase) throws IOException {
+        Files.createDirectories(directory);
+        long snapshot = Snapshot.latest(directory);
+        if (snapshot >= 0) {
+            Snapshot.read(Snapshot.path(directory, snapshot), movieDatabase, userDatabase);
+        }
+        Replay replay = new Replay(movieDatabase, userDatabase);
+        EventLog.replay(directory, Math.max(snapshot, 0), replay::apply);
+        replay.finish();
+        PersistentStore store = new PersistentStore(directory, movieDatabase, userDatabase,
+                new EventLog(directory));
+        movieDatabase.addMovieListener(store::movieAdded);
+        userDatabase.addListener(store);
+        return store;
+    }
+
+    public static boolean hasData(Path directory) throws IOException {
+        return Snapshot.latest(directory) >= 0 || EventLog.hasSegments(directory);
+    }
+
+    /** When false, changes are acknowledged before they reach disk (a crash may lose the last few). */
+    public void setWaitForDurability(boolean waitForDurability) {
+        this.waitForDurability = waitForDurability;
+    }
+
+    /** Writes a snapshot of the current state and drops the log segments and snapshots it supersedes. */
+    public synchronized void snapshot() throws IOException {
+        long segment = log.roll();
+        Snapshot.write(directory, segment, movieDatabase, userDatabase);
+        log.deleteSegmentsBefore(segment);
+        Snapshot.deleteBefore(directory, segment);
+    }
+
+    public synchronized void scheduleSnapshots(long intervalMillis) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                System.err.println("Snapshot failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        log.close();
+    }
+
+    void movieAdded(Movie movie) {
+        append(ADD_MOVIE, out -> writeMovie(out, movie));
+    }
+
+    @Override
+    public void userAdded(User user) {
+        append(ADD_USER, out -> {
+            out.writeInt(user.getUserId());
+            writeString(out, user.getUsername());
+            writeString(out, user.getEmail());
+            writeString(out, user.getPassword());
+            out.writeLong(user.getJoinDate() == null ? Long.MIN_VALUE : user.getJoinDate().getTime());
+        });
+    }
+
+    @Override
+    public void ratingChanged(User user, int movieId, double rating) {
+        defer(RATE, out -> {
+            out.writeInt(user.getUserId());
+            out.writeInt(movieId);
+            out.writeFloat((float) rating);
+        });
+    }
+
+    @Override
+    public void ratingsChanged(User user, int[] movieIds, float[] ratings, int count) {
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < count; i++) {
+            int movieId = movieIds[i];
+            float rating = ratings[i];
+            last = log.append(encode(RATE, out -> {
+                out.writeInt(user.getUserId());
+                out.writeInt(movieId);
+                out.writeFloat(rating);
+            }));
+        }
+        if (last != null) {
+            unsynced.set(last);
+        }
+    }
+
+    @Override
+    public void favoriteGenresChanged(User user) {
+        List<String> genres = new ArrayList<>(user.getFavoriteGenres());
+        defer(FAVORITE_GENRES, out -> {
+            out.writeInt(user.getUserId());
+            out.writeInt(genres.size());
+            for (String genre : genres) {
+                writeString(out, genre);
+            }
+        });
+    }
+
+    @Override
+    public void movieWatched(User user, int movieId) {
+        defer(WATCH, out -> {
+            out.writeInt(user.getUserId());
+            out.writeInt(movieId);
+        });
+    }
+
+    @Override
+    public void changeApplied(User user) {
+        CompletableFuture<Void> last = unsynced.get();
+        if (last != null) {
+            unsynced.remove();
+            awaitDurable(last);
+        }
+    }
+
+    private interface Encoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, Encoder encoder) {
+        awaitDurable(log.append(encode(type, encoder)));
+    }
+
+    /**
+     * Logs a user change now and waits for it in {@link #changeApplied}. The log is written
+     * in order, so the last record being durable covers every earlier one.
+     */
+    private void defer(byte type, Encoder encoder) {
+        unsynced.set(log.append(encode(type, encoder)));
+    }
+
+    private static ByteBuffer encode(byte type, Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            encoder.encode(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private void awaitDurable(CompletableFuture<Void> written) {
+        if (!waitForDurability) return;
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException
+                    ? new UncheckedIOException((IOException) cause)
+                    : new IllegalStateException("Event log write failed", cause);
+        }
+    }
+
+    /**
+     * Applies logged records in bulk. Added movies and users are collected and restored
+     * in one pass each, and ratings are grouped per user and applied with one
+     * {@link User#rateMovies} call, which keeps the log's order within each user. Other
+     * changes apply as they are read, to the restored user or to one still pending.
+     */
+    private static class Replay {
+        private final MovieDatabase movieDatabase;
+        private final UserDatabase userDatabase;
+        private final List<Movie> movies = new ArrayList<>();
+        private final Map<Integer, User> users = new LinkedHashMap<>();
+        private final Map<Integer, RatingBatch> ratings = new LinkedHashMap<>();
+
+        Replay(MovieDatabase movieDatabase, UserDatabase userDatabase) {
+            this.movieDatabase = movieDatabase;
+            this.userDatabase = userDatabase;
+        }
+
+        void apply(ByteBuffer in) {
+            byte type = in.get();
+            switch (type) {
+                case ADD_MOVIE:
+                    movies.add(new Movie(in.getInt(), readString(in), readString(in), in.getInt(),
+                            in.getDouble(), readString(in), readString(in), in.getInt()));
+                    break;
+                case ADD_USER: {
+                    User user = new User(in.getInt(), readString(in), readString(in), readString(in));
+                    long joined = in.getLong();
+                    user.setJoinDate(joined == Long.MIN_VALUE ? null : new Date(joined));
+                    if (userDatabase.getUserById(user.getUserId()) == null) {
+                        users.putIfAbsent(user.getUserId(), user);
+                    }
+                    break;
+                }
+                case RATE: {
+                    int userId = in.getInt();
+                    int movieId = in.getInt();
+                    float rating = in.getFloat();
+                    if (user(userId) != null) {
+                        ratings.computeIfAbsent(userId, id -> new RatingBatch()).add(movieId, rating);
+                    }
+                    break;
+                }
+                case FAVORITE_GENRES: {
+                    User user = user(in.getInt());
+                    int count = in.getInt();
+                    List<String> genres = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        genres.add(readString(in));
+                    }
+                    if (user != null) {
+                        user.setFavoriteGenres(genres);
+                    }
+                    break;
+                }
+                case WATCH: {
+                    User user = user(in.getInt());
+                    int movieId = in.getInt();
+                    if (user != null) {
+                        user.addWatchedMovie(movieId);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown event type " + type);
+            }
+        }
+
+        /** Restores what was collected; ratings of new users land before their postings are built. */
+        void finish() {
+            movieDatabase.restoreMovies(movies);
+            for (User user : users.values()) {
+                RatingBatch batch = ratings.remove(user.getUserId());
+                if (batch != null) {
+                    user.rateMovies(batch.movieIds, batch.ratings, batch.count);
+                }
+            }
+            userDatabase.restoreUsers(users.values());
+            for (Map.Entry<Integer, RatingBatch> entry : ratings.entrySet()) {
+                RatingBatch batch = entry.getValue();
+                userDatabase.getUserById(entry.getKey()).rateMovies(batch.movieIds, batch.ratings, batch.count);
+            }
+        }
+
+        private User user(int userId) {
+            User user = userDatabase.getUserById(userId);
+            return user != null ? user : users.get(userId);
+        }
+    }
+
+    private static class RatingBatch {
+        private int[] movieIds = new int[8];
+        private float[] ratings = new float[8];
+        private int count;
+
+        void add(int movieId, float rating) {
+            if (count == movieIds.length) {
+                movieIds = Arrays.copyOf(movieIds, count * 2);
+                ratings = Arrays.copyOf(ratings, count * 2);
+            }
+            movieIds[count] = movieId;
+            ratings[count++] = rating;
+        }
+    }
+
+    static void writeMovie(DataOutputStream out, Movie movie) throws IOException {
+        out.writeInt(movie.getId());
+        writeString(out, movie.getTitle());
+        writeString(out, movie.joinedGenres());
+        out.writeInt(movie.getYear());
+        out.writeDouble(movie.getRating());
+        writeString(out, movie.getDirector());
+        writeString(out, movie.getDescription());
+        out.writeInt(movie.getDuration());
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
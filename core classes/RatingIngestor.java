@@ -0,0 +1,144 @@
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams rating events into the {@link UserDatabase} off the caller's thread. Request
+ * threads {@link #offer} ratings into a bounded lock-free {@link RatingQueue} and return
+ * immediately; one ingest thread drains up to {@link #MAX_BATCH} events at a time, groups
+ * them by user and applies each group with {@link User#rateMovies}, so a user gets one new
+ * rating snapshot and listeners (rater postings, similarity index, recommendation cache,
+ * event log) get one batch event per user instead of one per rating. When the queue is
+ * full {@link #offer} returns false so callers can shed load.
+ */
+public class RatingIngestor implements Closeable {
+    public static final int MAX_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = 50_000_000L;
+
+    private final UserDatabase userDatabase;
+    private final RatingQueue queue;
+    private final Thread worker;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long applied;
+    private volatile long dropped;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+
+    public RatingIngestor(UserDatabase userDatabase, int capacity) {
+        this.userDatabase = userDatabase;
+        this.queue = new RatingQueue(capacity);
+        this.worker = new Thread(this::ingestLoop, "rating-ingestor");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a rating without waiting for it to be applied. Returns false if the queue is
+     * full; unknown users are counted as dropped when the event is applied.
+     */
+    public boolean offer(int userId, int movieId, double rating) {
+        if (rating < 1.0 || rating > 5.0) {
+            throw new IllegalArgumentException("Rating must be between 1.0 and 5.0");
+        }
+        if (closed) throw new IllegalStateException("Rating ingestor is closed");
+        if (!queue.offer(userId, movieId, (float) rating)) {
+            rejected.increment();
+            return false;
+        }
+        submitted.increment();
+        if (sleeping) {
+            LockSupport.unpark(worker);
+        }
+        return true;
+    }
+
+    /** Waits until every rating accepted before this call has been applied or dropped. */
+    public void flush() throws InterruptedException {
+        long target = submitted.sum();
+        while (applied + dropped < target && worker.isAlive()) {
+            LockSupport.unpark(worker);
+            Thread.sleep(1);
+        }
+    }
+
+    public long getSubmitted() { return submitted.sum(); }
+
+    public long getApplied() { return applied; }
+
+    /** Ratings for users that did not exist when their batch was applied. */
+    public long getDropped() { return dropped; }
+
+    /** Offers refused because the queue was full. */
+    public long getRejected() { return rejected.sum(); }
+
+    public long getPending() { return Math.max(0, submitted.sum() - applied - dropped); }
+
+    public int getCapacity() { return queue.capacity(); }
+
+    /** Stops accepting ratings and applies everything already queued. */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ingestLoop() {
+        int[] userIds = new int[MAX_BATCH];
+        int[] movieIds = new int[MAX_BATCH];
+        float[] ratings = new float[MAX_BATCH];
+        long[] order = new long[MAX_BATCH];
+        int[] groupMovieIds = new int[MAX_BATCH];
+        float[] groupRatings = new float[MAX_BATCH];
+        while (true) {
+            int count = queue.drainTo(userIds, movieIds, ratings, MAX_BATCH);
+            if (count > 0) {
+                apply(userIds, movieIds, ratings, count, order, groupMovieIds, groupRatings);
+                continue;
+            }
+            if (closed) return;
+            sleeping = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    private void apply(int[] userIds, int[] movieIds, float[] ratings, int count, long[] order,
+                       int[] groupMovieIds, float[] groupRatings) {
+        // Sort by user, keeping arrival order within a user so the latest rating wins.
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) userIds[i] << 32) | i;
+        }
+        Arrays.sort(order, 0, count);
+        int start = 0;
+        while (start < count) {
+            int userId = (int) (order[start] >> 32);
+            int size = 0;
+            for (int i = start; i < count && (int) (order[i] >> 32) == userId; i++) {
+                int index = (int) order[i];
+                groupMovieIds[size] = movieIds[index];
+                groupRatings[size++] = ratings[index];
+            }
+            start += size;
+            User user = userDatabase.getUserById(userId);
+            if (user == null) {
+                dropped += size;
+                continue;
+            }
+            try {
+                user.rateMovies(groupMovieIds, groupRatings, size);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to apply ratings for user " + userId + ": " + e.getMessage());
+            }
+            applied += size;
+        }
+    }
+}
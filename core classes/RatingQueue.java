@@ -0,0 +1,79 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of (user, movie, rating) events for many producers and one
+ * consumer. A ring of primitive slots with a sequence number per slot (Vyukov's bounded
+ * queue): producers claim a slot with one CAS on the tail and publish it by advancing its
+ * sequence, so offering never blocks and never allocates, and a full queue is reported
+ * instead of waited on.
+ */
+public class RatingQueue {
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] userIds;
+    private final int[] movieIds;
+    private final float[] ratings;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /** Capacity is rounded up to a power of two. */
+    public RatingQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.userIds = new int[size];
+        this.movieIds = new int[size];
+        this.ratings = new float[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Adds an event, or returns false at once if the queue is full. Safe from any thread. */
+    public boolean offer(int userId, int movieId, float rating) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    userIds[slot] = userId;
+                    movieIds[slot] = movieId;
+                    ratings[slot] = rating;
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /** Moves up to {@code max} events into the arrays in arrival order. Consumer thread only. */
+    int drainTo(int[] userIds, int[] movieIds, float[] ratings, int max) {
+        int count = 0;
+        while (count < max) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) break;
+            userIds[count] = this.userIds[slot];
+            movieIds[count] = this.movieIds[slot];
+            ratings[count++] = this.ratings[slot];
+            sequences.set(slot, head + mask + 1);
+            head++;
+        }
+        return count;
+    }
+
+    /** Consumer thread only. */
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of recommendation lists keyed by user id and list size.
+ * Entries expire after a TTL, are dropped when the catalog version moves, and are
+ * invalidated when the user's ratings, watched movies or favorite genres change. Hit,
+ * miss, eviction and invalidation counters are exposed for sizing.
+ *
+ * Users are kept in a concurrent map, so lookups and invalidations of different users
+ * never contend; invalidations run inside rating writes and must stay cheap. Invalidation
+ * stamps are striped by user id, and eviction is a second-chance clock over insertion
+ * order that approximates least-recently-used without a shared lock.
+ */
+public class RecommendationCache implements UserListener {
+    private static final int STAMP_STRIPES = 1024;
+
+    private final int maxUsers;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<Integer, UserEntry> entries;
+    private final ConcurrentLinkedQueue<UserEntry> clock;
+    /** Size of {@link #clock}, which also holds invalidated users until the clock passes them. */
+    private final AtomicInteger clockSize = new AtomicInteger();
+    private final AtomicLongArray stamps;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public RecommendationCache(int maxUsers, long ttlMillis) {
+        this.maxUsers = maxUsers;
+        this.ttlMillis = ttlMillis;
+        this.entries = new ConcurrentHashMap<>(256);
+        this.clock = new ConcurrentLinkedQueue<>();
+        this.stamps = new AtomicLongArray(STAMP_STRIPES);
+    }
+
+    /** Returns a copy of the cached list, or null on a miss. */
+    public List<Movie> get(int userId, int count, int catalogVersion) {
+        UserEntry entry = entries.get(userId);
+        CachedList cached = entry == null ? null : entry.lists.get(count);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (cached.catalogVersion != catalogVersion || cached.expiresAt <= System.currentTimeMillis()) {
+            entry.lists.remove(count, cached);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hits.increment();
+        return new ArrayList<>(cached.movies);
+    }
+
+    /**
+     * Stamp to take before computing a value for {@code userId}; {@link #put} drops the
+     * value if the user was invalidated in between, so a stale result never outlives its
+     * invalidation.
+     */
+    public long stamp(int userId) {
+        return stamps.get(stripe(userId));
+    }
+
+    public void put(int userId, int count, int catalogVersion, List<Movie> movies, long stamp) {
+        CachedList list = new CachedList(new ArrayList<>(movies), catalogVersion,
+                System.currentTimeMillis() + ttlMillis);
+        UserEntry[] created = new UserEntry[1];
+        // The stamp is checked inside compute, which excludes the removal in invalidate.
+        entries.compute(userId, (id, entry) -> {
+            if (stamps.get(stripe(userId)) != stamp) return entry;
+            if (entry == null) {
+                entry = new UserEntry(userId);
+                created[0] = entry;
+            }
+            entry.lists.put(count, list);
+            return entry;
+        });
+        if (created[0] != null) {
+            clock.offer(created[0]);
+            clockSize.incrementAndGet();
+            evict();
+        }
+    }
+
+    public void invalidate(int userId) {
+        stamps.incrementAndGet(stripe(userId));
+        if (entries.remove(userId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < STAMP_STRIPES; i++) {
+            stamps.incrementAndGet(i);
+        }
+        entries.clear();
+        clock.clear();
+        clockSize.set(0);
+    }
+
+    @Override
+    public void ratingChanged(User user, int movieId, double rating) {
+        invalidate(user.getUserId());
+    }
+
+    @Override
+    public void ratingsChanged(User user, int[] movieIds, float[] ratings, int count) {
+        invalidate(user.getUserId());
+    }
+
+    /** Watched movies are never recommended, so a cached list may now hold one. */
+    @Override
+    public void movieWatched(User user, int movieId) {
+        invalidate(user.getUserId());
+    }
+
+    @Override
+    public void favoriteGenresChanged(User user) {
+        invalidate(user.getUserId());
+    }
+
+    public long getHits() { return hits.sum(); }
+
+    public long getMisses() { return misses.sum(); }
+
+    public long getEvictions() { return evictions.sum(); }
+
+    public long getInvalidations() { return invalidations.sum(); }
+
+    public long getExpirations() { return expirations.sum(); }
+
+    public int getCachedUsers() { return entries.size(); }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "RecommendationCache{" +
+                "users=" + entries.size() +
+                ", hits=" + hits.sum() +
+                ", misses=" + misses.sum() +
+                ", hitRate=" + String.format("%.2f", getHitRate()) +
+                ", evictions=" + evictions.sum() +
+                ", invalidations=" + invalidations.sum() +
+                ", expirations=" + expirations.sum() +
+                '}';
+    }
+
+    /**
+     * Drops users until the bound holds; a user read since the clock last passed it gets a
+     * second chance. Also sweeps invalidated users out of the clock once they pile up.
+     */
+    private void evict() {
+        for (int steps = 2 * clockSize.get() + 2;
+             steps > 0 && (entries.size() > maxUsers || clockSize.get() > 2 * maxUsers + 16); steps--) {
+            UserEntry entry = clock.poll();
+            if (entry == null) return;
+            clockSize.decrementAndGet();
+            if (entries.get(entry.userId) != entry) continue;
+            if (entries.size() <= maxUsers || entry.referenced) {
+                if (entries.size() > maxUsers) {
+                    entry.referenced = false;
+                }
+                clock.offer(entry);
+                clockSize.incrementAndGet();
+            } else if (entries.remove(entry.userId, entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static int stripe(int userId) {
+        return (userId ^ (userId >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    private static class UserEntry {
+        private final int userId;
+        private final Map<Integer, CachedList> lists = new ConcurrentHashMap<>();
+        private volatile boolean referenced;
+
+        UserEntry(int userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static class CachedList {
+        private final List<Movie> movies;
+        private final int catalogVersion;
+        private final long expiresAt;
+
+        CachedList(List<Movie> movies, int catalogVersion, long expiresAt) {
+            this.movies = movies;
+            this.catalogVersion = catalogVersion;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
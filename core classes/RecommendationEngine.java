@@ -1,22 +1,85 @@
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class RecommendationEngine {
+    private static final int SIMILAR_MOVIES_CACHE_SIZE = 10000;
+    private static final int RECOMMENDATION_CACHE_USERS = 10000;
+    private static final long RECOMMENDATION_CACHE_TTL_MILLIS = 5 * 60 * 1000;
+
     private MovieDatabase movieDatabase;
     private UserDatabase userDatabase;
+    private SimilarityMetric similarityMetric;
+    private UserSimilarityIndex similarityIndex;
+    private RecommendationCache recommendationCache;
+    private RecommendationMetrics metrics;
+    private TrendingEngine trendingEngine;
+    private Map<Integer, SimilarMovies> similarMoviesCache;
+    private int similarMoviesVersion;
+    private volatile AlsModel alsModel;
+    private ScheduledExecutorService alsScheduler;
 
     public RecommendationEngine(MovieDatabase movieDatabase, UserDatabase userDatabase) {
+        this(movieDatabase, userDatabase, SimilarityMetric.PEARSON);
+    }
+
+    public RecommendationEngine(MovieDatabase movieDatabase, UserDatabase userDatabase,
+                                SimilarityMetric similarityMetric) {
         this.movieDatabase = movieDatabase;
         this.userDatabase = userDatabase;
+        this.similarityMetric = similarityMetric;
+        this.similarityIndex = new UserSimilarityIndex(userDatabase, this::calculateUserSimilarity, 20);
+        userDatabase.addListener(similarityIndex);
+        this.recommendationCache = new RecommendationCache(RECOMMENDATION_CACHE_USERS, RECOMMENDATION_CACHE_TTL_MILLIS);
+        userDatabase.addListener(recommendationCache);
+        this.metrics = new RecommendationMetrics(recommendationCache);
+        this.trendingEngine = new TrendingEngine(movieDatabase);
+        userDatabase.addListener(trendingEngine);
+        this.similarMoviesCache = new LinkedHashMap<Integer, SimilarMovies>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, SimilarMovies> eldest) {
+                return size() > SIMILAR_MOVIES_CACHE_SIZE;
+            }
+        };
+        this.similarMoviesVersion = movieDatabase.getVersion();
     }
 
     public List<Movie> getRecommendations(User user, int maxRecommendations) {
+        return getRecommendations(user, maxRecommendations, directCandidates);
+    }
+
+    List<Movie> getRecommendations(User user, int maxRecommendations, CandidateSource candidates) {
+        long started = System.nanoTime();
+        int catalogVersion = movieDatabase.getVersion();
+        List<Movie> recommendations = recommendationCache.get(user.getUserId(), maxRecommendations, catalogVersion);
+        if (recommendations == null) {
+            long stamp = recommendationCache.stamp(user.getUserId());
+            recommendations = computeRecommendations(user, maxRecommendations, candidates);
+            recommendationCache.put(user.getUserId(), maxRecommendations, catalogVersion, recommendations, stamp);
+        }
+        metrics.recordLatency(RecommendationMetrics.Stage.REQUEST, System.nanoTime() - started);
+        return recommendations;
+    }
+
+    List<Movie> computeRecommendations(User user, int maxRecommendations) {
+        return computeRecommendations(user, maxRecommendations, directCandidates);
+    }
+
+    List<Movie> computeRecommendations(User user, int maxRecommendations, CandidateSource candidates) {
         List<Movie> recommendations = new ArrayList<>();
-        recommendations.addAll(getGenreBasedRecommendations(user, maxRecommendations / 2));
+        long started = System.nanoTime();
+        recommendations.addAll(getGenreBasedRecommendations(user, maxRecommendations / 2, candidates));
+        long genreDone = System.nanoTime();
+        metrics.recordLatency(RecommendationMetrics.Stage.GENRE, genreDone - started);
         recommendations.addAll(getCollaborativeRecommendations(user, maxRecommendations / 2));
+        long collaborativeDone = System.nanoTime();
+        metrics.recordLatency(RecommendationMetrics.Stage.COLLABORATIVE, collaborativeDone - genreDone);
         if (recommendations.size() < maxRecommendations) {
-            recommendations.addAll(getPopularMovieRecommendations(user, 
-                maxRecommendations - recommendations.size()));
+            recommendations.addAll(getPopularMovieRecommendations(user,
+                maxRecommendations - recommendations.size(), candidates));
+            metrics.recordLatency(RecommendationMetrics.Stage.POPULAR, System.nanoTime() - collaborativeDone);
         }
         return recommendations.stream()
                 .distinct()
@@ -25,15 +88,42 @@ public class RecommendationEngine {
                 .collect(Collectors.toList());
     }
 
-    private List<Movie> getGenreBasedRecommendations(User user, int count) {
+    /**
+     * Inputs of the genre and popular stages that do not depend on the user. Single
+     * requests compute them on demand; {@link BatchRecommender} computes each once per batch.
+     */
+    interface CandidateSource {
+        /** Movies of the genre, highest rated first; callers must not modify the list. */
+        List<Movie> moviesByRating(String genre);
+
+        /** The {@code count} highest rated movies; callers must not modify the list. */
+        List<Movie> topRated(int count);
+    }
+
+    final CandidateSource directCandidates = new CandidateSource() {
+        @Override
+        public List<Movie> moviesByRating(String genre) {
+            List<Movie> genreMovies = movieDatabase.searchByGenre(genre);
+            genreMovies.sort((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()));
+            return genreMovies;
+        }
+
+        @Override
+        public List<Movie> topRated(int count) {
+            return movieDatabase.getTopRatedMovies(count);
+        }
+    };
+
+    private List<Movie> getGenreBasedRecommendations(User user, int count, CandidateSource candidates) {
         List<Movie> recommendations = new ArrayList<>();
         List<String> favoriteGenres = user.getFavoriteGenres();
         if (favoriteGenres.isEmpty()) {
             favoriteGenres = getGenresFromUserRatings(user);
         }
+        int scanned = 0;
         for (String genre : favoriteGenres) {
-            List<Movie> genreMovies = movieDatabase.searchByGenre(genre);
-            genreMovies.sort((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()));
+            List<Movie> genreMovies = candidates.moviesByRating(genre);
+            scanned += genreMovies.size();
 
             for (Movie movie : genreMovies) {
                 if (!user.hasWatched(movie.getId()) && !recommendations.contains(movie)) {
@@ -43,22 +133,27 @@ public class RecommendationEngine {
             }
             if (recommendations.size() >= count) break;
         }
+        metrics.recordCandidates(RecommendationMetrics.Stage.GENRE, scanned);
 
         return recommendations;
     }
 
     private List<Movie> getCollaborativeRecommendations(User user, int count) {
+        AlsModel model = alsModel;
+        if (model != null) {
+            return getModelRecommendations(model, user, count);
+        }
         List<Movie> recommendations = new ArrayList<>();
-        List<User> similarUsers = findSimilarUsers(user, 5);
+        List<UserSimilarityIndex.Neighbor> similarUsers = findSimilarUsers(user, 5);
         Map<Integer, Double> movieScores = new HashMap<>();
         Map<Integer, Integer> movieCounts = new HashMap<>();
 
-        for (User similarUser : similarUsers) {
-            for (Map.Entry<Integer, Double> entry : similarUser.getMovieRatings().entrySet()) {
+        for (UserSimilarityIndex.Neighbor neighbor : similarUsers) {
+            double similarity = neighbor.getSimilarity();
+            for (Map.Entry<Integer, Double> entry : neighbor.getUser().getMovieRatings().entrySet()) {
                 int movieId = entry.getKey();
                 double rating = entry.getValue();
                 if (rating >= 4.0 && !user.hasWatched(movieId)) {
-                    double similarity = calculateUserSimilarity(user, similarUser);
                     double weightedRating = rating * similarity;
 
                     movieScores.merge(movieId, weightedRating, Double::sum);
@@ -74,8 +169,9 @@ public class RecommendationEngine {
                     double averageScore = totalScore / voteCount;
                     return new AbstractMap.SimpleEntry<>(movieId, averageScore);
                 })
-                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
-                .collect(Collectors.toList());
+                .filter(entry -> movieDatabase.getMovieById(entry.getKey()) != null)
+                .collect(TopK.collector(count, Map.Entry.<Integer, Double>comparingByValue().reversed()));
+        metrics.recordCandidates(RecommendationMetrics.Stage.COLLABORATIVE, movieScores.size());
         for (Map.Entry<Integer, Double> entry : sortedScores) {
             Movie movie = movieDatabase.getMovieById(entry.getKey());
             if (movie != null) {
@@ -87,104 +183,176 @@ public class RecommendationEngine {
         return recommendations;
     }
 
-    private List<Movie> getPopularMovieRecommendations(User user, int count) {
-        return movieDatabase.getTopRatedMovies(count * 2).stream()
+    private List<Movie> getModelRecommendations(AlsModel model, User user, int count) {
+        List<Movie> recommendations = new ArrayList<>();
+        int[] movieIds = model.recommend(user, count,
+                movieId -> user.hasWatched(movieId) || movieDatabase.getMovieById(movieId) == null);
+        for (int movieId : movieIds) {
+            recommendations.add(movieDatabase.getMovieById(movieId));
+        }
+        metrics.recordCandidates(RecommendationMetrics.Stage.COLLABORATIVE, model.getMovieCount());
+        return recommendations;
+    }
+
+    private List<Movie> getPopularMovieRecommendations(User user, int count, CandidateSource candidates) {
+        metrics.recordCandidates(RecommendationMetrics.Stage.POPULAR, count * 2L);
+        return candidates.topRated(count * 2).stream()
                 .filter(movie -> !user.hasWatched(movie.getId()))
                 .limit(count)
                 .collect(Collectors.toList());
     }
 
-    private List<User> findSimilarUsers(User targetUser, int maxUsers) {
-        List<User> allUsers = userDatabase.getAllUsers();
-        Map<User, Double> similarities = new HashMap<>();
+    List<UserSimilarityIndex.Neighbor> findSimilarUsers(User targetUser, int maxUsers) {
+        metrics.recordNeighborSearch();
+        List<UserSimilarityIndex.Neighbor> neighbors = similarityIndex.getNeighbors(targetUser);
+        return neighbors.subList(0, Math.min(maxUsers, neighbors.size()));
+    }
 
-        for (User user : allUsers) {
-            if (user.getUserId() != targetUser.getUserId()) {
-                double similarity = calculateUserSimilarity(targetUser, user);
-                if (similarity > 0.3) {
-                    similarities.put(user, similarity);
-                }
-            }
-        }
-        return similarities.entrySet().stream()
-                .sorted(Map.Entry.<User, Double>comparingByValue().reversed())
-                .limit(maxUsers)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+    double calculateUserSimilarity(User user1, User user2) {
+        metrics.recordComparison();
+        return similarityMetric.similarity(user1, user2);
     }
 
-    private double calculateUserSimilarity(User user1, User user2) {
-        Map<Integer, Double> ratings1 = user1.getMovieRatings();
-        Map<Integer, Double> ratings2 = user2.getMovieRatings();
-        Set<Integer> commonMovies = new HashSet<>(ratings1.keySet());
-        commonMovies.retainAll(ratings2.keySet());
+    public SimilarityMetric getSimilarityMetric() {
+        return similarityMetric;
+    }
 
-        if (commonMovies.size() < 2) {
-            return 0.0;
-        }
-        double sum1 = 0, sum2 = 0, sum1Sq = 0, sum2Sq = 0, sumProducts = 0;
+    public void setParallelNeighborSearch(boolean parallel) {
+        similarityIndex.setParallel(parallel);
+    }
 
-        for (Integer movieId : commonMovies) {
-            double rating1 = ratings1.get(movieId);
-            double rating2 = ratings2.get(movieId);
-            sum1 += rating1;
-            sum2 += rating2;
-            sum1Sq += rating1 * rating1;
-            sum2Sq += rating2 * rating2;
-            sumProducts += rating1 * rating2;
-        }
+    public RecommendationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public RecommendationCache getRecommendationCache() {
+        return recommendationCache;
+    }
 
-        double numerator = sumProducts - (sum1 * sum2 / commonMovies.size());
-        double denominator = Math.sqrt((sum1Sq - sum1 * sum1 / commonMovies.size()) * 
-                                      (sum2Sq - sum2 * sum2 / commonMovies.size()));
+    public AlsModel getAlsModel() {
+        return alsModel;
+    }
 
-        if (denominator == 0) return 0.0;
+    /** Serves collaborative recommendations from {@code model}, or from nearest neighbors again when null. */
+    public void setAlsModel(AlsModel model) {
+        this.alsModel = model;
+        recommendationCache.clear();
+    }
 
-        return Math.max(0, numerator / denominator);
+    /**
+     * Trains a model now and then every {@code intervalMillis} on a background thread,
+     * swapping each one in when it is ready; requests keep using the previous model meanwhile.
+     */
+    public synchronized void scheduleAlsTraining(AlsTrainer trainer, long intervalMillis) {
+        if (alsScheduler != null) {
+            alsScheduler.shutdownNow();
+        }
+        alsScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "als-trainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        alsScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                setAlsModel(trainer.train(userDatabase));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                System.err.println("ALS training failed: " + e.getMessage());
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
     }
 
-    private List<String> getGenresFromUserRatings(User user) {
-        Map<String, Double> genreScores = new HashMap<>();
-        Map<String, Integer> genreCounts = new HashMap<>();
+    /** Also drop cached recommendations of users whose neighbors' ratings changed. */
+    public void setInvalidateOnNeighborChange(boolean invalidate) {
+        similarityIndex.setNeighborhoodListener(invalidate ? recommendationCache::invalidate : null);
+    }
 
-        for (Map.Entry<Integer, Double> entry : user.getMovieRatings().entrySet()) {
-            Movie movie = movieDatabase.getMovieById(entry.getKey());
-            if (movie != null && entry.getValue() >= 4.0) {
-                String genre = movie.getGenre();
-                genreScores.merge(genre, entry.getValue(), Double::sum);
-                genreCounts.merge(genre, 1, Integer::sum);
+    private List<String> getGenresFromUserRatings(User user) {
+        CodeDictionary dictionary = movieDatabase.genreDictionary();
+        double[] genreScores = new double[dictionary.size()];
+        int[] genreCounts = new int[genreScores.length];
+        User.Ratings ratings = user.ratings();
+        for (int i = 0; i < ratings.count; i++) {
+            if (ratings.values[i] < 4.0f) continue;
+            Movie movie = movieDatabase.getMovieById(ratings.ids[i]);
+            if (movie == null) continue;
+            for (int code : movie.genreCodes()) {
+                if (code >= genreScores.length) {
+                    genreScores = Arrays.copyOf(genreScores, dictionary.size());
+                    genreCounts = Arrays.copyOf(genreCounts, genreScores.length);
+                }
+                genreScores[code] += ratings.values[i];
+                genreCounts[code]++;
             }
         }
-        return genreScores.entrySet().stream()
-                .map(entry -> {
-                    String genre = entry.getKey();
-                    double totalScore = entry.getValue();
-                    int count = genreCounts.get(genre);
-                    return new AbstractMap.SimpleEntry<>(genre, totalScore / count);
-                })
-                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        List<Integer> rated = new ArrayList<>();
+        for (int code = 0; code < genreCounts.length; code++) {
+            if (genreCounts[code] > 0) {
+                rated.add(code);
+            }
+        }
+        double[] scores = genreScores;
+        int[] counts = genreCounts;
+        rated.sort((a, b) -> Double.compare(scores[b] / counts[b], scores[a] / counts[a]));
+        List<String> genres = new ArrayList<>(rated.size());
+        for (int code : rated) {
+            genres.add(dictionary.decode(code));
+        }
+        return genres;
     }
 
     public List<Movie> getSimilarMovies(Movie targetMovie, int count) {
-        return movieDatabase.getAllMovies().stream()
-                .filter(movie -> movie.getId() != targetMovie.getId())
-                .filter(movie -> movie.getGenre().equals(targetMovie.getGenre()) || 
-                               Math.abs(movie.getRating() - targetMovie.getRating()) <= 1.0)
-                .sorted((m1, m2) -> {
-                    double score1 = calculateMovieSimilarity(targetMovie, m1);
-                    double score2 = calculateMovieSimilarity(targetMovie, m2);
-                    return Double.compare(score2, score1);
-                })
-                .limit(count)
+        int version = movieDatabase.getVersion();
+        synchronized (similarMoviesCache) {
+            if (similarMoviesVersion != version) {
+                similarMoviesCache.clear();
+                similarMoviesVersion = version;
+            }
+            SimilarMovies cached = similarMoviesCache.get(targetMovie.getId());
+            if (cached != null && cached.covers(count)) {
+                return new ArrayList<>(cached.movies.subList(0, Math.min(count, cached.movies.size())));
+            }
+        }
+        List<Movie> result = findSimilarMovies(targetMovie, count);
+        synchronized (similarMoviesCache) {
+            if (similarMoviesVersion == version) {
+                similarMoviesCache.put(targetMovie.getId(), new SimilarMovies(count, result));
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    List<Movie> findSimilarMovies(Movie targetMovie, int count) {
+        IntHashSet seen = new IntHashSet();
+        seen.add(targetMovie.getId());
+        TopK<Map.Entry<Movie, Double>> best =
+                new TopK<>(count, Map.Entry.<Movie, Double>comparingByValue().reversed());
+        List<List<Movie>> sources = new ArrayList<>();
+        for (String genre : targetMovie.getGenres()) {
+            sources.add(movieDatabase.searchByGenre(genre));
+        }
+        sources.add(movieDatabase.getMoviesWithRatingBetween(
+                targetMovie.getRating() - 1.0, targetMovie.getRating() + 1.0));
+        for (List<Movie> candidates : sources) {
+            for (Movie movie : candidates) {
+                if (seen.add(movie.getId())) {
+                    best.offer(new AbstractMap.SimpleEntry<>(movie, calculateMovieSimilarity(targetMovie, movie)));
+                }
+            }
+        }
+        return best.toList().stream()
+                .map(Map.Entry::getKey)
                 .collect(Collectors.toList());
     }
 
     private double calculateMovieSimilarity(Movie movie1, Movie movie2) {
         double score = 0.0;
-        if (movie1.getGenre().equals(movie2.getGenre())) {
-            score += 0.4;
+        int sharedGenres = movie1.sharedGenres(movie2);
+        if (sharedGenres > 0) {
+            // Jaccard overlap, so single-genre movies score exactly as an equality check would.
+            int allGenres = movie1.genreCodes().length + movie2.genreCodes().length - sharedGenres;
+            score += 0.4 * sharedGenres / allGenres;
         }
         double ratingDiff = Math.abs(movie1.getRating() - movie2.getRating());
         score += 0.3 * (1.0 - ratingDiff / 10.0);
@@ -192,18 +360,49 @@ public class RecommendationEngine {
         if (yearDiff <= 10) {
             score += 0.2 * (1.0 - yearDiff / 10.0);
         }
-        if (movie1.getDirector().equals(movie2.getDirector())) {
+        if (movie1.directorCode() == movie2.directorCode()) {
             score += 0.1;
         }
 
         return score;
     }
 
+    /**
+     * Movies users have recently watched and rated most, from the {@link TrendingEngine}.
+     * Until there is enough activity the list is topped up with highly rated recent movies.
+     */
     public List<Movie> getTrendingMovies(int count) {
-        return movieDatabase.getMoviesWithMinRating(7.5).stream()
-                .filter(movie -> movie.getYear() >= 2000)
-                .sorted((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()))
-                .limit(count)
-                .collect(Collectors.toList());
+        return getTrendingMovies(null, count);
+    }
+
+    /** Trending movies of one genre; a null genre means all movies. */
+    public List<Movie> getTrendingMovies(String genre, int count) {
+        List<Movie> trending = trendingEngine.getTrending(genre, count);
+        if (trending.size() >= count) return trending;
+        Set<Movie> seen = new HashSet<>(trending);
+        int genreCode = genre == null ? -1 : movieDatabase.genreDictionary().codeOf(genre);
+        trending.addAll(movieDatabase.getTopRatedMovies(count - trending.size(), 7.5,
+                movie -> movie.getYear() >= 2000
+                        && (genre == null || movie.hasGenre(genreCode))
+                        && !seen.contains(movie)));
+        return trending;
+    }
+
+    public TrendingEngine getTrendingEngine() {
+        return trendingEngine;
+    }
+
+    private static class SimilarMovies {
+        private final int requested;
+        private final List<Movie> movies;
+
+        SimilarMovies(int requested, List<Movie> movies) {
+            this.requested = requested;
+            this.movies = movies;
+        }
+
+        boolean covers(int count) {
+            return count <= requested || movies.size() < requested;
+        }
     }
 }
@@ -0,0 +1,105 @@
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms for the recommendation pipeline: latency and candidate counts
+ * per stage, similarity comparisons and recommendation cache traffic. Recording is
+ * allocation-free and lock-free so it can stay on for every request; {@link #scrape()}
+ * renders everything in the Prometheus text exposition format.
+ */
+public class RecommendationMetrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public enum Stage {
+        REQUEST, GENRE, COLLABORATIVE, POPULAR;
+
+        final String label = "stage=\"" + name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    private final RecommendationCache cache;
+    private final LogHistogram[] latencies = new LogHistogram[Stage.values().length];
+    private final LogHistogram[] candidates = new LogHistogram[Stage.values().length];
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder neighborSearches = new LongAdder();
+
+    public RecommendationMetrics(RecommendationCache cache) {
+        this.cache = cache;
+        for (Stage stage : Stage.values()) {
+            latencies[stage.ordinal()] = new LogHistogram();
+            candidates[stage.ordinal()] = new LogHistogram();
+        }
+    }
+
+    public void recordLatency(Stage stage, long nanos) {
+        latencies[stage.ordinal()].record(nanos);
+    }
+
+    /** Number of movies a stage looked at before picking its results. */
+    public void recordCandidates(Stage stage, long count) {
+        candidates[stage.ordinal()].record(count);
+    }
+
+    public void recordComparison() {
+        comparisons.increment();
+    }
+
+    public void recordNeighborSearch() {
+        neighborSearches.increment();
+    }
+
+    public LogHistogram getLatency(Stage stage) {
+        return latencies[stage.ordinal()];
+    }
+
+    public LogHistogram getCandidates(Stage stage) {
+        return candidates[stage.ordinal()];
+    }
+
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        header(out, "moviebot_recommendation_latency_seconds", "summary",
+                "Time spent per recommendation request and per pipeline stage.");
+        for (Stage stage : Stage.values()) {
+            latencies[stage.ordinal()].writePrometheus(out, "moviebot_recommendation_latency_seconds",
+                    stage.label, 1e-9, QUANTILES);
+        }
+        header(out, "moviebot_recommendation_candidates", "summary",
+                "Movies considered per computed recommendation list, by stage.");
+        for (Stage stage : Stage.values()) {
+            if (stage == Stage.REQUEST) continue;
+            candidates[stage.ordinal()].writePrometheus(out, "moviebot_recommendation_candidates",
+                    stage.label, 1.0, QUANTILES);
+        }
+        counter(out, "moviebot_similarity_comparisons_total",
+                "User-user similarity computations.", comparisons.sum());
+        counter(out, "moviebot_neighbor_searches_total",
+                "Neighbor lists served for collaborative recommendations.", neighborSearches.sum());
+        counter(out, "moviebot_recommendation_cache_hits_total",
+                "Recommendation lists served from the cache.", cache.getHits());
+        counter(out, "moviebot_recommendation_cache_misses_total",
+                "Recommendation lists that had to be computed.", cache.getMisses());
+        counter(out, "moviebot_recommendation_cache_evictions_total",
+                "Cached users evicted to stay within the size bound.", cache.getEvictions());
+        counter(out, "moviebot_recommendation_cache_invalidations_total",
+                "Cached users dropped because their ratings or neighbors changed.", cache.getInvalidations());
+        header(out, "moviebot_recommendation_cache_hit_ratio", "gauge", "Cache hits over all lookups.");
+        out.append("moviebot_recommendation_cache_hit_ratio ").append(cache.getHitRate()).append('\n');
+        header(out, "moviebot_recommendation_cache_users", "gauge", "Users with cached recommendation lists.");
+        out.append("moviebot_recommendation_cache_users ").append(cache.getCachedUsers()).append('\n');
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,65 @@
+import static spark.Spark.*;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import spark.Request;
+
+/**
+ * Admission control for API requests: at most {@code maxConcurrent} run at once, at most
+ * {@code maxQueued} wait for a slot, and a waiter gives up after {@code queueTimeoutMillis}.
+ * Rejected requests get 503 so clients back off instead of piling onto the server.
+ */
+public class RequestLimiter {
+    private static final String PERMIT_ATTRIBUTE = "moviebot.permit";
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+
+    public RequestLimiter(int maxConcurrent, int maxQueued, long queueTimeoutMillis) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    public void register(String pathPattern) {
+        before(pathPattern, (req, res) -> {
+            if (!acquire()) {
+                halt(503, MovieApi.error(res, 503, "Server busy, retry later"));
+            }
+            req.attribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        });
+        afterAfter(pathPattern, (req, res) -> release(req));
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueuedRequests() {
+        return queued.get();
+    }
+
+    private boolean acquire() throws InterruptedException {
+        if (permits.tryAcquire()) return true;
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private void release(Request req) {
+        if (req.attribute(PERMIT_ATTRIBUTE) != null) {
+            req.raw().removeAttribute(PERMIT_ATTRIBUTE);
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * User-user similarity measures over the id-sorted rating snapshots in {@link User}.
+ * Every metric shares one allocation-free merge join over the co-rated movies;
+ * the constants only differ in how the accumulated sums are turned into a score.
+ * Each user's ratings are read once, so concurrent rating writes never tear a score.
+ */
+public enum SimilarityMetric {
+
+    PEARSON {
+        @Override
+        double score(User.Ratings user1, User.Ratings user2, int common, double sum1, double sum2,
+                     double sum1Sq, double sum2Sq, double sumProducts) {
+            double numerator = sumProducts - (sum1 * sum2 / common);
+            double denominator = Math.sqrt((sum1Sq - sum1 * sum1 / common) *
+                                           (sum2Sq - sum2 * sum2 / common));
+            return denominator == 0 ? 0.0 : numerator / denominator;
+        }
+    },
+
+    COSINE {
+        @Override
+        double score(User.Ratings user1, User.Ratings user2, int common, double sum1, double sum2,
+                     double sum1Sq, double sum2Sq, double sumProducts) {
+            double denominator = user1.norm() * user2.norm();
+            return denominator == 0 ? 0.0 : sumProducts / denominator;
+        }
+    },
+
+    ADJUSTED_COSINE {
+        @Override
+        double score(User.Ratings user1, User.Ratings user2, int common, double sum1, double sum2,
+                     double sum1Sq, double sum2Sq, double sumProducts) {
+            double mean1 = user1.average();
+            double mean2 = user2.average();
+            double numerator = sumProducts - mean2 * sum1 - mean1 * sum2 + common * mean1 * mean2;
+            double variance1 = sum1Sq - 2 * mean1 * sum1 + common * mean1 * mean1;
+            double variance2 = sum2Sq - 2 * mean2 * sum2 + common * mean2 * mean2;
+            double denominator = Math.sqrt(variance1 * variance2);
+            return denominator == 0 ? 0.0 : numerator / denominator;
+        }
+    };
+
+    abstract double score(User.Ratings user1, User.Ratings user2, int common, double sum1, double sum2,
+                          double sum1Sq, double sum2Sq, double sumProducts);
+
+    public double similarity(User first, User second) {
+        User.Ratings user1 = first.ratings();
+        User.Ratings user2 = second.ratings();
+        if (user1.count > user2.count) {
+            User.Ratings swap = user1;
+            user1 = user2;
+            user2 = swap;
+        }
+        int n1 = user1.count;
+        int n2 = user2.count;
+        int[] ids1 = user1.ids;
+        int[] ids2 = user2.ids;
+        float[] ratings1 = user1.values;
+        float[] ratings2 = user2.values;
+
+        int common = 0;
+        double sum1 = 0, sum2 = 0, sum1Sq = 0, sum2Sq = 0, sumProducts = 0;
+
+        if ((long) n1 * 8 < n2) {
+            // Very uneven vectors: binary-search the long one instead of walking it.
+            int from = 0;
+            for (int i = 0; i < n1 && from < n2; i++) {
+                int pos = Arrays.binarySearch(ids2, from, n2, ids1[i]);
+                if (pos < 0) {
+                    from = -pos - 1;
+                    continue;
+                }
+                double rating1 = ratings1[i];
+                double rating2 = ratings2[pos];
+                common++;
+                sum1 += rating1;
+                sum2 += rating2;
+                sum1Sq += rating1 * rating1;
+                sum2Sq += rating2 * rating2;
+                sumProducts += rating1 * rating2;
+                from = pos + 1;
+            }
+        } else {
+            int i = 0, j = 0;
+            while (i < n1 && j < n2) {
+                int id1 = ids1[i];
+                int id2 = ids2[j];
+                if (id1 < id2) {
+                    i++;
+                } else if (id1 > id2) {
+                    j++;
+                } else {
+                    double rating1 = ratings1[i++];
+                    double rating2 = ratings2[j++];
+                    common++;
+                    sum1 += rating1;
+                    sum2 += rating2;
+                    sum1Sq += rating1 * rating1;
+                    sum2Sq += rating2 * rating2;
+                    sumProducts += rating1 * rating2;
+                }
+            }
+        }
+
+        if (common < UserSimilarityIndex.MIN_COMMON_MOVIES) {
+            return 0.0;
+        }
+        return Math.max(0, score(user1, user2, common, sum1, sum2, sum1Sq, sum2Sq, sumProducts));
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Point-in-time image of both databases. A snapshot numbered N holds every change logged
+ * in event segments below N, so startup loads it and only replays segments N and up.
+ * Files are written to a temporary name, synced and then renamed, so a crash never leaves
+ * a half-written snapshot behind; reading walks the file through sliding memory-mapped windows.
+ */
+public class Snapshot {
+    private static final long MAGIC = 0x4D42534E41503031L; // "MBSNAP01"
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private Snapshot() {
+    }
+
+    public static void write(Path directory, long segment, MovieDatabase movieDatabase,
+                             UserDatabase userDatabase) throws IOException {
+        Path target = path(directory, segment);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 20))) {
+            out.writeLong(MAGIC);
+            out.writeLong(segment);
+            List<Movie> movies = movieDatabase.getHeapMovies();
+            out.writeInt(movies.size());
+            for (Movie movie : movies) {
+                PersistentStore.writeMovie(out, movie);
+            }
+            List<User> users = userDatabase.getAllUsers();
+            out.writeInt(users.size());
+            for (User user : users) {
+                writeUser(out, user);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Loads the snapshot into the (empty) databases and returns its segment number. */
+    public static long read(Path file, MovieDatabase movieDatabase, UserDatabase userDatabase) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            if (in.getLong() != MAGIC) throw new IOException("Not a snapshot: " + file);
+            long segment = in.getLong();
+            int movieCount = in.getInt();
+            List<Movie> movies = new ArrayList<>(movieCount);
+            for (int i = 0; i < movieCount; i++) {
+                movies.add(new Movie(in.getInt(), in.getString(), in.getString(), in.getInt(),
+                        in.getDouble(), in.getString(), in.getString(), in.getInt()));
+            }
+            movieDatabase.restoreMovies(movies);
+            int userCount = in.getInt();
+            List<User> users = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                users.add(readUser(in));
+            }
+            userDatabase.restoreUsers(users);
+            return segment;
+        }
+    }
+
+    /** Segment number of the newest snapshot in the directory, or -1 if there is none. */
+    public static long latest(Path directory) throws IOException {
+        List<Long> snapshots = list(directory);
+        return snapshots.isEmpty() ? -1 : snapshots.get(snapshots.size() - 1);
+    }
+
+    public static void deleteBefore(Path directory, long segment) throws IOException {
+        for (long number : list(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(path(directory, number));
+            }
+        }
+    }
+
+    public static Path path(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        out.writeInt(user.getUserId());
+        PersistentStore.writeString(out, user.getUsername());
+        PersistentStore.writeString(out, user.getEmail());
+        PersistentStore.writeString(out, user.getPassword());
+        out.writeLong(user.getJoinDate() == null ? Long.MIN_VALUE : user.getJoinDate().getTime());
+        List<String> genres = new ArrayList<>(user.getFavoriteGenres());
+        out.writeInt(genres.size());
+        for (String genre : genres) {
+            PersistentStore.writeString(out, genre);
+        }
+        User.Ratings ratings = user.ratings();
+        int count = ratings.count;
+        int[] ids = ratings.ids;
+        float[] values = ratings.values;
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(ids[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeFloat(values[i]);
+        }
+        int[] watched = user.watchedMovieIdArray();
+        out.writeInt(watched.length);
+        for (int id : watched) {
+            out.writeInt(id);
+        }
+    }
+
+    private static User readUser(Reader in) throws IOException {
+        User user = new User(in.getInt(), in.getString(), in.getString(), in.getString());
+        long joined = in.getLong();
+        user.setJoinDate(joined == Long.MIN_VALUE ? null : new Date(joined));
+        int genreCount = in.getInt();
+        List<String> genres = new ArrayList<>(genreCount);
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(in.getString());
+        }
+        user.setFavoriteGenres(genres);
+        int count = in.getInt();
+        int[] ids = in.getInts(count);
+        float[] values = in.getFloats(count);
+        user.restoreRatings(ids, values, count);
+        user.restoreWatched(in.getInts(in.getInt()));
+        return user;
+    }
+
+    private static List<Long> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return Collections.emptyList();
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> numbers = new ArrayList<>();
+            files.map(path -> path.getFileName().toString())
+                 .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                 .forEach(name -> numbers.add(Long.parseLong(
+                         name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+            Collections.sort(numbers);
+            return numbers;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Sequential reader that remaps the next window whenever the current one runs short. */
+    private static class Reader {
+        private final FileChannel channel;
+        private long windowStart;
+        private MappedByteBuffer buffer;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_BYTES, channel.size()));
+        }
+
+        void ensure(long bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            windowStart += buffer.position();
+            long size = Math.min(Math.max(WINDOW_BYTES, bytes), channel.size() - windowStart);
+            if (size < bytes) throw new EOFException("Truncated snapshot");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        double getDouble() throws IOException {
+            ensure(Double.BYTES);
+            return buffer.getDouble();
+        }
+
+        int[] getInts(int count) throws IOException {
+            int[] values = new int[count];
+            ensure((long) count * Integer.BYTES);
+            buffer.asIntBuffer().get(values);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            return values;
+        }
+
+        float[] getFloats(int count) throws IOException {
+            float[] values = new float[count];
+            ensure((long) count * Float.BYTES);
+            buffer.asFloatBuffer().get(values);
+            buffer.position(buffer.position() + count * Float.BYTES);
+            return values;
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if (length < 0) return null;
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Deterministic generator of large synthetic catalogs and user bases for load and scaling tests.
+ * Movie popularity is Zipfian, each user favors a few genres and draws {@code genreAffinity}
+ * of their ratings from them, and ratings per user follow a heavy-tailed (Pareto) distribution,
+ * which gives the long-tail sparsity of real rating data. Every user is generated from its own
+ * seed-derived stream, so the output depends only on the settings, not on the thread count.
+ *
+ * Feed the databases directly with {@link #populate} or write MovieLens-style CSV files for
+ * {@link BulkImporter} with {@link #writeCsv}.
+ *
+ * Usage: java SyntheticDataGenerator outputDir [movies] [users] [meanRatingsPerUser] [seed]
+ */
+public class SyntheticDataGenerator {
+    static final String[] GENRES = {
+            "Action", "Adventure", "Animation", "Comedy", "Crime", "Documentary", "Drama", "Family",
+            "Fantasy", "Horror", "Musical", "Mystery", "Romance", "Sci-Fi", "Thriller", "War", "Western"
+    };
+    static final String[] TITLE_WORDS = {
+            "dark", "night", "return", "star", "love", "city", "last", "king", "war", "river",
+            "shadow", "story", "lost", "world", "blood", "dream", "game", "secret", "fire", "road"
+    };
+    private static final int USER_BLOCK = 1 << 16;
+    private static final long EPOCH_SECONDS = 1_500_000_000L;
+
+    private int movieCount = 100_000;
+    private int userCount = 100_000;
+    private int meanRatingsPerUser = 50;
+    private double popularitySkew = 1.0;
+    private double genreAffinity = 0.7;
+    private int favoriteGenresPerUser = 2;
+    private long seed = 42L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public void setMovieCount(int movieCount) { this.movieCount = movieCount; }
+    public void setUserCount(int userCount) { this.userCount = userCount; }
+    public void setMeanRatingsPerUser(int meanRatingsPerUser) { this.meanRatingsPerUser = meanRatingsPerUser; }
+    /** Zipf exponent of movie popularity; 0 is uniform, around 1 matches public rating data sets. */
+    public void setPopularitySkew(double popularitySkew) { this.popularitySkew = popularitySkew; }
+    /** Share of each user's ratings drawn from their favorite genres (0 to 1). */
+    public void setGenreAffinity(double genreAffinity) { this.genreAffinity = genreAffinity; }
+    public void setFavoriteGenresPerUser(int favoriteGenresPerUser) { this.favoriteGenresPerUser = favoriteGenresPerUser; }
+    public void setSeed(long seed) { this.seed = seed; }
+    public void setThreads(int threads) { this.threads = Math.max(1, threads); }
+
+    /**
+     * Adds the generated movies and users to the databases. Generated ids are shifted past the
+     * ids the databases already use, so an empty database gets the same ids as {@link #writeCsv};
+     * throws IllegalStateException if a generated user's username is already taken.
+     */
+    public void populate(MovieDatabase movieDatabase, UserDatabase userDatabase) throws InterruptedException {
+        int movieOffset = movieDatabase.nextMovieId() - 1;
+        int userOffset = userDatabase.nextUserId() - 1;
+        Catalog catalog = new Catalog(movieOffset);
+        for (Movie movie : catalog.movies) {
+            if (!movieDatabase.restoreMovie(movie)) {
+                throw new IllegalStateException("Movie id " + movie.getId() + " is already taken");
+            }
+        }
+        generateUsers(catalog, block -> {
+            for (GeneratedUser generated : block) {
+                int id = userOffset + generated.id;
+                int[] movieIds = generated.movieIds;
+                for (int i = 0; i < movieIds.length; i++) {
+                    movieIds[i] += movieOffset;
+                }
+                User user = new User(id, "user" + id, "user" + id + "@example.com", "password");
+                user.setJoinDate(new Date(generated.joined * 1000));
+                user.setFavoriteGenres(new ArrayList<>(Arrays.asList(generated.favoriteGenres)));
+                user.restoreRatings(movieIds, generated.ratings, movieIds.length);
+                user.restoreWatched(movieIds.clone());
+                if (!userDatabase.restoreUser(user)) {
+                    throw new IllegalStateException("User id " + id + " or username " + user.getUsername() + " is already taken");
+                }
+            }
+        });
+    }
+
+    /** Writes {@code movies.csv} and {@code ratings.csv} in MovieLens format into {@code directory}. */
+    public void writeCsv(Path directory) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        Catalog catalog = new Catalog(0);
+        try (Writer out = writer(directory.resolve("movies.csv"))) {
+            out.write("movieId,title,genres\n");
+            for (Movie movie : catalog.movies) {
+                out.write(movie.getId() + ",\"" + movie.getTitle() + " (" + movie.getYear() + ")\"," + movie.getGenre() + "\n");
+            }
+        }
+        try (Writer out = writer(directory.resolve("ratings.csv"))) {
+            out.write("userId,movieId,rating,timestamp\n");
+            IOException[] failure = new IOException[1];
+            generateUsers(catalog, block -> {
+                if (failure[0] != null) return;
+                StringBuilder lines = new StringBuilder(block.size() * meanRatingsPerUser * 24);
+                for (GeneratedUser user : block) {
+                    for (int i = 0; i < user.movieIds.length; i++) {
+                        lines.append(user.id).append(',').append(user.movieIds[i]).append(',')
+                             .append(user.ratings[i]).append(',').append(user.joined + i * 60L).append('\n');
+                    }
+                }
+                try {
+                    out.append(lines);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+        }
+    }
+
+    private static Writer writer(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), 1 << 20);
+    }
+
+    private interface BlockConsumer {
+        void accept(List<GeneratedUser> block);
+    }
+
+    /** Generates users in blocks on a worker pool and hands the blocks over in id order. */
+    private void generateUsers(Catalog catalog, BlockConsumer consumer) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<List<GeneratedUser>>> pending = new ArrayDeque<>();
+            for (int from = 1; from <= userCount; from += USER_BLOCK) {
+                int start = from;
+                int end = (int) Math.min((long) userCount + 1, (long) from + USER_BLOCK);
+                pending.add(pool.submit(() -> {
+                    List<GeneratedUser> block = new ArrayList<>(end - start);
+                    for (int id = start; id < end; id++) {
+                        block.add(catalog.generateUser(id));
+                    }
+                    return block;
+                }));
+                if (pending.size() > threads * 2) {
+                    consumer.accept(take(pending));
+                }
+            }
+            while (!pending.isEmpty()) {
+                consumer.accept(take(pending));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<GeneratedUser> take(Deque<Future<List<GeneratedUser>>> pending) throws InterruptedException {
+        try {
+            return pending.removeFirst().get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Data generation failed", e.getCause());
+        }
+    }
+
+    /** SplitMix64 finalizer; turns (seed, index) into an independent stream seed. */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static float halfStars(double rating) {
+        return (float) (Math.max(1.0, Math.min(5.0, Math.round(rating * 2) / 2.0)));
+    }
+
+    private static class GeneratedUser {
+        private final int id;
+        private final String[] favoriteGenres;
+        private final int[] movieIds;
+        private final float[] ratings;
+        private final long joined;
+
+        GeneratedUser(int id, String[] favoriteGenres, int[] movieIds, float[] ratings, long joined) {
+            this.id = id;
+            this.favoriteGenres = favoriteGenres;
+            this.movieIds = movieIds;
+            this.ratings = ratings;
+            this.joined = joined;
+        }
+    }
+
+    /**
+     * Movies plus the popularity tables users sample from; read-only once built. The tables
+     * use generated ids from 1, the movies carry them shifted by {@code idOffset}.
+     */
+    private class Catalog {
+        private final List<Movie> movies = new ArrayList<>(movieCount);
+        private final double[] quality = new double[movieCount + 1];
+        private final int[] genreOf = new int[movieCount + 1];
+        private final int[] byPopularity = new int[movieCount];
+        private final double[] popularityCdf = new double[movieCount];
+        private final int[][] genreMovies = new int[GENRES.length][];
+        private final double[][] genreCdf = new double[GENRES.length][];
+
+        Catalog(int idOffset) {
+            SplittableRandom random = new SplittableRandom(mix(seed));
+            int[] genreSizes = new int[GENRES.length];
+            for (int id = 1; id <= movieCount; id++) {
+                // Genre sizes are skewed too: Drama and Comedy dominate real catalogs.
+                int genre = Math.min(GENRES.length - 1, (int) (GENRES.length * Math.pow(random.nextDouble(), 1.6)));
+                genre = (genre + 6) % GENRES.length;
+                genreOf[id] = genre;
+                genreSizes[genre]++;
+                quality[id] = Math.max(1.0, Math.min(5.0, 3.4 + random.nextGaussian() * 0.6));
+                String title = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " "
+                        + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + Integer.toString(id, 36);
+                movies.add(new Movie(idOffset + id, title, GENRES[genre], 1920 + random.nextInt(105),
+                        Math.round(quality[id] * 20) / 10.0, "Director " + (1 + random.nextInt(Math.max(1, movieCount / 8))),
+                        "Synthetic movie " + id, 75 + random.nextInt(110)));
+            }
+
+            for (int i = 0; i < movieCount; i++) {
+                byPopularity[i] = i + 1;
+            }
+            for (int i = movieCount - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = byPopularity[i];
+                byPopularity[i] = byPopularity[j];
+                byPopularity[j] = swap;
+            }
+            double total = 0;
+            for (int g = 0; g < GENRES.length; g++) {
+                genreMovies[g] = new int[genreSizes[g]];
+                genreCdf[g] = new double[genreSizes[g]];
+            }
+            int[] filled = new int[GENRES.length];
+            double[] genreTotals = new double[GENRES.length];
+            for (int rank = 0; rank < movieCount; rank++) {
+                double weight = 1.0 / Math.pow(rank + 1, popularitySkew);
+                total += weight;
+                popularityCdf[rank] = total;
+                int movieId = byPopularity[rank];
+                int genre = genreOf[movieId];
+                genreTotals[genre] += weight;
+                genreMovies[genre][filled[genre]] = movieId;
+                genreCdf[genre][filled[genre]++] = genreTotals[genre];
+            }
+        }
+
+        GeneratedUser generateUser(int id) {
+            SplittableRandom random = new SplittableRandom(mix(seed ^ mix(id)));
+            int favoriteCount = Math.max(1, Math.min(GENRES.length, favoriteGenresPerUser));
+            int[] favorites = new int[favoriteCount];
+            String[] favoriteNames = new String[favoriteCount];
+            for (int i = 0; i < favoriteCount; i++) {
+                int genre;
+                do {
+                    genre = random.nextInt(GENRES.length);
+                } while (contains(favorites, i, genre));
+                favorites[i] = genre;
+                favoriteNames[i] = GENRES[genre];
+            }
+
+            // Pareto(shape 2) has mean 2 * minimum; cap at half the catalog to keep users sparse.
+            int wanted = movieCount == 0 ? 0 : (int) Math.min(Math.max(1, movieCount / 2),
+                    Math.max(1, Math.round(meanRatingsPerUser / 2.0 / Math.sqrt(1.0 - random.nextDouble()))));
+            IntHashSet picked = new IntHashSet(wanted);
+            int[] movieIds = new int[wanted];
+            int count = 0;
+            int attempts = 0;
+            while (count < wanted && attempts++ < wanted * 20) {
+                int movieId;
+                int genre = favorites[random.nextInt(favoriteCount)];
+                if (random.nextDouble() < genreAffinity && genreMovies[genre].length > 0) {
+                    movieId = genreMovies[genre][sample(genreCdf[genre], random)];
+                } else {
+                    movieId = byPopularity[sample(popularityCdf, random)];
+                }
+                if (picked.add(movieId)) {
+                    movieIds[count++] = movieId;
+                }
+            }
+            movieIds = Arrays.copyOf(movieIds, count);
+            Arrays.sort(movieIds);
+
+            double bias = random.nextGaussian() * 0.4;
+            float[] ratings = new float[count];
+            for (int i = 0; i < count; i++) {
+                double affinity = contains(favorites, favoriteCount, genreOf[movieIds[i]]) ? 0.3 : -0.1;
+                ratings[i] = halfStars(quality[movieIds[i]] + bias + affinity + random.nextGaussian() * 0.8);
+            }
+            long joined = EPOCH_SECONDS + random.nextInt(5 * 365 * 24 * 3600);
+            return new GeneratedUser(id, favoriteNames, movieIds, ratings, joined);
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    private static int sample(double[] cdf, SplittableRandom random) {
+        int pos = Arrays.binarySearch(cdf, random.nextDouble() * cdf[cdf.length - 1]);
+        return Math.min(cdf.length - 1, pos < 0 ? -pos - 1 : pos);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java SyntheticDataGenerator outputDir [movies] [users] [meanRatingsPerUser] [seed]");
+            System.exit(1);
+        }
+        SyntheticDataGenerator generator = new SyntheticDataGenerator();
+        if (args.length > 1) generator.setMovieCount(Integer.parseInt(args[1]));
+        if (args.length > 2) generator.setUserCount(Integer.parseInt(args[2]));
+        if (args.length > 3) generator.setMeanRatingsPerUser(Integer.parseInt(args[3]));
+        if (args.length > 4) generator.setSeed(Long.parseLong(args[4]));
+        long started = System.currentTimeMillis();
+        generator.writeCsv(Paths.get(args[0]));
+        System.out.println("Wrote " + args[0] + " in " + (System.currentTimeMillis() - started) + " ms");
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.*;
+
+/**
+ * Title search index. Titles are lower-cased once when a movie is added and stored
+ * alongside a trigram posting list (for substring search) and a sorted map (for
+ * prefix autocomplete), so queries never re-normalize the catalog.
+ */
+public class TitleIndex {
+    private final List<Movie> movies;
+    private final List<String> normalizedTitles;
+    private final Map<Long, Postings> trigrams;
+    private final NavigableMap<String, List<Movie>> byTitle;
+
+    public TitleIndex() {
+        this.movies = new ArrayList<>();
+        this.normalizedTitles = new ArrayList<>();
+        this.trigrams = new HashMap<>();
+        this.byTitle = new TreeMap<>();
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    public void add(Movie movie) {
+        int slot = movies.size();
+        String title = movie.normalizedTitle();
+        movies.add(movie);
+        normalizedTitles.add(title);
+        for (int i = 0; i + 3 <= title.length(); i++) {
+            trigrams.computeIfAbsent(trigram(title, i), key -> new Postings()).add(slot);
+        }
+        byTitle.computeIfAbsent(title, key -> new ArrayList<>()).add(movie);
+    }
+
+    /** Movies whose title contains {@code query}, ignoring case, in insertion order. */
+    public List<Movie> search(String query) {
+        String needle = normalize(query);
+        List<Movie> result = new ArrayList<>();
+        if (needle.length() < 3) {
+            for (int slot = 0; slot < normalizedTitles.size(); slot++) {
+                if (normalizedTitles.get(slot).contains(needle)) {
+                    result.add(movies.get(slot));
+                }
+            }
+            return result;
+        }
+
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            Postings postings = trigrams.get(trigram(needle, i));
+            if (postings == null) return result;
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+
+        int[] candidates = Arrays.copyOf(lists.get(0).slots, lists.get(0).size);
+        int count = candidates.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            count = intersect(candidates, count, lists.get(l));
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = candidates[i];
+            if (normalizedTitles.get(slot).contains(needle)) {
+                result.add(movies.get(slot));
+            }
+        }
+        return result;
+    }
+
+    /** Up to {@code limit} movies whose title starts with {@code prefix}, in title order. */
+    public List<Movie> searchPrefix(String prefix, int limit) {
+        String start = normalize(prefix);
+        List<Movie> result = new ArrayList<>();
+        for (List<Movie> sameTitle : byTitle.subMap(start, true, start + Character.MAX_VALUE, false).values()) {
+            for (Movie movie : sameTitle) {
+                if (result.size() >= limit) return result;
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    private static int intersect(int[] candidates, int count, Postings postings) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < postings.size; i++) {
+            int slot = candidates[i];
+            while (j < postings.size && postings.slots[j] < slot) {
+                j++;
+            }
+            if (j < postings.size && postings.slots[j] == slot) {
+                candidates[kept++] = slot;
+            }
+        }
+        return kept;
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+
+    /** Ascending, duplicate-free slot numbers; slots are only ever appended in order. */
+    private static class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size > 0 && slots[size - 1] == slot) return;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
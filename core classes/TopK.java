@@ -0,0 +1,79 @@
+import java.util.*;
+import java.util.stream.Collector;
+
+/**
+ * Bounded top-K selection. Keeps at most {@code k} elements in a heap whose root is the
+ * current worst candidate, so selecting k of n elements costs O(n log k) instead of the
+ * O(n log n) of a full sort. {@code stream.collect(TopK.collector(k, cmp))} returns the
+ * same elements as {@code stream.sorted(cmp).limit(k)}, ordered the same way: elements
+ * the comparator ties are ranked by the order they were offered in, as a stable sort does.
+ */
+public class TopK<T> {
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<Entry<T>> heap;
+    private long sequence;
+
+    public TopK(int k, Comparator<? super T> comparator) {
+        this.k = Math.max(0, k);
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(this.k, 1024)), this::compare);
+    }
+
+    public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> comparator) {
+        return Collector.of(() -> new TopK<T>(k, comparator), TopK::offer, TopK::merge, TopK::toList);
+    }
+
+    public boolean offer(T element) {
+        // A tie with the root loses: the root was offered earlier.
+        if (heap.size() >= k && (k == 0 || comparator.compare(element, heap.peek().element) >= 0)) {
+            return false;
+        }
+        if (heap.size() >= k) {
+            heap.poll();
+        }
+        heap.add(new Entry<>(element, sequence++));
+        return true;
+    }
+
+    /** Adds {@code other}'s elements as if they were offered after this one's. */
+    public TopK<T> merge(TopK<T> other) {
+        List<Entry<T>> entries = new ArrayList<>(other.heap);
+        entries.sort(Comparator.comparingLong(entry -> entry.sequence));
+        for (Entry<T> entry : entries) {
+            offer(entry.element);
+        }
+        return this;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /** Returns the retained elements, best first, as a new mutable list. */
+    public List<T> toList() {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort((a, b) -> compare(b, a));
+        List<T> list = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) {
+            list.add(entry.element);
+        }
+        return list;
+    }
+
+    /** Heap order: positive when {@code a} ranks better than {@code b}. */
+    private int compare(Entry<T> a, Entry<T> b) {
+        int order = comparator.compare(b.element, a.element);
+        return order != 0 ? order : Long.compare(b.sequence, a.sequence);
+    }
+
+    private static class Entry<T> {
+        private final T element;
+        private final long sequence;
+
+        Entry(T element, long sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+    }
+}
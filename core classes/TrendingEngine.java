@@ -0,0 +1,228 @@
+import java.util.*;
+
+/**
+ * What users are watching and rating right now. Every movie has exponentially decayed
+ * view and rating counts in primitive arrays, and its trending score is their sum. A movie
+ * gets a dense slot in the arrays on its first event, so they grow with the number of
+ * movies that saw activity rather than with the largest id; events for ids the database
+ * does not know are ignored. Decay uses a forward landmark: an event at time t adds
+ * {@code 2^((t - landmark) / halfLife)} instead of decaying every counter on every tick,
+ * so scores only grow, their order never changes with time alone, and the counters are
+ * rescaled now and then to stay in range.
+ *
+ * Because scores only grow, a top-K list per genre (and one over all movies) can be kept
+ * up to date on each event in O(k): the movie either moves up within its list or displaces
+ * the list's last entry. Trending queries copy at most k ids, whatever the catalog size.
+ */
+public class TrendingEngine implements UserListener {
+    public static final long DEFAULT_HALF_LIFE_MILLIS = 6 * 60 * 60 * 1000L;
+    public static final int DEFAULT_TOP_K = 100;
+    private static final double MAX_EXPONENT = 64.0;
+
+    private final MovieDatabase movieDatabase;
+    private final double halfLifeMillis;
+    private final int topK;
+    private final TopList allMovies;
+    /** Indexed by the database's genre code; null until a movie of the genre trends. */
+    private final List<TopList> genreLists = new ArrayList<>();
+    private long landmark;
+    /** Slot plus one of every movie that has had an event. */
+    private final IntCountMap slots = new IntCountMap();
+    private int slotCount;
+    private int[] movieIds = new int[1024];
+    private double[] views = new double[1024];
+    private double[] ratings = new double[1024];
+    private double[] scores = new double[1024];
+    /** Genre codes of the movie in each slot. */
+    private int[][] genresOf = new int[1024][];
+
+    public TrendingEngine(MovieDatabase movieDatabase) {
+        this(movieDatabase, DEFAULT_HALF_LIFE_MILLIS, DEFAULT_TOP_K);
+    }
+
+    public TrendingEngine(MovieDatabase movieDatabase, long halfLifeMillis, int topK) {
+        if (halfLifeMillis <= 0) throw new IllegalArgumentException("Half-life must be positive");
+        this.movieDatabase = movieDatabase;
+        this.halfLifeMillis = halfLifeMillis;
+        this.topK = Math.max(1, topK);
+        this.allMovies = new TopList(this.topK);
+        this.landmark = System.currentTimeMillis();
+    }
+
+    @Override
+    public void movieWatched(User user, int movieId) {
+        recordView(movieId, System.currentTimeMillis());
+    }
+
+    @Override
+    public void ratingChanged(User user, int movieId, double rating) {
+        recordRating(movieId, System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized void ratingsChanged(User user, int[] movieIds, float[] ratings, int count) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            recordRating(movieIds[i], now);
+        }
+    }
+
+    public synchronized void recordView(int movieId, long timeMillis) {
+        int slot = slotFor(movieId);
+        if (slot < 0) return;
+        double weight = weight(timeMillis);
+        views[slot] += weight;
+        promote(slot, weight);
+    }
+
+    public synchronized void recordRating(int movieId, long timeMillis) {
+        int slot = slotFor(movieId);
+        if (slot < 0) return;
+        double weight = weight(timeMillis);
+        ratings[slot] += weight;
+        promote(slot, weight);
+    }
+
+    /** Up to {@code count} (at most the top-K size) movies, most trending first; null genre means all. */
+    public List<Movie> getTrending(String genre, int count) {
+        int[] ids;
+        synchronized (this) {
+            TopList list = genre == null ? allMovies : genreList(movieDatabase.genreDictionary().codeOf(genre), false);
+            if (list == null) return new ArrayList<>();
+            ids = new int[Math.min(Math.max(0, count), list.size)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = movieIds[list.slots[i]];
+            }
+        }
+        List<Movie> movies = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Movie movie = movieDatabase.getMovieById(id);
+            if (movie != null) {
+                movies.add(movie);
+            }
+        }
+        return movies;
+    }
+
+    /** Views of the movie decayed to now. */
+    public synchronized double getViews(int movieId) {
+        int slot = slots.get(movieId) - 1;
+        return slot < 0 ? 0.0 : views[slot] * decayToNow();
+    }
+
+    /** Ratings of the movie decayed to now. */
+    public synchronized double getRatings(int movieId) {
+        int slot = slots.get(movieId) - 1;
+        return slot < 0 ? 0.0 : ratings[slot] * decayToNow();
+    }
+
+    public synchronized double getScore(int movieId) {
+        int slot = slots.get(movieId) - 1;
+        return slot < 0 ? 0.0 : scores[slot] * decayToNow();
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    private double weight(long timeMillis) {
+        double exponent = (timeMillis - landmark) / halfLifeMillis;
+        if (exponent > MAX_EXPONENT) {
+            rescale(timeMillis);
+            exponent = 0.0;
+        }
+        return Math.pow(2.0, exponent);
+    }
+
+    /** Moves the landmark to {@code now}; every counter shrinks by the same factor, so no list changes. */
+    private void rescale(long now) {
+        double factor = Math.pow(2.0, -(now - landmark) / halfLifeMillis);
+        for (int i = 0; i < slotCount; i++) {
+            views[i] *= factor;
+            ratings[i] *= factor;
+            scores[i] *= factor;
+        }
+        landmark = now;
+    }
+
+    private double decayToNow() {
+        return Math.pow(2.0, -(System.currentTimeMillis() - landmark) / halfLifeMillis);
+    }
+
+    private void promote(int slot, double weight) {
+        scores[slot] += weight;
+        allMovies.promote(slot, scores);
+        for (int code : genresOf[slot]) {
+            genreList(code, true).promote(slot, scores);
+        }
+    }
+
+    /** Slot of the movie, taking the next one on its first event; -1 for an unknown movie. */
+    private int slotFor(int movieId) {
+        int slot = slots.get(movieId) - 1;
+        if (slot >= 0) return slot;
+        Movie movie = movieDatabase.getMovieById(movieId);
+        if (movie == null) return -1;
+        slot = slotCount++;
+        slots.add(movieId, slot + 1);
+        if (slot == scores.length) {
+            int size = scores.length * 2;
+            movieIds = Arrays.copyOf(movieIds, size);
+            views = Arrays.copyOf(views, size);
+            ratings = Arrays.copyOf(ratings, size);
+            scores = Arrays.copyOf(scores, size);
+            genresOf = Arrays.copyOf(genresOf, size);
+        }
+        movieIds[slot] = movieId;
+        genresOf[slot] = movie.genreCodes();
+        return slot;
+    }
+
+    private TopList genreList(int code, boolean create) {
+        if (code < 0) return null;
+        while (create && genreLists.size() <= code) {
+            genreLists.add(null);
+        }
+        TopList list = code < genreLists.size() ? genreLists.get(code) : null;
+        if (list == null && create) {
+            list = new TopList(topK);
+            genreLists.set(code, list);
+        }
+        return list;
+    }
+
+    /** Movie slots ordered by descending score; relies on scores never decreasing. */
+    private static final class TopList {
+        final int[] slots;
+        int size;
+
+        TopList(int capacity) {
+            this.slots = new int[capacity];
+        }
+
+        void promote(int slot, double[] scores) {
+            double score = scores[slot];
+            int pos = -1;
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    pos = i;
+                    break;
+                }
+            }
+            if (pos < 0) {
+                if (size < slots.length) {
+                    pos = size++;
+                } else if (score > scores[slots[size - 1]]) {
+                    pos = size - 1;
+                } else {
+                    return;
+                }
+                slots[pos] = slot;
+            }
+            while (pos > 0 && scores[slots[pos - 1]] < score) {
+                slots[pos] = slots[pos - 1];
+                slots[--pos] = slot;
+            }
+        }
+    }
+}
@@ -1,29 +1,47 @@
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A user with favorite genres, watched movies and ratings. Ratings are immutable sorted
+ * snapshots republished on every change, so readers (similarity scoring, recommendations,
+ * snapshots) never lock and never see a half-applied update; writers to the same user
+ * serialize on the user and notify the listener in the order they applied, then tell it
+ * the change is done once the lock is released.
+ *
+ * Watched ids live in an {@link IntHashSet} that is only ever grown, under the user lock:
+ * an add that fits fills one empty slot in place, and an add that would rehash fills a
+ * larger copy which is then published. A slot goes from empty to its id exactly once, so
+ * {@link #hasWatched} probes without locking in O(1) and at worst misses an id that is
+ * being added at that moment.
+ */
 public class User {
+    private static final int[] NO_IDS = new int[0];
+
     private int userId;
     private String username;
     private String email;
     private String password;
-    private List<String> favoriteGenres;
-    private List<Integer> watchedMovieIds;
-    private Map<Integer, Double> movieRatings;
+    private volatile List<String> favoriteGenres;
+    private volatile IntHashSet watched;
+    private volatile Ratings ratings;
     private Date joinDate;
+    private UserListener listener;
 
     public User(int userId, String username, String email, String password) {
         this.userId = userId;
         this.username = username;
         this.email = email;
         this.password = password;
-        this.favoriteGenres = new ArrayList<>();
-        this.watchedMovieIds = new ArrayList<>();
-        this.movieRatings = new HashMap<>();
+        this.favoriteGenres = new CopyOnWriteArrayList<>();
+        this.watched = new IntHashSet();
+        this.ratings = Ratings.EMPTY;
         this.joinDate = new Date();
     }
 
     public User() {
-        this.favoriteGenres = new ArrayList<>();
-        this.watchedMovieIds = new ArrayList<>();
-        this.movieRatings = new HashMap<>();
+        this.favoriteGenres = new CopyOnWriteArrayList<>();
+        this.watched = new IntHashSet();
+        this.ratings = Ratings.EMPTY;
         this.joinDate = new Date();
     }
 
@@ -40,56 +58,182 @@ public class User {
     public void setPassword(String password) { this.password = password; }
 
     public List<String> getFavoriteGenres() { return favoriteGenres; }
-    public void setFavoriteGenres(List<String> favoriteGenres) { this.favoriteGenres = favoriteGenres; }
+    public void setFavoriteGenres(List<String> favoriteGenres) {
+        synchronized (this) {
+            this.favoriteGenres = new CopyOnWriteArrayList<>(new LinkedHashSet<>(favoriteGenres));
+            if (listener == null) return;
+            listener.favoriteGenresChanged(this);
+        }
+        listener.changeApplied(this);
+    }
 
-    public List<Integer> getWatchedMovieIds() { return watchedMovieIds; }
-    public void setWatchedMovieIds(List<Integer> watchedMovieIds) { this.watchedMovieIds = watchedMovieIds; }
+    public List<Integer> getWatchedMovieIds() {
+        int[] sorted = watchedMovieIdArray();
+        List<Integer> ids = new ArrayList<>(sorted.length);
+        for (int id : sorted) {
+            ids.add(id);
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    public synchronized void setWatchedMovieIds(List<Integer> watchedMovieIds) {
+        IntHashSet distinct = new IntHashSet(watchedMovieIds.size());
+        for (int id : watchedMovieIds) {
+            distinct.add(id);
+        }
+        this.watched = distinct;
+    }
 
-    public Map<Integer, Double> getMovieRatings() { return movieRatings; }
-    public void setMovieRatings(Map<Integer, Double> movieRatings) { this.movieRatings = movieRatings; }
+    /** Read-only view of the ratings as they were when this method was called. */
+    public Map<Integer, Double> getMovieRatings() { return new RatingsView(ratings); }
+
+    public synchronized void setMovieRatings(Map<Integer, Double> movieRatings) {
+        int[] ids = new int[movieRatings.size()];
+        int i = 0;
+        for (int id : movieRatings.keySet()) {
+            ids[i++] = id;
+        }
+        Arrays.sort(ids);
+        float[] values = new float[ids.length];
+        for (i = 0; i < ids.length; i++) {
+            values[i] = movieRatings.get(ids[i]).floatValue();
+        }
+        this.ratings = new Ratings(ids, values, ids.length);
+    }
+
+    public int getRatingCount() { return ratings.count; }
+
+    /** Current rating snapshot; it never changes, later ratings publish a new one. */
+    Ratings ratings() { return ratings; }
+
+    /** Replaces all ratings without notifying the listener; {@code ids} must be sorted ascending. */
+    synchronized void restoreRatings(int[] ids, float[] values, int count) {
+        this.ratings = new Ratings(ids, values, count);
+    }
+
+    /** Watched ids in ascending order; locked so no add runs while the set is copied out. */
+    synchronized int[] watchedMovieIdArray() { return watched.toSortedArray(); }
+
+    /** Replaces the watched ids without notifying the listener. */
+    synchronized void restoreWatched(int[] ids) {
+        IntHashSet restored = new IntHashSet(ids.length);
+        for (int id : ids) {
+            restored.add(id);
+        }
+        this.watched = restored;
+    }
 
     public Date getJoinDate() { return joinDate; }
     public void setJoinDate(Date joinDate) { this.joinDate = joinDate; }
 
+    void setListener(UserListener listener) { this.listener = listener; }
+
     public void addFavoriteGenre(String genre) {
-        if (!favoriteGenres.contains(genre)) {
+        synchronized (this) {
+            if (favoriteGenres.contains(genre)) return;
             favoriteGenres.add(genre);
+            if (listener == null) return;
+            listener.favoriteGenresChanged(this);
         }
+        listener.changeApplied(this);
     }
 
     public void removeFavoriteGenre(String genre) {
-        favoriteGenres.remove(genre);
+        synchronized (this) {
+            if (!favoriteGenres.remove(genre) || listener == null) return;
+            listener.favoriteGenresChanged(this);
+        }
+        listener.changeApplied(this);
     }
 
     public void addWatchedMovie(int movieId) {
-        if (!watchedMovieIds.contains(movieId)) {
-            watchedMovieIds.add(movieId);
+        synchronized (this) {
+            if (!markWatched(movieId) || listener == null) return;
+            listener.movieWatched(this, movieId);
+        }
+        listener.changeApplied(this);
+    }
+
+    /** Adds to the watched set without an event; rating a movie reports the rating instead. */
+    private boolean markWatched(int movieId) {
+        IntHashSet current = watched;
+        if (current.contains(movieId)) return false;
+        if (movieId != 0 && current.isFull()) {
+            IntHashSet grown = current.copy(current.size() * 2 + 1);
+            grown.add(movieId);
+            watched = grown;
+            return true;
         }
+        return current.add(movieId);
     }
 
     public void rateMovie(int movieId, double rating) {
-        if (rating >= 1.0 && rating <= 5.0) {
-            movieRatings.put(movieId, rating);
-            addWatchedMovie(movieId);
+        if (rating < 1.0 || rating > 5.0) return;
+        synchronized (this) {
+            Ratings previous = ratings;
+            ratings = previous.with(movieId, (float) rating);
+            markWatched(movieId);
+            if (listener == null || ratings == previous) return;
+            listener.ratingChanged(this, movieId, rating);
         }
+        listener.changeApplied(this);
     }
 
-    public double getAverageRating() {
-        if (movieRatings.isEmpty()) return 0.0;
+    /**
+     * Applies many ratings under one lock and publishes a single new snapshot, which is far
+     * cheaper than one copy per rating. Ratings outside 1-5 are skipped; when a movie appears
+     * more than once the last rating wins. Listeners get one batch event with the changes.
+     */
+    public void rateMovies(int[] movieIds, float[] ratings, int count) {
+        if (applyRatings(movieIds, ratings, count) && listener != null) {
+            listener.changeApplied(this);
+        }
+    }
 
-        double sum = 0.0;
-        for (double rating : movieRatings.values()) {
-            sum += rating;
+    /** Applies and reports a batch under the user lock; returns false if nothing changed. */
+    private synchronized boolean applyRatings(int[] movieIds, float[] ratings, int count) {
+        long[] order = new long[count];
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            if (ratings[i] >= 1.0f && ratings[i] <= 5.0f) {
+                order[valid++] = ((long) movieIds[i] << 32) | i;
+            }
         }
-        return sum / movieRatings.size();
+        Arrays.sort(order, 0, valid);
+        Ratings previous = ratings();
+        int[] changedIds = new int[valid];
+        float[] changedValues = new float[valid];
+        int changed = 0;
+        for (int i = 0; i < valid; i++) {
+            if (i + 1 < valid && (order[i + 1] >> 32) == (order[i] >> 32)) continue;
+            int movieId = (int) (order[i] >> 32);
+            float rating = ratings[(int) order[i]];
+            markWatched(movieId);
+            int pos = previous.indexOf(movieId);
+            if (pos >= 0 && previous.values[pos] == rating) continue;
+            changedIds[changed] = movieId;
+            changedValues[changed++] = rating;
+        }
+        if (changed == 0) return false;
+        this.ratings = previous.withAll(changedIds, changedValues, changed);
+        if (listener != null) {
+            listener.ratingsChanged(this, changedIds, changedValues, changed);
+        }
+        return true;
+    }
+
+    public double getAverageRating() {
+        return ratings.average();
     }
 
     public boolean hasWatched(int movieId) {
-        return watchedMovieIds.contains(movieId);
+        return watched.contains(movieId);
     }
 
     public Double getRatingForMovie(int movieId) {
-        return movieRatings.get(movieId);
+        Ratings current = ratings;
+        int pos = current.indexOf(movieId);
+        return pos >= 0 ? (double) current.values[pos] : null;
     }
 
     @Override
@@ -99,8 +243,161 @@ public class User {
                 ", username='" + username + '\'' +
                 ", email='" + email + '\'' +
                 ", favoriteGenres=" + favoriteGenres +
-                ", watchedMovies=" + watchedMovieIds.size() +
+                ", watchedMovies=" + watched.size() +
                 ", averageRating=" + String.format("%.1f", getAverageRating()) +
                 '}';
     }
+
+    /**
+     * Immutable rating snapshot: movie ids sorted ascending with their ratings in a parallel
+     * array, plus running sums for means and norms. Only the first {@code count} slots are valid.
+     */
+    static final class Ratings {
+        static final Ratings EMPTY = new Ratings(NO_IDS, new float[0], 0);
+
+        final int[] ids;
+        final float[] values;
+        final int count;
+        final double sum;
+        final double squareSum;
+
+        Ratings(int[] ids, float[] values, int count) {
+            double total = 0.0;
+            double squares = 0.0;
+            for (int i = 0; i < count; i++) {
+                total += values[i];
+                squares += (double) values[i] * values[i];
+            }
+            this.ids = ids;
+            this.values = values;
+            this.count = count;
+            this.sum = total;
+            this.squareSum = squares;
+        }
+
+        private Ratings(int[] ids, float[] values, int count, double sum, double squareSum) {
+            this.ids = ids;
+            this.values = values;
+            this.count = count;
+            this.sum = sum;
+            this.squareSum = squareSum;
+        }
+
+        int indexOf(int movieId) {
+            return Arrays.binarySearch(ids, 0, count, movieId);
+        }
+
+        double average() {
+            return count == 0 ? 0.0 : sum / count;
+        }
+
+        double norm() {
+            return Math.sqrt(squareSum);
+        }
+
+        /** Snapshot with {@code movieId} set to {@code rating}, or this one if nothing changes. */
+        Ratings with(int movieId, float rating) {
+            int pos = indexOf(movieId);
+            if (pos >= 0) {
+                float previous = values[pos];
+                if (previous == rating) return this;
+                float[] updated = Arrays.copyOf(values, count);
+                updated[pos] = rating;
+                return new Ratings(Arrays.copyOf(ids, count), updated, count, sum + rating - previous,
+                        squareSum + (double) rating * rating - (double) previous * previous);
+            }
+            pos = -pos - 1;
+            int[] newIds = new int[count + 1];
+            float[] newValues = new float[count + 1];
+            System.arraycopy(ids, 0, newIds, 0, pos);
+            System.arraycopy(values, 0, newValues, 0, pos);
+            newIds[pos] = movieId;
+            newValues[pos] = rating;
+            System.arraycopy(ids, pos, newIds, pos + 1, count - pos);
+            System.arraycopy(values, pos, newValues, pos + 1, count - pos);
+            return new Ratings(newIds, newValues, count + 1, sum + rating, squareSum + (double) rating * rating);
+        }
+
+        /** Snapshot with every rating of the id-sorted, duplicate-free {@code movieIds} applied. */
+        Ratings withAll(int[] movieIds, float[] ratings, int updates) {
+            int[] newIds = new int[count + updates];
+            float[] newValues = new float[count + updates];
+            double newSum = sum;
+            double newSquareSum = squareSum;
+            int i = 0, j = 0, n = 0;
+            while (i < count || j < updates) {
+                if (j == updates || (i < count && ids[i] < movieIds[j])) {
+                    newIds[n] = ids[i];
+                    newValues[n++] = values[i++];
+                    continue;
+                }
+                float rating = ratings[j];
+                if (i < count && ids[i] == movieIds[j]) {
+                    newSum -= values[i];
+                    newSquareSum -= (double) values[i] * values[i];
+                    i++;
+                }
+                newSum += rating;
+                newSquareSum += (double) rating * rating;
+                newIds[n] = movieIds[j++];
+                newValues[n++] = rating;
+            }
+            return new Ratings(newIds, newValues, n, newSum, newSquareSum);
+        }
+    }
+
+    /** Read-only map view over one rating snapshot. */
+    private static class RatingsView extends AbstractMap<Integer, Double> {
+        private final Ratings ratings;
+
+        RatingsView(Ratings ratings) {
+            this.ratings = ratings;
+        }
+
+        @Override
+        public int size() {
+            return ratings.count;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && ratings.indexOf((Integer) key) >= 0;
+        }
+
+        @Override
+        public Double get(Object key) {
+            if (!(key instanceof Integer)) return null;
+            int pos = ratings.indexOf((Integer) key);
+            return pos >= 0 ? (double) ratings.values[pos] : null;
+        }
+
+        @Override
+        public Set<Entry<Integer, Double>> entrySet() {
+            return new AbstractSet<Entry<Integer, Double>>() {
+                @Override
+                public int size() {
+                    return ratings.count;
+                }
+
+                @Override
+                public Iterator<Entry<Integer, Double>> iterator() {
+                    return new Iterator<Entry<Integer, Double>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < ratings.count;
+                        }
+
+                        @Override
+                        public Entry<Integer, Double> next() {
+                            if (next >= ratings.count) throw new NoSuchElementException();
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(ratings.ids[i], (double) ratings.values[i]);
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -1,16 +1,84 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Users by id and username plus the movie-to-raters postings. Safe for concurrent use:
+ * ids come from an atomic counter, lookups go through concurrent maps, and each movie's
+ * rater set is locked on its own, so ratings of different movies never contend. Listing
+ * methods work on a copy of the user list and never block writers for long.
+ */
 public class UserDatabase {
-    private List<User> users;
-    private Map<Integer, User> userMap;
-    private Map<String, User> usernameMap;
-    private int nextId;
+    private final List<User> users;
+    private final Map<Integer, User> userMap;
+    private final Map<String, User> usernameMap;
+    private final Map<Integer, IntHashSet> ratersByMovie;
+    private final List<UserListener> listeners;
+    private final UserListener dispatcher;
+    private final AtomicInteger nextId;
 
     public UserDatabase() {
+        this(true);
+    }
+
+    public UserDatabase(boolean withSamples) {
         this.users = new ArrayList<>();
-        this.userMap = new HashMap<>();
-        this.usernameMap = new HashMap<>();
-        this.nextId = 1;
-        initializeSampleUsers();
+        this.userMap = new ConcurrentHashMap<>();
+        this.usernameMap = new ConcurrentHashMap<>();
+        this.ratersByMovie = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.dispatcher = new UserListener() {
+            @Override
+            public void userAdded(User user) {
+                for (UserListener listener : listeners) {
+                    listener.userAdded(user);
+                }
+            }
+
+            @Override
+            public void ratingChanged(User user, int movieId, double rating) {
+                addRater(movieId, user.getUserId());
+                for (UserListener listener : listeners) {
+                    listener.ratingChanged(user, movieId, rating);
+                }
+            }
+
+            @Override
+            public void ratingsChanged(User user, int[] movieIds, float[] ratings, int count) {
+                for (int i = 0; i < count; i++) {
+                    addRater(movieIds[i], user.getUserId());
+                }
+                for (UserListener listener : listeners) {
+                    listener.ratingsChanged(user, movieIds, ratings, count);
+                }
+            }
+
+            @Override
+            public void movieWatched(User user, int movieId) {
+                for (UserListener listener : listeners) {
+                    listener.movieWatched(user, movieId);
+                }
+            }
+
+            @Override
+            public void favoriteGenresChanged(User user) {
+                for (UserListener listener : listeners) {
+                    listener.favoriteGenresChanged(user);
+                }
+            }
+
+            @Override
+            public void changeApplied(User user) {
+                for (UserListener listener : listeners) {
+                    listener.changeApplied(user);
+                }
+            }
+        };
+        this.nextId = new AtomicInteger(1);
+        if (withSamples) {
+            initializeSampleUsers();
+        }
     }
 
     private void initializeSampleUsers() {
@@ -47,14 +115,110 @@ public class UserDatabase {
         diana.rateMovie(2, 4.0);
     }
 
+    /**
+     * Registers a new user; throws if the username is already taken. The id is only taken
+     * once the username is known to be free, so a refused registration leaves no gap.
+     */
     public User addUser(String username, String email, String password) {
-        User user = new User(nextId++, username, email, password);
-        users.add(user);
+        User[] created = new User[1];
+        usernameMap.computeIfAbsent(username.toLowerCase(),
+                key -> created[0] = new User(nextId.getAndIncrement(), username, email, password));
+        User user = created[0];
+        if (user == null) {
+            throw new IllegalArgumentException("Username already exists: " + username);
+        }
         userMap.put(user.getUserId(), user);
-        usernameMap.put(username.toLowerCase(), user);
+        synchronized (users) {
+            users.add(user);
+        }
+        user.setListener(dispatcher);
+        dispatcher.userAdded(user);
         return user;
     }
 
+    public void addListener(UserListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(UserListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds a user under its existing id without notifying listeners; returns false if the id
+     * or the username is taken.
+     */
+    boolean restoreUser(User user) {
+        if (!claim(user)) return false;
+        synchronized (users) {
+            users.add(user);
+        }
+        User.Ratings ratings = user.ratings();
+        for (int i = 0; i < ratings.count; i++) {
+            addRater(ratings.ids[i], user.getUserId());
+        }
+        user.setListener(dispatcher);
+        nextId.accumulateAndGet(user.getUserId() + 1, Math::max);
+        return true;
+    }
+
+    /**
+     * Bulk form of {@link #restoreUser}: stores every user first, then builds the rater
+     * postings in one pass and publishes each movie's set whole. Returns how many were added.
+     */
+    int restoreUsers(Collection<User> restored) {
+        List<User> added = new ArrayList<>(restored.size());
+        int maxId = 0;
+        for (User user : restored) {
+            if (!claim(user)) continue;
+            added.add(user);
+            maxId = Math.max(maxId, user.getUserId());
+        }
+        synchronized (users) {
+            users.addAll(added);
+        }
+        Map<Integer, IntHashSet> postings = new HashMap<>();
+        for (User user : added) {
+            User.Ratings ratings = user.ratings();
+            for (int i = 0; i < ratings.count; i++) {
+                postings.computeIfAbsent(ratings.ids[i], id -> new IntHashSet()).add(user.getUserId());
+            }
+            user.setListener(dispatcher);
+        }
+        for (Map.Entry<Integer, IntHashSet> entry : postings.entrySet()) {
+            IntHashSet raters = ratersByMovie.putIfAbsent(entry.getKey(), entry.getValue());
+            if (raters != null) {
+                synchronized (raters) {
+                    entry.getValue().forEach(raters::add);
+                }
+            }
+        }
+        nextId.accumulateAndGet(maxId + 1, Math::max);
+        return added.size();
+    }
+
+    /** Lowest id above every stored user. */
+    int nextUserId() {
+        return nextId.get();
+    }
+
+    /** Takes the user's id and then its username, giving the id back if the name is taken. */
+    private boolean claim(User user) {
+        if (userMap.putIfAbsent(user.getUserId(), user) != null) return false;
+        if (usernameMap.putIfAbsent(user.getUsername().toLowerCase(), user) != null) {
+            userMap.remove(user.getUserId(), user);
+            return false;
+        }
+        return true;
+    }
+
+    private void addRater(int movieId, int userId) {
+        IntHashSet raters = ratersByMovie.computeIfAbsent(movieId, id -> new IntHashSet());
+        synchronized (raters) {
+            raters.add(userId);
+        }
+    }
+
     public User getUserById(int userId) {
         return userMap.get(userId);
     }
@@ -64,7 +228,43 @@ public class UserDatabase {
     }
 
     public List<User> getAllUsers() {
-        return new ArrayList<>(users);
+        synchronized (users) {
+            return new ArrayList<>(users);
+        }
+    }
+
+    public Set<Integer> getRaterIds(int movieId) {
+        IntHashSet raters = ratersByMovie.get(movieId);
+        if (raters == null) return Collections.emptySet();
+        int[] sorted;
+        synchronized (raters) {
+            sorted = raters.toSortedArray();
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (int id : sorted) {
+            ids.add(id);
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    public List<User> getCoRaters(User user, int minCommonMovies) {
+        IntCountMap commonCounts = new IntCountMap();
+        int threshold = Math.max(1, minCommonMovies);
+        List<User> result = new ArrayList<>();
+        User.Ratings ratings = user.ratings();
+        for (int i = 0; i < ratings.count; i++) {
+            IntHashSet raters = ratersByMovie.get(ratings.ids[i]);
+            if (raters == null) continue;
+            synchronized (raters) {
+                raters.forEach(raterId -> {
+                    // Each rater is added once, on the movie that brings them to the threshold.
+                    if (raterId != user.getUserId() && commonCounts.increment(raterId) == threshold) {
+                        result.add(userMap.get(raterId));
+                    }
+                });
+            }
+        }
+        return result;
     }
 
     public boolean usernameExists(String username) {
@@ -73,26 +273,26 @@ public class UserDatabase {
 
     public User authenticateUser(String username, String password) {
         User user = getUserByUsername(username);
-        if (user != null && user.getPassword().equals(password)) {
+        if (user != null && user.getPassword() != null && user.getPassword().equals(password)) {
             return user;
         }
         return null;
     }
 
     public int getUserCount() {
-        return users.size();
+        return userMap.size();
     }
 
     public void printAllUsers() {
         System.out.println("\n=== ALL USERS ===");
-        for (User user : users) {
+        for (User user : getAllUsers()) {
             System.out.println(user);
         }
     }
 
     public List<User> getUsersByFavoriteGenre(String genre) {
         List<User> result = new ArrayList<>();
-        for (User user : users) {
+        for (User user : getAllUsers()) {
             if (user.getFavoriteGenres().contains(genre)) {
                 result.add(user);
             }
@@ -101,9 +301,7 @@ public class UserDatabase {
     }
 
     public List<User> getMostActiveUsers(int limit) {
-        return users.stream()
-                .sorted((u1, u2) -> Integer.compare(u2.getMovieRatings().size(), u1.getMovieRatings().size()))
-                .limit(limit)
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        return getAllUsers().stream()
+                .collect(TopK.collector(limit, (u1, u2) -> Integer.compare(u2.getRatingCount(), u1.getRatingCount())));
     }
 }
@@ -0,0 +1,24 @@
+public interface UserListener {
+
+    default void userAdded(User user) {}
+
+    default void ratingChanged(User user, int movieId, double rating) {}
+
+    /** Several ratings applied to {@code user} at once; by default replayed as single changes. */
+    default void ratingsChanged(User user, int[] movieIds, float[] ratings, int count) {
+        for (int i = 0; i < count; i++) {
+            ratingChanged(user, movieIds[i], ratings[i]);
+        }
+    }
+
+    default void favoriteGenresChanged(User user) {}
+
+    /** {@code user} marked a movie as watched without rating it. */
+    default void movieWatched(User user, int movieId) {}
+
+    /**
+     * Follows every change event once the user's lock is released, on the thread that made
+     * the change. Work that blocks, like waiting for a write to reach disk, belongs here.
+     */
+    default void changeApplied(User user) {}
+}
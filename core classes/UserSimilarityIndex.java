@@ -0,0 +1,263 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleBiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the top-K most similar users for every user so that collaborative
+ * recommendations only have to look at K neighbors instead of the whole user base.
+ * Neighbor lists are built lazily on first use and then patched incrementally
+ * whenever a user's ratings change. Candidates come from the movie-to-raters
+ * postings in {@link UserDatabase}, so only users sharing at least
+ * {@link #MIN_COMMON_MOVIES} rated movies are ever compared. In parallel mode
+ * large candidate sets are split across the common fork-join pool, each worker
+ * keeping its own bounded {@link TopK} heap, and the heaps are merged at the end.
+ *
+ * Rating writers never wait on the index: a change only queues the user, and a single
+ * background worker applies queued changes one user at a time, coalescing repeated
+ * ratings by the same user. A reader first applies whatever is still queued itself,
+ * waiting for a change the worker has already started, so every list it returns
+ * reflects all ratings made before the call. Similarities are always computed outside
+ * the lock, which only guards the lists.
+ */
+public class UserSimilarityIndex implements UserListener {
+
+    public static final double MIN_SIMILARITY = 0.3;
+    public static final int MIN_COMMON_MOVIES = 2;
+    public static final int PARALLEL_THRESHOLD = 2048;
+
+    private final UserDatabase userDatabase;
+    private final ToDoubleBiFunction<User, User> similarity;
+    private final int maxNeighbors;
+    private final Map<Integer, List<Neighbor>> neighbors;
+    private final Set<Integer> staleUsers;
+    private final Set<Integer> pendingUsers;
+    private final ReentrantLock lock;
+    /** Held while queued changes are applied, so a user is never refreshed by two threads at once. */
+    private final ReentrantLock drainLock;
+    private final AtomicBoolean draining;
+    private final AtomicLong changes;
+    private final ExecutorService worker;
+    private volatile boolean parallel;
+    private volatile IntConsumer neighborhoodListener;
+
+    public UserSimilarityIndex(UserDatabase userDatabase, ToDoubleBiFunction<User, User> similarity,
+                               int maxNeighbors) {
+        this.userDatabase = userDatabase;
+        this.similarity = similarity;
+        this.maxNeighbors = maxNeighbors;
+        this.neighbors = new HashMap<>();
+        this.staleUsers = new HashSet<>();
+        this.pendingUsers = ConcurrentHashMap.newKeySet();
+        this.lock = new ReentrantLock();
+        this.drainLock = new ReentrantLock();
+        this.draining = new AtomicBoolean();
+        this.changes = new AtomicLong();
+        this.worker = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "similarity-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getMaxNeighbors() {
+        return maxNeighbors;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /** Called with the id of every user whose neighbor list may have changed because of another user's rating. */
+    public void setNeighborhoodListener(IntConsumer neighborhoodListener) {
+        this.neighborhoodListener = neighborhoodListener;
+    }
+
+    public List<Neighbor> getNeighbors(User user) {
+        if (!pendingUsers.isEmpty() || drainLock.isLocked()) {
+            applyPending();
+        }
+        int userId = user.getUserId();
+        long version = changes.get();
+        lock.lock();
+        try {
+            List<Neighbor> list = neighbors.get(userId);
+            if (list != null && !staleUsers.contains(userId) && !pendingUsers.contains(userId)) {
+                return Collections.unmodifiableList(new ArrayList<>(list));
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<Neighbor> computed = computeNeighbors(user, null);
+        List<Neighbor> result = Collections.unmodifiableList(new ArrayList<>(computed));
+        lock.lock();
+        try {
+            neighbors.put(userId, computed);
+            // A rating that landed mid-computation may already have been patched into the list we replaced.
+            if (changes.get() == version) {
+                staleUsers.remove(userId);
+            } else {
+                staleUsers.add(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public void ratingChanged(User user, int movieId, double rating) {
+        changes.incrementAndGet();
+        pendingUsers.add(user.getUserId());
+        if (draining.compareAndSet(false, true)) {
+            worker.execute(this::drainPending);
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            neighbors.clear();
+            staleUsers.clear();
+            pendingUsers.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainPending() {
+        do {
+            applyPending();
+            draining.set(false);
+        } while (!pendingUsers.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    /** Refreshes every queued user; called by the worker and by readers that find changes queued. */
+    private void applyPending() {
+        drainLock.lock();
+        try {
+            for (Iterator<Integer> it = pendingUsers.iterator(); it.hasNext(); ) {
+                int userId = it.next();
+                it.remove();
+                User user = userDatabase.getUserById(userId);
+                if (user != null) {
+                    refresh(user);
+                }
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void refresh(User user) {
+        Map<Integer, Double> scores = new ConcurrentHashMap<>();
+        List<Neighbor> computed = computeNeighbors(user, scores);
+        lock.lock();
+        try {
+            neighbors.put(user.getUserId(), computed);
+            staleUsers.remove(user.getUserId());
+
+            // Co-rating overlap never shrinks, so every list that can contain this user is a co-rater's.
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                int otherId = entry.getKey();
+                List<Neighbor> list = neighbors.get(otherId);
+                if (list == null) continue;
+                boolean affected = staleUsers.contains(otherId) || contains(list, user);
+                if (!staleUsers.contains(otherId) && !updateNeighbor(list, user, entry.getValue())) {
+                    staleUsers.add(otherId);
+                }
+                affected |= contains(list, user);
+                IntConsumer listener = neighborhoodListener;
+                if (affected && listener != null) {
+                    listener.accept(otherId);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Neighbor> computeNeighbors(User target, Map<Integer, Double> scores) {
+        List<User> candidates = userDatabase.getCoRaters(target, MIN_COMMON_MOVIES);
+        Stream<User> stream = parallel && candidates.size() >= PARALLEL_THRESHOLD
+                ? candidates.parallelStream()
+                : candidates.stream();
+        return stream
+                .map(user -> {
+                    double score = similarity.applyAsDouble(target, user);
+                    if (scores != null) {
+                        scores.put(user.getUserId(), score);
+                    }
+                    return score > MIN_SIMILARITY ? new Neighbor(user, score) : null;
+                })
+                .filter(Objects::nonNull)
+                .collect(TopK.collector(maxNeighbors,
+                        Comparator.comparingDouble(Neighbor::getSimilarity).reversed()));
+    }
+
+    /**
+     * Patches one neighbor list after the similarity to {@code user} changed.
+     * Returns false when the list lost an entry it cannot backfill on its own.
+     */
+    private boolean updateNeighbor(List<Neighbor> list, User user, double score) {
+        boolean wasFull = list.size() >= maxNeighbors;
+        double previous = -1.0;
+        for (Iterator<Neighbor> it = list.iterator(); it.hasNext(); ) {
+            Neighbor neighbor = it.next();
+            if (neighbor.getUser().getUserId() == user.getUserId()) {
+                previous = neighbor.getSimilarity();
+                it.remove();
+                break;
+            }
+        }
+        if (score > MIN_SIMILARITY) {
+            insert(list, new Neighbor(user, score));
+        }
+        if (previous < 0 || !wasFull || score >= previous) {
+            return true;
+        }
+        // A full list lost ground: some user outside the list may now outrank the last entry.
+        return list.size() == maxNeighbors && list.get(list.size() - 1).getUser() != user;
+    }
+
+    private static boolean contains(List<Neighbor> list, User user) {
+        for (Neighbor neighbor : list) {
+            if (neighbor.getUser().getUserId() == user.getUserId()) return true;
+        }
+        return false;
+    }
+
+    private void insert(List<Neighbor> list, Neighbor neighbor) {
+        int pos = list.size();
+        while (pos > 0 && list.get(pos - 1).getSimilarity() < neighbor.getSimilarity()) {
+            pos--;
+        }
+        if (pos >= maxNeighbors) return;
+        list.add(pos, neighbor);
+        if (list.size() > maxNeighbors) {
+            list.remove(list.size() - 1);
+        }
+    }
+
+    public static class Neighbor {
+        private final User user;
+        private final double similarity;
+
+        public Neighbor(User user, double similarity) {
+            this.user = user;
+            this.similarity = similarity;
+        }
+
+        public User getUser() { return user; }
+
+        public double getSimilarity() { return similarity; }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+
+/**
+ * Jetty thread pool that runs every task on its own virtual thread (JDK 21+).
+ * There is no pool to exhaust, so requests parked on slow client I/O no longer hold
+ * platform threads; admission control is left to {@link RequestLimiter}.
+ * The virtual-thread executor is looked up reflectively so the rest of the project
+ * still compiles and runs on older JDKs in platform-thread mode.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool, TryExecutor {
+    private final ExecutorService executor;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+
+    VirtualThreadPool(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public static VirtualThreadPool create() {
+        try {
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new VirtualThreadPool((ExecutorService) executor);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or newer (running "
+                    + System.getProperty("java.version") + ")", e);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            activeTasks.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                activeTasks.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task) {
+        if (executor.isShutdown()) return false;
+        execute(task);
+        return true;
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int getThreads() {
+        return activeTasks.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
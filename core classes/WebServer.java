@@ -1,13 +1,79 @@
 import static spark.Spark.*;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
 public class WebServer {
 
-    public static void main(String[] args) {
-        port(8080);
-        staticFiles.externalLocation("d:/project new/movie bot java");
+    public static void main(String[] args) throws IOException {
+        String dataDir = System.getProperty("moviebot.dataDir");
+        boolean restore = dataDir != null && PersistentStore.hasData(Paths.get(dataDir));
+        String catalogFile = System.getProperty("moviebot.catalog");
+        // Sample movies would take ids the catalog also uses (and sample users rate them by id),
+        // so a catalog replaces the sample data.
+        boolean samples = !restore && catalogFile == null;
+        MovieDatabase movieDatabase = new MovieDatabase(samples);
+        UserDatabase userDatabase = new UserDatabase(samples);
+        if (catalogFile != null) {
+            movieDatabase.mountCatalog(Paths.get(catalogFile));
+        }
+        int ratingQueueCapacity = Integer.getInteger("moviebot.ratingQueueCapacity", 0);
+        RatingIngestor ingestor = ratingQueueCapacity > 0
+                ? new RatingIngestor(userDatabase, ratingQueueCapacity) : null;
+        if (dataDir != null) {
+            PersistentStore store = PersistentStore.open(Paths.get(dataDir), movieDatabase, userDatabase);
+            if (!restore) {
+                store.snapshot();
+            }
+            store.scheduleSnapshots(Long.getLong("moviebot.snapshotIntervalMillis", 10 * 60 * 1000L));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    // Queued ratings are applied first so they reach the event log.
+                    if (ingestor != null) {
+                        ingestor.close();
+                    }
+                    store.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close data store: " + e.getMessage());
+                }
+            }));
+        } else if (ingestor != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ingestor::close));
+        }
+        RecommendationEngine recommendationEngine = new RecommendationEngine(movieDatabase, userDatabase);
+        long alsRetrainMillis = Long.getLong("moviebot.alsRetrainMillis", 0L);
+        if (alsRetrainMillis > 0) {
+            recommendationEngine.scheduleAlsTraining(new AlsTrainer(), alsRetrainMillis);
+        }
+
+        boolean virtualThreads = "virtual".equalsIgnoreCase(System.getProperty("moviebot.threads", "platform"));
+        if (virtualThreads) {
+            EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                    new EmbeddedJettyFactory().withThreadPool(VirtualThreadPool.create()));
+        }
+
+        port(Integer.getInteger("moviebot.port", 8080));
+        staticFiles.externalLocation(System.getProperty("moviebot.staticDir", ".."));
         get("/", (req, res) -> {
             res.redirect("/index.html");
             return null;
         });
+
+        int maxConcurrent = Integer.getInteger("moviebot.maxConcurrentRequests", virtualThreads ? 256 : 0);
+        if (maxConcurrent > 0) {
+            new RequestLimiter(maxConcurrent,
+                    Integer.getInteger("moviebot.maxQueuedRequests", 1024),
+                    Long.getLong("moviebot.queueTimeoutMillis", 1000L)).register("/api/*");
+        }
+        get("/metrics", (req, res) -> {
+            res.type("text/plain; version=0.0.4; charset=utf-8");
+            return recommendationEngine.getMetrics().scrape();
+        });
+        MovieApi api = new MovieApi(movieDatabase, userDatabase, recommendationEngine);
+        api.setRatingIngestor(ingestor);
+        api.register();
     }
 }
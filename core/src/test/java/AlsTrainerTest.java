@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AlsTrainerTest {
+    private static final int MOVIES = 80;
+
+    private UserDatabase users;
+    private Map<Long, Double> heldOut;
+
+    /** Ratings drawn from a rank-two taste model; every fifth rating is held out from training. */
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(61);
+        double[][] movieTraits = new double[MOVIES + 1][];
+        for (int m = 1; m <= MOVIES; m++) {
+            movieTraits[m] = new double[] {random.nextGaussian(), random.nextGaussian()};
+        }
+        users = new UserDatabase(false);
+        heldOut = new HashMap<>();
+        for (int u = 0; u < 200; u++) {
+            User user = users.addUser("user" + u, "u@example.com", "x");
+            double[] taste = {random.nextGaussian(), random.nextGaussian()};
+            for (int m = 1; m <= MOVIES; m++) {
+                if (random.nextInt(3) != 0) continue;
+                double rating = 3.0 + 0.8 * (taste[0] * movieTraits[m][0] + taste[1] * movieTraits[m][1]);
+                rating = Math.max(1.0, Math.min(5.0, Math.rint(rating * 2) / 2));
+                if (random.nextInt(5) == 0) {
+                    heldOut.put(((long) user.getUserId() << 32) | m, rating);
+                } else {
+                    user.rateMovie(m, rating);
+                }
+            }
+        }
+    }
+
+    @Test
+    void learnsTheLowRankStructure() throws InterruptedException {
+        AlsModel model = trainer(2).train(users);
+        assertEquals(4, model.getFactors());
+        assertEquals(200, model.getUserCount());
+        assertTrue(model.getTrainingRmse() < 0.5, "training rmse " + model.getTrainingRmse());
+
+        double mean = 0;
+        int count = 0;
+        for (User user : users.getAllUsers()) {
+            for (double rating : user.getMovieRatings().values()) {
+                mean += rating;
+                count++;
+            }
+        }
+        mean /= count;
+        double modelError = 0;
+        double baselineError = 0;
+        for (Map.Entry<Long, Double> rating : heldOut.entrySet()) {
+            User user = users.getUserById((int) (rating.getKey() >>> 32));
+            double predicted = model.predict(user, (int) (long) rating.getKey());
+            modelError += (predicted - rating.getValue()) * (predicted - rating.getValue());
+            baselineError += (mean - rating.getValue()) * (mean - rating.getValue());
+        }
+        assertTrue(modelError < baselineError / 2, modelError + " vs baseline " + baselineError);
+    }
+
+    @Test
+    void threadCountDoesNotChangeTheModel() throws InterruptedException {
+        AlsModel single = trainer(1).train(users);
+        AlsModel parallel = trainer(3).train(users);
+        for (User user : users.getAllUsers()) {
+            for (int m = 1; m <= MOVIES; m++) {
+                assertEquals(single.predict(user, m), parallel.predict(user, m), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    void recommendsBestPredictionsAndSkipsExcluded() throws InterruptedException {
+        AlsModel model = trainer(2).train(users);
+        User user = users.getAllUsers().get(0);
+        int[] ids = model.recommend(user, 10, user::hasWatched);
+        assertEquals(10, ids.length);
+        List<double[]> expected = new ArrayList<>();
+        for (int m = 1; m <= MOVIES; m++) {
+            if (!user.hasWatched(m)) expected.add(new double[] {model.predict(user, m), m});
+        }
+        expected.sort((a, b) -> Double.compare(b[0], a[0]));
+        for (int i = 0; i < ids.length; i++) {
+            assertFalse(user.hasWatched(ids[i]));
+            assertEquals(expected.get(i)[0], model.predict(user, ids[i]), 1e-6);
+        }
+        assertEquals(0, model.recommend(user, 0, id -> false).length);
+    }
+
+    @Test
+    void foldsInUsersWhoChangedAfterTraining() throws InterruptedException {
+        AlsModel model = trainer(2).train(users);
+        User newcomer = users.addUser("newcomer", "n@example.com", "x");
+        assertTrue(Double.isNaN(model.predict(newcomer, 1)));
+        assertEquals(0, model.recommend(newcomer, 5, id -> false).length);
+        assertTrue(Double.isNaN(model.predict(users.getAllUsers().get(0), 10_000)));
+
+        newcomer.rateMovie(1, 5.0);
+        newcomer.rateMovie(2, 1.0);
+        assertFalse(Double.isNaN(model.predict(newcomer, 3)));
+
+        User trained = users.getAllUsers().get(1);
+        double before = model.predict(trained, 5);
+        trained.rateMovie(5, trained.getMovieRatings().getOrDefault(5, 3.0) == 5.0 ? 1.0 : 5.0);
+        assertNotEquals(before, model.predict(trained, 5));
+    }
+
+    @Test
+    void engineServesModelRecommendations() throws InterruptedException {
+        MovieDatabase movies = new MovieDatabase(false);
+        for (int m = 1; m <= MOVIES; m++) {
+            movies.addMovie("Movie " + m, "Drama", 2000, 5.0, "D", "", 90);
+        }
+        RecommendationEngine engine = new RecommendationEngine(movies, users);
+        AlsModel model = trainer(2).train(users);
+        engine.setAlsModel(model);
+        User user = users.getAllUsers().get(3);
+        List<Movie> recommendations = engine.getRecommendations(user, 6);
+        assertFalse(recommendations.isEmpty());
+        for (Movie movie : recommendations) {
+            assertFalse(user.hasWatched(movie.getId()));
+        }
+        int[] best = model.recommend(user, 3, user::hasWatched);
+        for (int id : best) {
+            assertTrue(recommendations.contains(movies.getMovieById(id)), "model pick " + id);
+        }
+    }
+
+    private static AlsTrainer trainer(int threads) {
+        AlsTrainer trainer = new AlsTrainer();
+        trainer.setFactors(4);
+        trainer.setIterations(15);
+        trainer.setRegularization(0.05);
+        trainer.setSeed(5);
+        trainer.setThreads(threads);
+        return trainer;
+    }
+}
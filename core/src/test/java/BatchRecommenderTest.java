@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchRecommenderTest {
+    private UserDatabase users;
+    private RecommendationEngine engine;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        MovieDatabase movies = new MovieDatabase(false);
+        users = new UserDatabase(false);
+        SyntheticDataGenerator generator = new SyntheticDataGenerator();
+        generator.setMovieCount(500);
+        generator.setUserCount(300);
+        generator.setMeanRatingsPerUser(15);
+        generator.setThreads(2);
+        generator.populate(movies, users);
+        engine = new RecommendationEngine(movies, users);
+    }
+
+    @Test
+    void batchMatchesPerUserRequests() throws InterruptedException {
+        BatchRecommender batch = new BatchRecommender(engine);
+        batch.setThreads(3);
+        batch.setChunkSize(17);
+        batch.setUseCache(false);
+        Map<Integer, List<Movie>> results = new ConcurrentHashMap<>();
+        assertEquals(300, batch.run(users.getAllUsers(), 8, (user, movies) -> results.put(user.getUserId(), movies)));
+
+        assertEquals(300, results.size());
+        for (User user : users.getAllUsers()) {
+            assertEquals(engine.computeRecommendations(user, 8), results.get(user.getUserId()), "user " + user.getUserId());
+        }
+        assertEquals(0, engine.getRecommendationCache().getCachedUsers());
+    }
+
+    @Test
+    void cachedBatchWarmsTheCache() throws InterruptedException {
+        BatchRecommender batch = new BatchRecommender(engine);
+        batch.setThreads(2);
+        Map<Integer, List<Movie>> results = new ConcurrentHashMap<>();
+        batch.run(users.getAllUsers(), 8, (user, movies) -> results.put(user.getUserId(), movies));
+
+        RecommendationCache cache = engine.getRecommendationCache();
+        assertEquals(300, cache.getCachedUsers());
+        for (User user : users.getAllUsers()) {
+            assertEquals(results.get(user.getUserId()), engine.getRecommendations(user, 8));
+        }
+        assertEquals(300, cache.getHits());
+    }
+
+    @Test
+    void sinkFailuresReachTheCaller() {
+        BatchRecommender batch = new BatchRecommender(engine);
+        batch.setThreads(2);
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> batch.run(users.getAllUsers(), 5, (user, movies) -> {
+                    throw new IllegalStateException("sink down");
+                }));
+        assertEquals("sink down", failure.getMessage());
+    }
+}
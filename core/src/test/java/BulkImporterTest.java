@@ -0,0 +1,164 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BulkImporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void importsCsv() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        BulkImporter.Stats stats = new BulkImporter(movies, users).load(
+                write("movies.csv",
+                        "movieId,title,genres",
+                        "1,Toy Story (1995),Adventure|Animation|Children",
+                        "2,\"American President, The (1995)\",Comedy|Drama",
+                        "3,\"Say \"\"Hi\"\" (2001)\",(no genres listed)",
+                        "4,Babylon 5,Sci-Fi"),
+                write("ratings.csv",
+                        "userId,movieId,rating,timestamp",
+                        "1,1,4.0,964982703",
+                        "1,3,4.5,964981247",
+                        "2,1,3.5,1",
+                        "2,2,5,1",
+                        "2,4,0.0,1",
+                        "2,3,7.5,1",
+                        "1,1,2.0,99"));
+
+        assertEquals(4, stats.getMovies());
+        assertEquals(2, stats.getUsers());
+        assertEquals(4, stats.getRatings());
+
+        Movie toyStory = movies.getMovieById(1);
+        assertEquals("Toy Story", toyStory.getTitle());
+        assertEquals(1995, toyStory.getYear());
+        assertEquals(Arrays.asList("Adventure", "Animation", "Children"), toyStory.getGenres());
+        // No rating column: the movie gets its users' mean on the ten-point scale.
+        assertEquals(5.5, toyStory.getRating(), 1e-9);
+        assertEquals("American President, The", movies.getMovieById(2).getTitle());
+        assertEquals("Say \"Hi\"", movies.getMovieById(3).getTitle());
+        assertEquals("Babylon 5", movies.getMovieById(4).getTitle());
+
+        assertEquals(ratings(1, 2.0, 3, 4.5), users.getUserById(1).getMovieRatings());
+        assertEquals(ratings(1, 3.5, 2, 5.0), users.getUserById(2).getMovieRatings());
+        assertEquals(Arrays.asList(1, 3), users.getUserById(1).getWatchedMovieIds());
+        assertEquals(new TreeSet<>(Arrays.asList(1, 2)), new TreeSet<>(users.getRaterIds(1)));
+
+        assertEquals(2, movies.searchByGenre("comedy").get(0).getId());
+        assertEquals(1, movies.searchByTitle("toy").size());
+        assertEquals(2, movies.searchByYear(1995).size());
+        assertEquals(5, movies.addMovie("New", "Drama", 2020, 7.0, "D", "d", 90).getId());
+        assertEquals(3, users.addUser("new", "new@example.com", "x").getUserId());
+    }
+
+    @Test
+    void jsonLinesMatchCsv() throws IOException {
+        MovieDatabase csvMovies = new MovieDatabase(false);
+        UserDatabase csvUsers = new UserDatabase(false);
+        new BulkImporter(csvMovies, csvUsers).load(
+                write("movies.csv",
+                        "movieId,title,genres",
+                        "10,Heat (1995),Action|Crime",
+                        "11,Up (2009),Animation"),
+                write("ratings.csv",
+                        "userId,movieId,rating",
+                        "3,10,4.5",
+                        "3,11,1",
+                        "4,10,3"));
+
+        MovieDatabase jsonMovies = new MovieDatabase(false);
+        UserDatabase jsonUsers = new UserDatabase(false);
+        new BulkImporter(jsonMovies, jsonUsers).load(
+                write("movies.jsonl",
+                        "{\"id\": 10, \"title\": \"Heat\", \"genres\": \"Action|Crime\", \"year\": 1995, \"extra\": {\"a\": [1, 2]}}",
+                        "",
+                        "{\"movieId\": 11, \"title\": \"Up\", \"genre\": \"Animation\", \"year\": 2009}"),
+                write("ratings.jsonl",
+                        "{\"userId\": 3, \"movieId\": 10, \"rating\": 4.5, \"ts\": null}",
+                        "{\"movieId\": 11, \"userId\": 3, \"rating\": 1e0}",
+                        "{\"userId\": 4, \"movieId\": 10, \"rating\": 3}",
+                        "{\"userId\": 4, \"movieId\": 11, \"rating\": 9}"));
+
+        assertEquals(describe(csvMovies.getAllMovies()), describe(jsonMovies.getAllMovies()));
+        for (int userId : new int[] {3, 4}) {
+            assertEquals(csvUsers.getUserById(userId).getMovieRatings(), jsonUsers.getUserById(userId).getMovieRatings());
+            assertEquals(csvUsers.getUserById(userId).getWatchedMovieIds(), jsonUsers.getUserById(userId).getWatchedMovieIds());
+        }
+    }
+
+    @Test
+    void mergesRatingsOfExistingUsers() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        User existing = users.addUser("a", "a@example.com", "x");
+        existing.rateMovie(1, 2.0);
+        BulkImporter.Stats stats = new BulkImporter(movies, users).load(null,
+                write("ratings.csv", "userId,movieId,rating", existing.getUserId() + ",2,4.0", existing.getUserId() + ",1,5.0"));
+
+        assertEquals(0, stats.getUsers());
+        assertEquals(ratings(1, 5.0, 2, 4.0), existing.getMovieRatings());
+        assertEquals(Collections.singleton(existing.getUserId()), users.getRaterIds(2));
+    }
+
+    @Test
+    void sparseIdsAreImportedWithoutIdSizedTables() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        BulkImporter.Stats stats = new BulkImporter(movies, users).load(
+                write("movies.csv", "movieId,title,genres", "2100000000,Far (2001),Drama", "5,Near (2002),Drama"),
+                write("ratings.csv", "userId,movieId,rating",
+                        "2000000000,2100000000,4.0", "3,2100000000,5.0", "2000000000,5,2.0", "2147483647,5,3.0"));
+
+        assertEquals(3, stats.getUsers());
+        assertEquals(9.0, movies.getMovieById(2100000000).getRating(), 1e-9);
+        assertEquals(5.0, movies.getMovieById(5).getRating(), 1e-9);
+        assertEquals(ratings(5, 2.0, 2100000000, 4.0), users.getUserById(2000000000).getMovieRatings());
+        assertEquals(ratings(5, 3.0), users.getUserById(Integer.MAX_VALUE).getMovieRatings());
+        assertEquals(new TreeSet<>(Arrays.asList(3, 2000000000)), new TreeSet<>(users.getRaterIds(2100000000)));
+    }
+
+    @Test
+    void importedUsersNeverTakeARegisteredUsername() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        User registered = users.addUser("user7", "a@example.com", "x");
+        BulkImporter.Stats stats = new BulkImporter(movies, users).load(null,
+                write("ratings.csv", "userId,movieId,rating", "7,1,4.0", "8,1,3.0"));
+
+        assertEquals(2, stats.getUsers());
+        assertSame(registered, users.getUserByUsername("user7"));
+        assertEquals("user7-2", users.getUserById(7).getUsername());
+        assertSame(users.getUserById(7), users.getUserByUsername("USER7-2"));
+        assertFalse(users.restoreUser(new User(99, "User7", null, null)));
+        assertNull(users.getUserById(99));
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<Integer, Double> ratings(Object... pairs) {
+        Map<Integer, Double> ratings = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            ratings.put((Integer) pairs[i], (Double) pairs[i + 1]);
+        }
+        return ratings;
+    }
+
+    private static List<String> describe(List<Movie> movies) {
+        List<String> rows = new ArrayList<>();
+        for (Movie movie : movies) {
+            rows.add(movie.getId() + "|" + movie.getTitle() + "|" + movie.getGenres() + "|" + movie.getYear()
+                    + "|" + movie.getRating());
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+}
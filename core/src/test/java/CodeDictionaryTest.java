@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class CodeDictionaryTest {
+
+    @Test
+    void codesAreDenseStableAndIgnoreCase() {
+        CodeDictionary dictionary = new CodeDictionary();
+        assertEquals(-1, dictionary.codeOf("Drama"));
+        int drama = dictionary.encode("Drama");
+        int comedy = dictionary.encode("Comedy");
+        assertEquals(drama, dictionary.encode("DRAMA"));
+        assertEquals(drama, dictionary.codeOf("drama"));
+        assertEquals("Drama", dictionary.decode(dictionary.codeOf("drama")));
+        for (int i = 0; i < 100; i++) {
+            dictionary.encode("Genre " + i);
+        }
+        assertEquals(102, dictionary.size());
+        assertEquals(comedy, dictionary.codeOf("comedy"));
+        assertEquals("Genre 99", dictionary.decode(dictionary.size() - 1));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.decode(dictionary.size()));
+    }
+
+    @Test
+    void moviesKeepEveryGenreOnce() {
+        Movie movie = new Movie(1, "Up", "Animation| Comedy |animation||Drama", 2009, 8.3, "Pete Docter", "", 96);
+        assertEquals(Arrays.asList("Animation", "Comedy", "Drama"), movie.getGenres());
+        assertEquals("Animation", movie.getGenre());
+        assertEquals("Animation|Comedy|Drama", movie.joinedGenres());
+
+        movie.setGenres(Collections.singletonList("Family"));
+        assertEquals("Family", movie.getGenre());
+        assertEquals("Family", movie.joinedGenres());
+    }
+
+    @Test
+    void indexesAndQueriesMatchEveryGenre() {
+        MovieDatabase movies = new MovieDatabase(false);
+        movies.addMovie("Heat", "Action|Crime", 1995, 8.3, "Michael Mann", "", 170);
+        movies.addMovie("Fargo", "Crime|Comedy", 1996, 8.1, "Joel Coen", "", 98);
+        movies.addMovie("Up", "Animation", 2009, 8.3, "Pete Docter", "", 96);
+
+        assertEquals(Arrays.asList("Action", "Animation", "Comedy", "Crime"), movies.getAllGenres());
+        assertEquals(Arrays.asList(1, 2), ids(movies.searchByGenre("crime")));
+        assertEquals(Collections.singletonList(2), ids(movies.searchByGenre("COMEDY")));
+        assertEquals(Collections.singletonList(1), ids(movies.searchByDirector("michael mann")));
+        assertEquals(Arrays.asList(1, 2), ids(movies.query().genre("Crime").execute().getMovies()));
+        assertTrue(movies.query().genre("Western").execute().getMovies().isEmpty());
+    }
+
+    @Test
+    void everyDatabaseHasItsOwnCodes() {
+        MovieDatabase first = new MovieDatabase(false);
+        for (int i = 0; i < 100; i++) {
+            first.addMovie("Movie " + i, "Genre " + i, 2000, 5.0, "Director " + i, "", 90);
+        }
+        MovieDatabase second = new MovieDatabase(false);
+        Movie heat = second.addMovie("Heat", "Action|Crime", 1995, 8.3, "Michael Mann", "", 170);
+        assertEquals(2, second.genreDictionary().size());
+        assertEquals(1, second.directorDictionary().size());
+        assertArrayEquals(new int[] {0, 1}, heat.genreCodes());
+        assertEquals(-1, second.genreDictionary().codeOf("Genre 5"));
+        assertTrue(second.query().genre("Genre 5").execute().getMovies().isEmpty());
+
+        // A movie restored into a second database is copied so both keep their own codes.
+        Movie shared = first.getMovieById(51);
+        assertTrue(second.restoreMovie(shared));
+        Movie copy = second.getMovieById(51);
+        assertNotSame(shared, copy);
+        assertEquals(Collections.singletonList(51), ids(second.query().genre("genre 50").execute().getMovies()));
+        assertEquals(Collections.singletonList(51), ids(first.query().genre("genre 50").execute().getMovies()));
+        assertEquals(first.genreDictionary().codeOf("Genre 50"), shared.genreCodes()[0]);
+        assertEquals(second.genreDictionary().codeOf("Genre 50"), copy.genreCodes()[0]);
+    }
+
+    @Test
+    void similarMoviesScoreGenreOverlap() {
+        MovieDatabase movies = new MovieDatabase(false);
+        Movie target = movies.addMovie("Target", "Action|Crime", 2000, 7.0, "A", "", 100);
+        movies.addMovie("Both", "Crime|Action", 1950, 1.0, "B", "", 100);
+        movies.addMovie("Half", "Crime|Drama", 2000, 7.0, "B", "", 100);
+        movies.addMovie("None", "Drama", 2000, 7.0, "A", "", 100);
+        RecommendationEngine engine = new RecommendationEngine(movies, new UserDatabase(false));
+
+        // Half: a third of 0.4 + 0.3 + 0.2 = 0.633; None: 0.3 + 0.2 + 0.1 = 0.6; Both: 0.4 + 0.3 * 0.4 = 0.52.
+        assertEquals(Arrays.asList("Half", "None", "Both"), titles(engine.getSimilarMovies(target, 5)));
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        List<Integer> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> titles(List<Movie> movies) {
+        List<String> titles = new ArrayList<>();
+        for (Movie movie : movies) {
+            titles.add(movie.getTitle());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,176 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColumnarCatalogTest {
+    private static final String[] GENRES = {"Action", "Drama", "Comédie", "Sci-Fi"};
+    private static final String[] WORDS = {"the", "Dark", "night", "Étoile", "star", "of", "日本"};
+
+    @TempDir
+    Path directory;
+
+    private List<Movie> movies;
+    private ColumnarCatalog catalog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Random random = new Random(59);
+        movies = new ArrayList<>();
+        int id = 100;
+        for (int i = 0; i < 2000; i++) {
+            id += 1 + random.nextInt(5);
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            movies.add(new Movie(id, title, GENRES[random.nextInt(GENRES.length)], 1950 + random.nextInt(70),
+                    random.nextInt(101) / 10.0, "Director " + random.nextInt(40), "Description " + i, 80 + random.nextInt(90)));
+        }
+        List<Movie> shuffled = new ArrayList<>(movies);
+        Collections.shuffle(shuffled, random);
+        Path file = directory.resolve("catalog.bin");
+        ColumnarCatalog.write(file, shuffled);
+        catalog = ColumnarCatalog.open(file);
+    }
+
+    @Test
+    void rowsRoundTrip() {
+        assertEquals(movies.size(), catalog.size());
+        assertEquals(describe(movies), describe(catalog.getAllMovies()));
+        assertEquals(movies.get(movies.size() - 1).getId(), catalog.getMaxId());
+        for (Movie movie : movies) {
+            assertEquals(describe(movie), describe(catalog.getMovie(movie.getId())));
+        }
+        assertNull(catalog.getMovie(1));
+        assertTrue(catalog.rowOf(Integer.MAX_VALUE) < 0);
+    }
+
+    @Test
+    void lookupsMatchScans() {
+        for (String genre : GENRES) {
+            assertEquals(filter(m -> m.getGenre().equals(genre)), describe(catalog.findByGenre(genre.toUpperCase())));
+        }
+        assertTrue(catalog.findByGenre("Western").isEmpty());
+        assertEquals(filter(m -> m.getDirector().equals("Director 7")), describe(catalog.findByDirector("director 7")));
+        assertEquals(new TreeSet<>(filter(m -> m.getYear() >= 1980 && m.getYear() <= 1989)),
+                new TreeSet<>(describe(catalog.findByYearRange(1980, 1989))));
+        List<Movie> rated = catalog.findByRatingRange(2.5, 3.5);
+        assertEquals(new TreeSet<>(filter(m -> m.getRating() >= 2.5 && m.getRating() <= 3.5)), new TreeSet<>(describe(rated)));
+        for (int i = 1; i < rated.size(); i++) {
+            assertTrue(rated.get(i - 1).getRating() >= rated.get(i).getRating());
+        }
+        for (String query : new String[] {"dark", "ÉTOILE", "日本", "of s", "x"}) {
+            String needle = query.toLowerCase(Locale.ROOT);
+            assertEquals(filter(m -> m.getTitle().toLowerCase(Locale.ROOT).contains(needle)),
+                    describe(catalog.searchByTitle(query)), query);
+            List<Movie> prefixed = catalog.searchByTitlePrefix(query, Integer.MAX_VALUE);
+            assertEquals(new TreeSet<>(filter(m -> m.getTitle().toLowerCase(Locale.ROOT).startsWith(needle))),
+                    new TreeSet<>(describe(prefixed)), query);
+            for (int i = 1; i < prefixed.size(); i++) {
+                assertTrue(TitleIndex.normalize(prefixed.get(i - 1).getTitle())
+                        .compareTo(TitleIndex.normalize(prefixed.get(i).getTitle())) <= 0, query);
+            }
+            assertEquals(describe(prefixed.subList(0, Math.min(5, prefixed.size()))),
+                    describe(catalog.searchByTitlePrefix(query, 5)), query);
+        }
+        List<Double> top = movies.stream().map(Movie::getRating).sorted(Comparator.reverseOrder()).limit(30)
+                .collect(Collectors.toList());
+        assertEquals(top, catalog.getTopRated(30).stream().map(Movie::getRating).collect(Collectors.toList()));
+    }
+
+    @Test
+    void mountedCatalogIsServedNextToHeapMovies() throws IOException {
+        MovieDatabase database = new MovieDatabase(false);
+        database.mountCatalog(directory.resolve("catalog.bin"));
+        Movie added = database.addMovie("Heap Movie", "Drama", 2020, 9.9, "Director 7", "", 100);
+        assertTrue(added.getId() > catalog.getMaxId());
+        assertEquals(movies.size() + 1, database.getMovieCount());
+
+        assertEquals(describe(movies.get(0)), describe(database.getMovieById(movies.get(0).getId())));
+        assertSame(added, database.getMovieById(added.getId()));
+        assertEquals(filter(m -> m.getGenre().equals("Drama")).size() + 1, database.searchByGenre("drama").size());
+        assertEquals(filter(m -> m.getDirector().equals("Director 7")).size() + 1, database.searchByDirector("Director 7").size());
+        List<Double> top = movies.stream().map(Movie::getRating).collect(Collectors.toList());
+        top.add(added.getRating());
+        top.sort(Comparator.reverseOrder());
+        assertEquals(top.subList(0, 20),
+                database.getTopRatedMovies(20).stream().map(Movie::getRating).collect(Collectors.toList()));
+        assertTrue(database.getAllGenres().containsAll(Arrays.asList(GENRES)));
+        assertEquals(filter(m -> m.getTitle().toLowerCase(Locale.ROOT).contains("dark")).size(),
+                database.searchByTitle("Dark").size());
+        assertEquals(filter(m -> m.getGenre().equals("Action") && m.getYear() >= 2000).size(),
+                database.query().genre("Action").yearBetween(2000, 3000).page(0, 10_000).execute().getTotal());
+        Movie row = database.getMovieById(movies.get(3).getId());
+        assertEquals(database.genreDictionary().codeOf(row.getGenre()), row.genreCodes()[0]);
+        assertEquals(database.directorDictionary().codeOf(row.getDirector()), row.directorCode());
+    }
+
+    @Test
+    void unfilteredPagesFollowTheRatingOrder() throws IOException {
+        MovieDatabase database = new MovieDatabase(false);
+        database.mountCatalog(directory.resolve("catalog.bin"));
+        List<Movie> all = new ArrayList<>(movies);
+        for (int i = 0; i < 30; i++) {
+            all.add(database.addMovie("Heap " + i, "Drama", 2020, (i % 11) / 1.0, "Director 7", "", 100));
+        }
+        for (boolean descending : new boolean[] {true, false}) {
+            Comparator<Movie> order = Comparator.comparingDouble(Movie::getRating);
+            List<Movie> expected = new ArrayList<>(all);
+            expected.sort((descending ? order.reversed() : order).thenComparingInt(Movie::getId));
+            for (int page : new int[] {0, 3, 41}) {
+                MovieQuery.Result result = database.query()
+                        .sortBy(MovieQuery.SortField.RATING, descending).page(page, 25).execute();
+                assertEquals(all.size(), result.getTotal());
+                assertEquals(describe(expected.subList(Math.min(page * 25, all.size()), Math.min(page * 25 + 25, all.size()))),
+                        describe(result.getMovies()), "page " + page + (descending ? " desc" : " asc"));
+            }
+        }
+        assertEquals(describe(catalog.getByRating(7, true).subList(0, 7)), describe(catalog.getTopRated(7)));
+
+        List<Double> best = all.stream().filter(m -> m.getRating() >= 7.0 && m.getYear() >= 1990)
+                .map(Movie::getRating).sorted(Comparator.reverseOrder()).limit(40).collect(Collectors.toList());
+        assertEquals(best, database.getTopRatedMovies(40, 7.0, m -> m.getYear() >= 1990).stream()
+                .map(Movie::getRating).collect(Collectors.toList()));
+        assertEquals(all.stream().filter(m -> m.getRating() >= 9.5).count(),
+                database.getTopRatedMovies(10_000, 9.5, m -> true).size());
+
+        List<Movie> rated = database.getMoviesWithMinRating(8.0);
+        assertEquals(all.stream().filter(m -> m.getRating() >= 8.0).count(), rated.size());
+        for (int i = 1; i < rated.size(); i++) {
+            assertTrue(rated.get(i - 1).getRating() >= rated.get(i).getRating());
+        }
+    }
+
+    @Test
+    void heapMoviesMayNotShareTheCatalogIdRange() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        MovieDatabase early = new MovieDatabase(false);
+        assertTrue(early.restoreMovie(new Movie(movies.get(5).getId(), "Heap Movie", "Drama", 2020, 9.9, "D", "", 100)));
+        assertThrows(IllegalStateException.class, () -> early.mountCatalog(file));
+
+        MovieDatabase database = new MovieDatabase(false);
+        database.mountCatalog(file);
+        int inside = movies.get(0).getId() + 1;
+        assertFalse(database.restoreMovie(new Movie(inside, "Inside", "Drama", 2000, 5.0, "D", "", 90)));
+        assertTrue(database.restoreMovie(new Movie(catalog.getMaxId() + 1, "Above", "Drama", 2000, 5.0, "D", "", 90)));
+        assertTrue(database.restoreMovie(new Movie(catalog.getMinId() - 1, "Below", "Drama", 2000, 5.0, "D", "", 90)));
+        assertEquals(movies.size() + 2, database.getMovieCount());
+    }
+
+    private List<String> filter(Predicate<Movie> predicate) {
+        return describe(movies.stream().filter(predicate).collect(Collectors.toList()));
+    }
+
+    private static List<String> describe(List<Movie> list) {
+        return list.stream().map(ColumnarCatalogTest::describe).collect(Collectors.toList());
+    }
+
+    private static String describe(Movie movie) {
+        return movie.getId() + "|" + movie.getTitle() + "|" + movie.getGenre() + "|" + movie.getYear() + "|"
+                + movie.getRating() + "|" + movie.getDirector() + "|" + movie.getDescription() + "|" + movie.getDuration();
+    }
+}
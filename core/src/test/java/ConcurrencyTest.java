@@ -0,0 +1,123 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentRatingsKeepPostingsAndSnapshotsConsistent() throws Exception {
+        UserDatabase users = new UserDatabase(false);
+        List<User> all = new ArrayList<>();
+        for (int u = 0; u < 50; u++) {
+            all.add(users.addUser("user" + u, "user" + u + "@example.com", "x"));
+        }
+        RecommendationEngine engine = new RecommendationEngine(new MovieDatabase(), users);
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 5000; i++) {
+                User user = all.get(random.nextInt(all.size()));
+                if (random.nextInt(10) == 0) {
+                    engine.getRecommendations(user, 5);
+                } else {
+                    user.rateMovie(1 + random.nextInt(200), 1 + random.nextInt(9) / 2.0);
+                }
+            }
+        });
+
+        for (int movieId = 1; movieId <= 200; movieId++) {
+            Set<Integer> expected = new HashSet<>();
+            for (User user : all) {
+                if (user.getMovieRatings().containsKey(movieId)) expected.add(user.getUserId());
+            }
+            assertEquals(expected, users.getRaterIds(movieId), "raters of movie " + movieId);
+        }
+        for (User user : all) {
+            User.Ratings ratings = user.ratings();
+            double sum = 0;
+            for (int i = 0; i < ratings.count; i++) {
+                if (i > 0) assertTrue(ratings.ids[i - 1] < ratings.ids[i]);
+                sum += ratings.values[i];
+            }
+            assertEquals(sum, ratings.sum, 1e-6);
+            assertEquals(ratings.count, user.getRatingCount());
+            for (int i = 0; i < ratings.count; i++) {
+                assertTrue(user.hasWatched(ratings.ids[i]));
+            }
+        }
+    }
+
+    @Test
+    void concurrentRegistrationAssignsUniqueIds() throws Exception {
+        UserDatabase users = new UserDatabase(false);
+        runConcurrently(thread -> {
+            for (int i = 0; i < 500; i++) {
+                users.addUser("t" + thread + "-" + i, "e", "x");
+            }
+        });
+        Set<Integer> ids = new HashSet<>();
+        for (User user : users.getAllUsers()) {
+            assertTrue(ids.add(user.getUserId()));
+            assertSame(user, users.getUserById(user.getUserId()));
+        }
+        assertEquals(THREADS * 500, ids.size());
+        assertThrows(IllegalArgumentException.class, () -> users.addUser("T0-0", "e", "x"));
+    }
+
+    @Test
+    void readersSeeConsistentIndexesWhileMoviesAreAdded() throws Exception {
+        MovieDatabase movies = new MovieDatabase(false);
+        String[] genres = {"Action", "Drama", "Comedy"};
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 2000; i++) {
+                if (thread % 2 == 0) {
+                    movies.addMovie("Movie " + thread + " " + i, genres[i % 3], 1990 + i % 30,
+                            random.nextInt(100) / 10.0, "D" + i % 7, "", 90);
+                } else {
+                    for (Movie movie : movies.query().genre(genres[i % 3]).minRating(5.0).page(0, 50).execute().getMovies()) {
+                        assertEquals(genres[i % 3], movie.getGenre());
+                        assertTrue(movie.getRating() >= 5.0);
+                    }
+                    movies.searchByTitle("movie " + thread);
+                }
+            }
+        });
+        int expected = THREADS / 2 * 2000;
+        assertEquals(expected, movies.getMovieCount());
+        int byGenre = 0;
+        for (String genre : genres) {
+            byGenre += movies.searchByGenre(genre).size();
+        }
+        assertEquals(expected, byGenre);
+        assertEquals(expected, movies.getMoviesWithMinRating(0.0).size());
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsInOrderAcrossSegments() throws IOException {
+        long second;
+        try (EventLog log = new EventLog(directory)) {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                writes.add(log.append(record("event " + i)));
+            }
+            second = log.roll();
+            for (int i = 100; i < 150; i++) {
+                writes.add(log.append(record("event " + i)));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+        }
+        assertEquals(expected(0, 150), replay(1));
+        assertEquals(expected(100, 150), replay(second));
+    }
+
+    @Test
+    void tornTailIsDroppedAndAppendsContinueAfterIt() throws IOException {
+        try (EventLog log = new EventLog(directory)) {
+            log.append(record("first")).join();
+            log.append(record("second")).join();
+        }
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        // A crash mid-write: the header promises more payload than reached the disk.
+        ByteBuffer torn = ByteBuffer.allocate(12).putInt(100).putInt(12345).putInt(7);
+        Files.write(segment, torn.array(), StandardOpenOption.APPEND);
+
+        assertEquals(Arrays.asList("first", "second"), replay(1));
+        try (EventLog log = new EventLog(directory)) {
+            assertEquals(intact, Files.size(segment));
+            log.append(record("third")).join();
+        }
+        assertEquals(Arrays.asList("first", "second", "third"), replay(1));
+    }
+
+    @Test
+    void zeroFilledTailEndsTheLog() throws IOException {
+        try (EventLog log = new EventLog(directory)) {
+            log.append(record("only")).join();
+        }
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[64], StandardOpenOption.APPEND);
+
+        assertEquals(Collections.singletonList("only"), replay(1));
+        try (EventLog log = new EventLog(directory)) {
+            assertEquals(intact, Files.size(segment));
+        }
+    }
+
+    @Test
+    void corruptRecordStopsReplay() throws IOException {
+        try (EventLog log = new EventLog(directory)) {
+            log.append(record("good")).join();
+            log.append(record("flipped")).join();
+            log.append(record("after")).join();
+        }
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        int flipped = 8 + "good".length() + 8;
+        bytes[flipped] ^= 1;
+        Files.write(segment, bytes);
+
+        assertEquals(Collections.singletonList("good"), replay(1));
+    }
+
+    @Test
+    void rejectsEmptyRecords() throws IOException {
+        try (EventLog log = new EventLog(directory)) {
+            assertThrows(IllegalArgumentException.class, () -> log.append(ByteBuffer.allocate(0)));
+        }
+    }
+
+    private List<String> replay(long fromSegment) throws IOException {
+        List<String> records = new ArrayList<>();
+        EventLog.replay(directory, fromSegment, payload -> records.add(StandardCharsets.UTF_8.decode(payload).toString()));
+        return records;
+    }
+
+    private Path onlySegment() throws IOException {
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory)) {
+            Iterator<Path> it = segments.iterator();
+            Path segment = it.next();
+            assertFalse(it.hasNext());
+            return segment;
+        }
+    }
+
+    private static ByteBuffer record(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> expected(int from, int to) {
+        List<String> records = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            records.add("event " + i);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,103 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class LogHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueWithinThreePercent() {
+        Random random = new Random(67);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int index = LogHistogram.indexOf(value);
+            long high = LogHistogram.highestValueAt(index);
+            assertTrue(high >= value, value + " above its bucket bound " + high);
+            assertTrue(high - value <= Math.max(1, value / 32), value + " reported as " + high);
+            if (index > 0) {
+                assertTrue(LogHistogram.highestValueAt(index - 1) < value);
+            }
+        }
+        for (long value = 0; value < 4096; value++) {
+            assertTrue(LogHistogram.highestValueAt(LogHistogram.indexOf(value)) >= value);
+        }
+        assertEquals(Long.MAX_VALUE, LogHistogram.highestValueAt(LogHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void quantilesMatchSortedSamples() {
+        LogHistogram histogram = new LogHistogram();
+        assertEquals(0, histogram.getQuantile(0.5));
+        Random random = new Random(71);
+        long[] samples = new long[50_000];
+        long sum = 0;
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (long) Math.abs(random.nextGaussian() * 1_000_000);
+            histogram.record(samples[i]);
+            sum += samples[i];
+        }
+        histogram.record(-5);
+        Arrays.sort(samples);
+        assertEquals(samples.length + 1, histogram.getCount());
+        assertEquals(sum, histogram.getSum());
+        for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = samples[(int) Math.ceil(quantile * (samples.length + 1)) - 2];
+            long reported = histogram.getQuantile(quantile);
+            assertEquals(exact, reported, exact * 0.04 + 1, "quantile " + quantile);
+        }
+    }
+
+    @Test
+    void concurrentRecordingLosesNothing() throws Exception {
+        LogHistogram histogram = new LogHistogram();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) histogram.record(i % 1000);
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(4L * 100 * (999 * 1000 / 2), histogram.getSum());
+    }
+
+    @Test
+    void writesPrometheusSummaries() {
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(10);
+        histogram.record(20);
+        StringBuilder out = new StringBuilder();
+        histogram.writePrometheus(out, "latency", "stage=\"a\"", 0.5, 0.5);
+        assertEquals("latency{stage=\"a\",quantile=\"0.5\"} 5.0\n"
+                + "latency_sum{stage=\"a\"} 15.0\n"
+                + "latency_count{stage=\"a\"} 2\n", out.toString());
+    }
+
+    @Test
+    void engineRecordsEveryStage() {
+        MovieDatabase movies = new MovieDatabase();
+        UserDatabase users = new UserDatabase();
+        RecommendationEngine engine = new RecommendationEngine(movies, users);
+        for (User user : users.getAllUsers()) {
+            engine.getRecommendations(user, 6);
+            engine.getRecommendations(user, 6);
+        }
+        RecommendationMetrics metrics = engine.getMetrics();
+        int requests = users.getAllUsers().size();
+        assertEquals(2L * requests, metrics.getLatency(RecommendationMetrics.Stage.REQUEST).getCount());
+        assertEquals(requests, metrics.getLatency(RecommendationMetrics.Stage.GENRE).getCount());
+        assertEquals(requests, metrics.getCandidates(RecommendationMetrics.Stage.COLLABORATIVE).getCount());
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("# TYPE moviebot_recommendation_latency_seconds summary\n"), scrape);
+        assertTrue(scrape.contains("moviebot_recommendation_latency_seconds_count{stage=\"request\"} " + 2 * requests + "\n"), scrape);
+        assertTrue(scrape.contains("moviebot_recommendation_cache_hits_total " + requests + "\n"), scrape);
+        assertTrue(scrape.contains("moviebot_recommendation_cache_hit_ratio 0.5\n"), scrape);
+    }
+}
@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import spark.Spark;
+
+class MovieApiTest {
+    private static int port;
+    private static UserDatabase users;
+
+    @BeforeAll
+    static void start() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MovieDatabase movies = new MovieDatabase();
+        users = new UserDatabase();
+        Spark.port(port);
+        new MovieApi(movies, users, new RecommendationEngine(movies, users)).register();
+        Spark.awaitInitialization();
+    }
+
+    @AfterAll
+    static void stop() {
+        Spark.stop();
+        Spark.awaitStop();
+    }
+
+    @Test
+    void listsFilteredSortedPages() throws IOException {
+        String body = get("/api/movies?genre=crime&sort=year&order=asc&pageSize=1&page=2", 200);
+        assertTrue(body.startsWith("{\"movies\":[{\"id\":4,\"title\":\"Pulp Fiction\""), body);
+        assertTrue(body.endsWith("\"total\":2,\"totalPages\":2,\"currentPage\":2}"), body);
+
+        body = get("/api/movies?minRating=9%2B", 200);
+        assertTrue(body.contains("\"The Shawshank Redemption\"") && body.contains("\"The Godfather\""), body);
+        assertFalse(body.contains("Pulp Fiction"), body);
+    }
+
+    @Test
+    void servesSingleMoviesAndErrors() throws IOException {
+        String body = get("/api/movies/1", 200);
+        assertTrue(body.contains("\"title\":\"The Dark Knight\"") && body.contains("\"formattedDuration\":"), body);
+        assertEquals("{\"error\":\"Movie not found\"}", get("/api/movies/999", 404));
+        assertTrue(get("/api/movies/abc", 400).startsWith("{\"error\":\"Invalid number"));
+        assertTrue(get("/api/movies?sort=colour", 400).startsWith("{\"error\":"));
+    }
+
+    @Test
+    void autocompletesAndRecommends() throws IOException {
+        String body = get("/api/movies/autocomplete?q=the%20g", 200);
+        assertTrue(body.startsWith("[{\"id\":3,\"title\":\"The Godfather\""), body);
+        assertEquals("[]", get("/api/movies/autocomplete?q=zzz", 200));
+        assertTrue(get("/api/movies/1/similar?count=2", 200).startsWith("[{"));
+        assertTrue(get("/api/users/1/recommendations", 200).startsWith("["));
+        assertEquals("{\"error\":\"User not found\"}", get("/api/users/999/recommendations", 404));
+    }
+
+    @Test
+    void postsRatings() throws IOException {
+        int userId = users.getAllUsers().get(0).getUserId();
+        assertEquals("{\"userId\":" + userId + ",\"movieId\":5,\"rating\":4.5}",
+                post("/api/ratings", "userId=" + userId + "&movieId=5&rating=4.5", 200));
+        assertEquals(4.5, users.getUserById(userId).getRatingForMovie(5));
+        assertEquals("{\"error\":\"Rating must be between 1.0 and 5.0\"}",
+                post("/api/ratings", "userId=" + userId + "&movieId=5&rating=9", 400));
+        assertEquals("{\"error\":\"Missing parameter: rating\"}",
+                post("/api/ratings", "userId=" + userId + "&movieId=5", 400));
+    }
+
+    @Test
+    void jsonWriterEscapesAndSeparates() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                .name("text").value("a \"quoted\"\\ line\n\u0001")
+                .name("list").beginArray().value(1).value(2.5).value(true).nullValue().beginObject().endObject().endArray()
+                .name("nan").value(Double.NaN)
+                .name("missing").value((String) null)
+                .endObject();
+        assertEquals("{\"text\":\"a \\\"quoted\\\"\\\\ line\\n\\u0001\",\"list\":[1,2.5,true,null,{}],"
+                + "\"nan\":null,\"missing\":null}", out.toString());
+    }
+
+    private static String get(String path, int status) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        return read(connection, status);
+    }
+
+    private static String post(String path, String form, int status) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(form.getBytes(StandardCharsets.UTF_8));
+        }
+        return read(connection, status);
+    }
+
+    private static String read(HttpURLConnection connection, int status) throws IOException {
+        assertEquals(status, connection.getResponseCode(), connection.getURL().toString());
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        in.transferTo(body);
+        return body.toString(StandardCharsets.UTF_8);
+    }
+}
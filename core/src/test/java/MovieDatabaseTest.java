@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MovieDatabaseTest {
+    private static final String[] GENRES = {"Action", "Drama", "Comedy", "Sci-Fi", "Horror"};
+
+    private MovieDatabase movies;
+
+    @BeforeEach
+    void setUp() {
+        movies = new MovieDatabase();
+        Random random = new Random(29);
+        for (int i = 0; i < 500; i++) {
+            movies.addMovie("Movie " + i, GENRES[random.nextInt(GENRES.length)], 1970 + random.nextInt(50),
+                    random.nextInt(101) / 10.0, "Director " + random.nextInt(30), "", 100);
+        }
+    }
+
+    @Test
+    void indexedSearchesMatchScans() {
+        for (String genre : GENRES) {
+            assertEquals(scan(m -> m.getGenre().equalsIgnoreCase(genre)), ids(movies.searchByGenre(genre.toUpperCase())));
+        }
+        for (int d = 0; d < 30; d++) {
+            String director = "director " + d;
+            assertEquals(scan(m -> m.getDirector().equalsIgnoreCase(director)), ids(movies.searchByDirector(director)));
+        }
+        for (int year = 1965; year < 2025; year++) {
+            int y = year;
+            assertEquals(scan(m -> m.getYear() == y), ids(movies.searchByYear(year)));
+        }
+        assertEquals(scan(m -> m.getYear() >= 1990 && m.getYear() <= 1999), ids(movies.getMoviesByYearRange(1990, 1999)));
+        assertTrue(movies.getMoviesByYearRange(2000, 1990).isEmpty());
+        assertEquals(scan(m -> m.getRating() >= 4.0 && m.getRating() <= 6.0), ids(movies.getMoviesWithRatingBetween(4.0, 6.0)));
+        assertTrue(movies.searchByGenre("Western").isEmpty());
+    }
+
+    @Test
+    void ratingQueriesComeBestFirst() {
+        List<Movie> atLeast = movies.getMoviesWithMinRating(7.5);
+        assertEquals(scan(m -> m.getRating() >= 7.5), ids(atLeast));
+        assertSortedByRating(atLeast);
+
+        List<Movie> top = movies.getTopRatedMovies(25);
+        assertEquals(25, top.size());
+        assertSortedByRating(top);
+        List<Double> expected = movies.getAllMovies().stream().map(Movie::getRating)
+                .sorted(Comparator.reverseOrder()).limit(25).collect(Collectors.toList());
+        assertEquals(expected, top.stream().map(Movie::getRating).collect(Collectors.toList()));
+    }
+
+    @Test
+    void genresAndCountsTrackAdditions() {
+        List<String> genres = movies.getAllGenres();
+        assertEquals(new ArrayList<>(new TreeSet<>(genres)), genres);
+        assertTrue(genres.containsAll(Arrays.asList(GENRES)));
+        int count = movies.getMovieCount();
+        movies.addMovie("New", "Western", 2020, 7.0, "Someone", "", 90);
+        assertEquals(count + 1, movies.getMovieCount());
+        assertTrue(movies.getAllGenres().contains("Western"));
+        assertEquals(1, movies.searchByGenre("western").size());
+    }
+
+    @Test
+    void bulkRestoreMatchesOneByOne() {
+        MovieDatabase single = new MovieDatabase(false);
+        MovieDatabase bulk = new MovieDatabase(false);
+        List<Movie> restored = new ArrayList<>();
+        for (Movie movie : movies.getAllMovies()) {
+            Movie copy = new Movie(movie.getId() + 10, movie.getTitle(), movie.getGenre(), movie.getYear(),
+                    movie.getRating(), movie.getDirector(), movie.getDescription(), movie.getDuration());
+            single.restoreMovie(copy);
+            restored.add(copy);
+        }
+        restored.add(restored.get(0));
+        assertEquals(movies.getMovieCount(), bulk.restoreMovies(restored));
+        assertEquals(0, bulk.restoreMovies(restored.subList(0, 10)));
+
+        assertEquals(single.getAllGenres(), bulk.getAllGenres());
+        for (String genre : GENRES) {
+            assertEquals(ids(single.searchByGenre(genre)), ids(bulk.searchByGenre(genre)));
+        }
+        assertEquals(ids(single.searchByDirector("Director 3")), ids(bulk.searchByDirector("director 3")));
+        assertEquals(ids(single.getMoviesByYearRange(1980, 1989)), ids(bulk.getMoviesByYearRange(1980, 1989)));
+        assertEquals(ids(single.searchByTitle("movie 4")), ids(bulk.searchByTitle("movie 4")));
+        assertEquals(single.getTopRatedMovies(30).stream().map(Movie::getRating).collect(Collectors.toList()),
+                bulk.getTopRatedMovies(30).stream().map(Movie::getRating).collect(Collectors.toList()));
+        assertEquals(single.addMovie("Next", "Drama", 2020, 5.0, "D", "", 90).getId(),
+                bulk.addMovie("Next", "Drama", 2020, 5.0, "D", "", 90).getId());
+    }
+
+    private Set<Integer> scan(Predicate<Movie> filter) {
+        return ids(movies.getAllMovies().stream().filter(filter).collect(Collectors.toList()));
+    }
+
+    private static Set<Integer> ids(List<Movie> list) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Movie movie : list) {
+            assertTrue(ids.add(movie.getId()), "duplicate movie " + movie.getId());
+        }
+        return ids;
+    }
+
+    private static void assertSortedByRating(List<Movie> list) {
+        for (int i = 1; i < list.size(); i++) {
+            assertTrue(list.get(i - 1).getRating() >= list.get(i).getRating());
+        }
+    }
+}
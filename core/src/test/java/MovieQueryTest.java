@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MovieQueryTest {
+    private static final String[] GENRES = {"Action", "Drama", "Comedy", "Crime"};
+    private static final String[] WORDS = {"night", "day", "star", "dark", "return", "of", "the"};
+
+    private MovieDatabase movies;
+
+    @BeforeEach
+    void setUp() {
+        movies = new MovieDatabase();
+        Random random = new Random(43);
+        for (int i = 0; i < 1000; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            movies.addMovie(title, GENRES[random.nextInt(GENRES.length)], 1980 + random.nextInt(40),
+                    random.nextInt(101) / 10.0, "Director " + random.nextInt(12), "", 80 + random.nextInt(80));
+        }
+    }
+
+    @Test
+    void randomQueriesMatchBruteForce() {
+        Random random = new Random(47);
+        MovieQuery.SortField[] fields = MovieQuery.SortField.values();
+        for (int trial = 0; trial < 300; trial++) {
+            MovieQuery query = movies.query();
+            List<Predicate<Movie>> filters = new ArrayList<>();
+            if (random.nextInt(3) == 0) {
+                String genre = GENRES[random.nextInt(GENRES.length)];
+                query.genre(genre.toLowerCase());
+                filters.add(m -> m.getGenre().equalsIgnoreCase(genre));
+            }
+            if (random.nextInt(3) == 0) {
+                String director = "Director " + random.nextInt(14);
+                query.director(director);
+                filters.add(m -> m.getDirector().equalsIgnoreCase(director));
+            }
+            if (random.nextInt(3) == 0) {
+                int from = 1975 + random.nextInt(50);
+                int to = from + random.nextInt(10);
+                query.yearBetween(from, to);
+                filters.add(m -> m.getYear() >= from && m.getYear() <= to);
+            }
+            if (random.nextInt(3) == 0) {
+                double min = random.nextInt(100) / 10.0;
+                query.minRating(min);
+                filters.add(m -> m.getRating() >= min);
+            }
+            if (random.nextInt(4) == 0) {
+                int min = 80 + random.nextInt(80);
+                query.durationBetween(min, min + 30);
+                filters.add(m -> m.getDuration() >= min && m.getDuration() <= min + 30);
+            }
+            if (random.nextInt(3) == 0) {
+                String text = random.nextBoolean() ? WORDS[random.nextInt(WORDS.length)].toUpperCase() : "ar";
+                query.titleContains(text);
+                filters.add(m -> m.getTitle().toLowerCase(Locale.ROOT).contains(text.toLowerCase(Locale.ROOT)));
+            }
+            MovieQuery.SortField field = fields[random.nextInt(fields.length)];
+            boolean descending = random.nextBoolean();
+            int page = random.nextInt(4);
+            int pageSize = 1 + random.nextInt(30);
+            MovieQuery.Result result = query.sortBy(field, descending).page(page, pageSize).execute();
+
+            List<Movie> matching = movies.getAllMovies().stream()
+                    .filter(m -> filters.stream().allMatch(f -> f.test(m)))
+                    .sorted(order(field, descending))
+                    .collect(Collectors.toList());
+            List<Movie> expected = matching.stream().skip((long) page * pageSize).limit(pageSize).collect(Collectors.toList());
+            assertEquals(ids(expected), ids(result.getMovies()), "trial " + trial);
+            assertEquals(matching.size(), result.getTotal(), "trial " + trial);
+            assertEquals((matching.size() + pageSize - 1) / pageSize, result.getTotalPages());
+        }
+    }
+
+    @Test
+    void rejectsBadPages() {
+        assertThrows(IllegalArgumentException.class, () -> movies.query().page(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> movies.query().page(0, 0));
+    }
+
+    @Test
+    void pageBeyondTheEndIsEmpty() {
+        MovieQuery.Result result = movies.query().genre("Drama").page(1000, 50).execute();
+        assertTrue(result.getMovies().isEmpty());
+        assertEquals(movies.searchByGenre("Drama").size(), result.getTotal());
+        // page * pageSize overflows an int here.
+        result = movies.query().genre("Drama").page(Integer.MAX_VALUE / 10, 50).execute();
+        assertTrue(result.getMovies().isEmpty());
+    }
+
+    @Test
+    void catalogGenresAndDirectorsAreMatched(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        ColumnarCatalog.write(file, Arrays.asList(
+                new Movie(5000, "Catalog Western", "Western|Drama", 1960, 7.5, "Catalog Director", "", 120),
+                new Movie(5001, "Catalog Drama", "Drama", 1961, 6.5, "Catalog Director", "", 100)));
+        MovieDatabase database = new MovieDatabase(false);
+        database.mountCatalog(file);
+        database.addMovie("Heap Drama", "Drama", 2000, 8.0, "Catalog Director", "", 90);
+
+        assertEquals(Collections.singletonList(5000), ids(database.query().genre("western").execute().getMovies()));
+        assertEquals(Arrays.asList(5002, 5000, 5001),
+                ids(database.query().genre("Drama").director("catalog director").execute().getMovies()));
+        assertEquals(Collections.singletonList(5001),
+                ids(database.query().director("Catalog Director").titleContains("drama").yearBetween(1900, 1999)
+                        .execute().getMovies()));
+    }
+
+    private static Comparator<Movie> order(MovieQuery.SortField field, boolean descending) {
+        Comparator<Movie> order;
+        switch (field) {
+            case YEAR: order = Comparator.comparingInt(Movie::getYear); break;
+            case TITLE: order = Comparator.comparing(Movie::getTitle, String.CASE_INSENSITIVE_ORDER); break;
+            case DURATION: order = Comparator.comparingInt(Movie::getDuration); break;
+            case ID: order = Comparator.comparingInt(Movie::getId); break;
+            default: order = Comparator.comparingDouble(Movie::getRating);
+        }
+        return (descending ? order.reversed() : order).thenComparingInt(Movie::getId);
+    }
+
+    private static List<Integer> ids(List<Movie> list) {
+        return list.stream().map(Movie::getId).collect(Collectors.toList());
+    }
+}
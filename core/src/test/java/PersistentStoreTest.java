@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PersistentStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresFromTheLogAlone() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        try (PersistentStore store = PersistentStore.open(directory, movies, users)) {
+            populate(movies, users, 0);
+        }
+        assertTrue(PersistentStore.hasData(directory));
+        assertRestored(movies, users);
+    }
+
+    @Test
+    void restoresFromSnapshotPlusNewerSegments() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        try (PersistentStore store = PersistentStore.open(directory, movies, users)) {
+            populate(movies, users, 0);
+            store.snapshot();
+            populate(movies, users, 100);
+            users.getUserById(1).rateMovie(101, 1.0);
+        }
+        assertRestored(movies, users);
+    }
+
+    @Test
+    void replayKeepsTheLastOfRepeatedChanges() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        try (PersistentStore store = PersistentStore.open(directory, movies, users)) {
+            populate(movies, users, 0);
+            store.snapshot();
+            User early = users.getUserById(2);
+            User late = users.addUser("late", "late@example.com", "pw");
+            for (User user : Arrays.asList(early, late)) {
+                for (int i = 0; i < 50; i++) {
+                    user.rateMovie(1 + i % 7, 1 + i % 5);
+                }
+                user.rateMovies(new int[] {3, 9, 3}, new float[] {2.0f, 4.5f, 5.0f}, 3);
+                user.rateMovie(4, 7.0);
+                user.setFavoriteGenres(Arrays.asList("Genre 1", "Genre 2"));
+                user.setFavoriteGenres(Collections.singletonList("Genre 0"));
+            }
+        }
+        assertRestored(movies, users);
+    }
+
+    @Test
+    void restoredDatabasesKeepAssigningFreshIds() throws IOException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        try (PersistentStore store = PersistentStore.open(directory, movies, users)) {
+            populate(movies, users, 0);
+            store.snapshot();
+        }
+        MovieDatabase restoredMovies = new MovieDatabase(false);
+        UserDatabase restoredUsers = new UserDatabase(false);
+        try (PersistentStore store = PersistentStore.open(directory, restoredMovies, restoredUsers)) {
+            assertEquals(movies.getMovieCount() + 1, restoredMovies.addMovie("Next", "Drama", 2020, 5.0, "D", "", 90).getId());
+            assertEquals(users.getAllUsers().size() + 1, restoredUsers.addUser("next", "next@example.com", "x").getUserId());
+        }
+    }
+
+    private static void populate(MovieDatabase movies, UserDatabase users, int offset) {
+        Random random = new Random(53 + offset);
+        List<Movie> added = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            added.add(movies.addMovie("Movie " + (offset + i), "Genre " + (i % 3), 1990 + i, i / 2.0,
+                    "Director " + i, "About \"" + i + "\"\n", 90 + i));
+        }
+        for (int u = 0; u < 5; u++) {
+            User user = users.addUser("user" + offset + "_" + u, "u" + u + "@example.com", "pw" + u);
+            for (int r = 0; r < 10; r++) {
+                user.rateMovie(added.get(random.nextInt(added.size())).getId(), 1 + random.nextInt(9) / 2.0);
+            }
+            user.addFavoriteGenre("Genre " + u % 3);
+            user.addWatchedMovie(added.get(u).getId());
+        }
+    }
+
+    private void assertRestored(MovieDatabase movies, UserDatabase users) throws IOException {
+        MovieDatabase restoredMovies = new MovieDatabase(false);
+        UserDatabase restoredUsers = new UserDatabase(false);
+        PersistentStore.open(directory, restoredMovies, restoredUsers).close();
+
+        assertEquals(describeMovies(movies), describeMovies(restoredMovies));
+        assertEquals(users.getAllUsers().size(), restoredUsers.getAllUsers().size());
+        for (User user : users.getAllUsers()) {
+            User restored = restoredUsers.getUserById(user.getUserId());
+            assertEquals(user.getUsername(), restored.getUsername());
+            assertEquals(user.getEmail(), restored.getEmail());
+            assertEquals(user.getPassword(), restored.getPassword());
+            assertEquals(user.getMovieRatings(), restored.getMovieRatings());
+            assertEquals(user.getFavoriteGenres(), restored.getFavoriteGenres());
+            assertEquals(user.getWatchedMovieIds(), restored.getWatchedMovieIds());
+        }
+        for (Movie movie : movies.getAllMovies()) {
+            assertEquals(users.getRaterIds(movie.getId()), restoredUsers.getRaterIds(movie.getId()));
+        }
+    }
+
+    private static List<String> describeMovies(MovieDatabase movies) {
+        List<String> rows = new ArrayList<>();
+        for (Movie movie : movies.getAllMovies()) {
+            rows.add(movie.getId() + "|" + movie.getTitle() + "|" + movie.getGenre() + "|" + movie.getYear() + "|"
+                    + movie.getRating() + "|" + movie.getDirector() + "|" + movie.getDescription() + "|" + movie.getDuration());
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+}
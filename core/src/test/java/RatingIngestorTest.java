@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class RatingIngestorTest {
+
+    @Test
+    void queueRefusesOffersOnceFullAndDrainsInOrder() {
+        RatingQueue queue = new RatingQueue(5);
+        assertEquals(8, queue.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i, 100 + i, 1 + i / 2f));
+        }
+        assertFalse(queue.offer(9, 9, 3f));
+
+        int[] users = new int[8];
+        int[] movies = new int[8];
+        float[] ratings = new float[8];
+        assertEquals(3, queue.drainTo(users, movies, ratings, 3));
+        assertArrayEquals(new int[] {0, 1, 2}, Arrays.copyOf(users, 3));
+        assertArrayEquals(new int[] {100, 101, 102}, Arrays.copyOf(movies, 3));
+        assertTrue(queue.offer(20, 200, 5f));
+        assertEquals(6, queue.drainTo(users, movies, ratings, 8));
+        assertEquals(20, users[5]);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void concurrentOffersMatchSequentialRatings() throws Exception {
+        UserDatabase ingested = new UserDatabase(false);
+        UserDatabase direct = new UserDatabase(false);
+        for (int u = 0; u < 50; u++) {
+            ingested.addUser("u" + u, "u" + u + "@example.com", "x");
+            direct.addUser("u" + u, "u" + u + "@example.com", "x");
+        }
+        int threads = 4;
+        int perThread = 5000;
+        try (RatingIngestor ingestor = new RatingIngestor(ingested, 1 << 16)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    // Each thread owns its users, so per-user arrival order is deterministic.
+                    Random random = new Random(thread);
+                    for (int i = 0; i < perThread; i++) {
+                        int userId = 1 + thread + threads * random.nextInt(50 / threads);
+                        int movieId = 1 + random.nextInt(200);
+                        double rating = 1 + random.nextInt(9) / 2.0;
+                        assertTrue(ingestor.offer(userId, movieId, rating));
+                        direct.getUserById(userId).rateMovie(movieId, rating);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+            ingestor.flush();
+            assertEquals(threads * perThread, ingestor.getSubmitted());
+            assertEquals(threads * perThread, ingestor.getApplied());
+            assertEquals(0, ingestor.getPending());
+        }
+        for (User user : direct.getAllUsers()) {
+            assertEquals(user.getMovieRatings(), ingested.getUserById(user.getUserId()).getMovieRatings());
+        }
+        for (int movieId = 1; movieId <= 200; movieId++) {
+            assertEquals(direct.getRaterIds(movieId), ingested.getRaterIds(movieId));
+        }
+    }
+
+    @Test
+    void batchesKeepTheLatestRatingAndSkipUnchangedOnes() throws InterruptedException {
+        UserDatabase users = new UserDatabase(false);
+        User user = users.addUser("a", "a@example.com", "x");
+        user.rateMovie(3, 2.0);
+        List<int[]> batches = new ArrayList<>();
+        users.addListener(new UserListener() {
+            @Override
+            public void ratingsChanged(User changed, int[] movieIds, float[] ratings, int count) {
+                batches.add(Arrays.copyOf(movieIds, count));
+            }
+        });
+        RatingIngestor ingestor = new RatingIngestor(users, 64);
+        assertTrue(ingestor.offer(user.getUserId(), 5, 4.0));
+        assertTrue(ingestor.offer(user.getUserId(), 3, 2.0));
+        assertTrue(ingestor.offer(user.getUserId(), 5, 1.5));
+        assertTrue(ingestor.offer(user.getUserId(), 4, 3.0));
+        ingestor.close();
+
+        Map<Integer, Double> expected = new HashMap<>();
+        expected.put(3, 2.0);
+        expected.put(4, 3.0);
+        expected.put(5, 1.5);
+        assertEquals(expected, user.getMovieRatings());
+        int notified = 0;
+        for (int[] batch : batches) {
+            for (int movieId : batch) {
+                assertNotEquals(3, movieId, "unchanged ratings are not reported");
+                notified++;
+            }
+        }
+        assertTrue(notified >= 2);
+        assertEquals(4, ingestor.getApplied());
+    }
+
+    @Test
+    void unknownUsersAndBadRatingsAreCounted() throws InterruptedException {
+        UserDatabase users = new UserDatabase(false);
+        User user = users.addUser("a", "a@example.com", "x");
+        try (RatingIngestor ingestor = new RatingIngestor(users, 16)) {
+            assertThrows(IllegalArgumentException.class, () -> ingestor.offer(user.getUserId(), 1, 5.5));
+            assertTrue(ingestor.offer(999, 1, 4.0));
+            assertTrue(ingestor.offer(user.getUserId(), 1, 4.0));
+            ingestor.flush();
+            assertEquals(1, ingestor.getDropped());
+            assertEquals(1, ingestor.getApplied());
+            assertEquals(Collections.singleton(user.getUserId()), users.getRaterIds(1));
+        }
+    }
+
+    @Test
+    void closeAppliesQueuedRatingsAndRefusesNewOnes() {
+        UserDatabase users = new UserDatabase(false);
+        User user = users.addUser("a", "a@example.com", "x");
+        RatingIngestor ingestor = new RatingIngestor(users, 1024);
+        for (int movieId = 1; movieId <= 500; movieId++) {
+            assertTrue(ingestor.offer(user.getUserId(), movieId, 3.0));
+        }
+        ingestor.close();
+        assertEquals(500, user.getRatingCount());
+        assertEquals(0, ingestor.getPending());
+        assertThrows(IllegalStateException.class, () -> ingestor.offer(user.getUserId(), 1, 3.0));
+    }
+}
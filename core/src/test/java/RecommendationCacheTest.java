@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class RecommendationCacheTest {
+    private static final List<Movie> MOVIES = Arrays.asList(
+            new Movie(1, "A", "Drama", 2000, 7.0, "D", "", 90),
+            new Movie(2, "B", "Drama", 2001, 8.0, "D", "", 90));
+
+    @Test
+    void countsHitsAndMissesAndReturnsCopies() {
+        RecommendationCache cache = new RecommendationCache(10, 60_000);
+        assertNull(cache.get(1, 2, 0));
+        cache.put(1, 2, 0, MOVIES, cache.stamp(1));
+        List<Movie> hit = cache.get(1, 2, 0);
+        assertEquals(MOVIES, hit);
+        hit.clear();
+        assertEquals(MOVIES, cache.get(1, 2, 0));
+        assertNull(cache.get(1, 3, 0), "lists are kept per requested size");
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void putAfterInvalidationIsDropped() {
+        RecommendationCache cache = new RecommendationCache(10, 60_000);
+        long stamp = cache.stamp(1);
+        cache.invalidate(1);
+        cache.put(1, 2, 0, MOVIES, stamp);
+        assertNull(cache.get(1, 2, 0));
+
+        cache.put(1, 2, 0, MOVIES, cache.stamp(1));
+        cache.invalidate(1);
+        assertNull(cache.get(1, 2, 0));
+        assertEquals(1, cache.getInvalidations());
+
+        // Stamps are per user: invalidating someone else does not drop the value.
+        stamp = cache.stamp(1);
+        cache.invalidate(2);
+        cache.put(1, 2, 0, MOVIES, stamp);
+        assertEquals(MOVIES, cache.get(1, 2, 0));
+    }
+
+    @Test
+    void expiresOnTtlAndCatalogVersion() {
+        RecommendationCache expiring = new RecommendationCache(10, 0);
+        expiring.put(1, 2, 0, MOVIES, expiring.stamp(1));
+        assertNull(expiring.get(1, 2, 0));
+        assertEquals(1, expiring.getExpirations());
+
+        RecommendationCache cache = new RecommendationCache(10, 60_000);
+        cache.put(1, 2, 5, MOVIES, cache.stamp(1));
+        assertNull(cache.get(1, 2, 6));
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUsers() {
+        RecommendationCache cache = new RecommendationCache(2, 60_000);
+        cache.put(1, 2, 0, MOVIES, cache.stamp(1));
+        cache.put(2, 2, 0, MOVIES, cache.stamp(2));
+        cache.get(1, 2, 0);
+        cache.put(3, 2, 0, MOVIES, cache.stamp(3));
+        assertEquals(2, cache.getCachedUsers());
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get(1, 2, 0));
+        assertNull(cache.get(2, 2, 0));
+    }
+
+    @Test
+    void engineInvalidatesOnUserAndCatalogChanges() {
+        MovieDatabase movies = new MovieDatabase();
+        UserDatabase users = new UserDatabase();
+        RecommendationEngine engine = new RecommendationEngine(movies, users);
+        RecommendationCache cache = engine.getRecommendationCache();
+        User user = users.getAllUsers().get(0);
+
+        List<Movie> first = engine.getRecommendations(user, 4);
+        assertEquals(first, engine.getRecommendations(user, 4));
+        assertEquals(1, cache.getHits());
+
+        user.rateMovie(5, 1.0);
+        engine.getRecommendations(user, 4);
+        assertEquals(1, cache.getHits());
+        engine.getRecommendations(user, 4);
+        assertEquals(2, cache.getHits());
+
+        user.addFavoriteGenre("Crime");
+        engine.getRecommendations(user, 4);
+        assertEquals(2, cache.getHits());
+
+        movies.addMovie("New", "Crime", 2020, 9.9, "D", "", 100);
+        List<Movie> afterAdd = engine.getRecommendations(user, 4);
+        assertEquals(2, cache.getHits());
+        assertEquals(new RecommendationEngine(movies, users).getRecommendations(user, 4), afterAdd);
+    }
+
+    @Test
+    void watchedMoviesLeaveCachedRecommendations() {
+        MovieDatabase movies = new MovieDatabase();
+        UserDatabase users = new UserDatabase();
+        RecommendationEngine engine = new RecommendationEngine(movies, users);
+        User user = users.getAllUsers().get(0);
+        Movie first = engine.getRecommendations(user, 4).get(0);
+        user.addWatchedMovie(first.getId());
+        assertFalse(engine.getRecommendations(user, 4).contains(first));
+    }
+
+    @Test
+    void concurrentUseStaysWithinTheBound() throws Exception {
+        RecommendationCache cache = new RecommendationCache(50, 60_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            futures.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 20_000; i++) {
+                    int userId = random.nextInt(200);
+                    switch (random.nextInt(3)) {
+                        case 0: cache.put(userId, 2, 0, MOVIES, cache.stamp(userId)); break;
+                        case 1: cache.invalidate(userId); break;
+                        default: cache.get(userId, 2, 0);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(cache.getCachedUsers() <= 50, "cached users " + cache.getCachedUsers());
+        for (int userId = 0; userId < 200; userId++) {
+            cache.invalidate(userId);
+        }
+        assertEquals(0, cache.getCachedUsers());
+    }
+}
@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import spark.Spark;
+
+class RequestLimiterTest {
+
+    @AfterEach
+    void stop() {
+        Spark.stop();
+        Spark.awaitStop();
+    }
+
+    @Test
+    void rejectsRequestsBeyondTheQueueAndReleasesPermits() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestLimiter limiter = new RequestLimiter(1, 1, 100);
+        Spark.port(port);
+        limiter.register("/api/*");
+        Spark.get("/api/slow", (req, res) -> {
+            entered.countDown();
+            release.await();
+            return "slow";
+        });
+        Spark.get("/api/fast", (req, res) -> "fast");
+        Spark.get("/open", (req, res) -> "open");
+        Spark.awaitInitialization();
+
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> slow = client.submit(() -> status(port, "/api/slow"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            assertEquals(0, limiter.getAvailablePermits());
+
+            // One request may wait for the queue timeout; it still finds the only permit taken.
+            assertEquals(503, status(port, "/api/fast"));
+            assertEquals(200, status(port, "/open"), "paths outside the pattern are not limited");
+
+            release.countDown();
+            assertEquals(200, slow.get(5, TimeUnit.SECONDS));
+            assertEquals(200, status(port, "/api/fast"));
+            assertEquals(1, limiter.getAvailablePermits());
+            assertEquals(0, limiter.getQueuedRequests());
+        } finally {
+            release.countDown();
+            client.shutdownNow();
+        }
+    }
+
+    private static int status(int port, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SimilarMoviesTest {
+    private static final String[] GENRES = {"Action", "Drama", "Comedy", "Crime", "Horror"};
+
+    private MovieDatabase movies;
+    private RecommendationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        movies = new MovieDatabase();
+        Random random = new Random(23);
+        for (int i = 0; i < 400; i++) {
+            // Half-star ratings are exact in binary, so the rating-band edges match the brute force.
+            movies.addMovie("Movie " + i, GENRES[random.nextInt(GENRES.length)], 1980 + random.nextInt(40),
+                    random.nextInt(21) / 2.0, "Director " + random.nextInt(20), "", 100);
+        }
+        engine = new RecommendationEngine(movies, new UserDatabase());
+    }
+
+    @Test
+    void matchesBruteForce() {
+        for (Movie target : movies.getAllMovies()) {
+            for (int count : new int[] {1, 10}) {
+                List<Movie> similar = engine.getSimilarMovies(target, count);
+                assertEquals(bruteForce(target, count), scores(target, similar), "similar to " + target.getId());
+                for (Movie movie : similar) {
+                    assertNotEquals(target.getId(), movie.getId());
+                }
+            }
+        }
+    }
+
+    @Test
+    void cachedResultsFollowCatalogChanges() {
+        Movie target = movies.getMovieById(7);
+        List<Movie> first = engine.getSimilarMovies(target, 5);
+        assertEquals(first, engine.getSimilarMovies(target, 5));
+        assertEquals(first.subList(0, 3), engine.getSimilarMovies(target, 3));
+        assertEquals(bruteForce(target, 20), scores(target, engine.getSimilarMovies(target, 20)));
+
+        movies.addMovie("Twin", target.getGenre(), target.getYear(), target.getRating(), target.getDirector(), "", 100);
+        Movie twin = movies.getMovieById(movies.getAllMovies().size());
+        assertEquals(twin, engine.getSimilarMovies(target, 5).get(0));
+    }
+
+    private List<Double> bruteForce(Movie target, int count) {
+        return movies.getAllMovies().stream()
+                .filter(movie -> movie.getId() != target.getId())
+                .filter(movie -> movie.getGenre().equals(target.getGenre())
+                        || Math.abs(movie.getRating() - target.getRating()) <= 1.0)
+                .map(movie -> score(target, movie))
+                .sorted(Comparator.reverseOrder())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Double> scores(Movie target, List<Movie> similar) {
+        return similar.stream().map(movie -> score(target, movie)).collect(Collectors.toList());
+    }
+
+    /** The engine's content score: genre, rating distance, release-year distance and director. */
+    private static double score(Movie first, Movie second) {
+        double score = 0.0;
+        if (first.getGenre().equals(second.getGenre())) score += 0.4;
+        score += 0.3 * (1.0 - Math.abs(first.getRating() - second.getRating()) / 10.0);
+        int yearDiff = Math.abs(first.getYear() - second.getYear());
+        if (yearDiff <= 10) score += 0.2 * (1.0 - yearDiff / 10.0);
+        if (first.getDirector().equals(second.getDirector())) score += 0.1;
+        return score;
+    }
+}
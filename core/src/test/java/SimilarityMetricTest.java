@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class SimilarityMetricTest {
+
+    @Test
+    void mergeJoinMatchesNaiveFormulas() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 500; trial++) {
+            User first = randomUser(random, 1 + random.nextInt(30));
+            // Every few trials make the second user far larger to exercise the binary-search join.
+            User second = randomUser(random, trial % 4 == 0 ? 400 : 1 + random.nextInt(30));
+            for (SimilarityMetric metric : SimilarityMetric.values()) {
+                double expected = naive(metric, first.getMovieRatings(), second.getMovieRatings());
+                assertEquals(expected, metric.similarity(first, second), 1e-9, metric + " trial " + trial);
+                assertEquals(expected, metric.similarity(second, first), 1e-9, metric + " swapped, trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    void tooFewCommonMoviesScoreZero() {
+        User first = new User(1, "a", "a@example.com", "x");
+        User second = new User(2, "b", "b@example.com", "x");
+        first.rateMovie(1, 5.0);
+        first.rateMovie(2, 4.0);
+        second.rateMovie(1, 5.0);
+        second.rateMovie(3, 4.0);
+        for (SimilarityMetric metric : SimilarityMetric.values()) {
+            assertEquals(0.0, metric.similarity(first, second));
+        }
+    }
+
+    private static User randomUser(Random random, int ratings) {
+        User user = new User(random.nextInt(1000), "u", "u@example.com", "x");
+        for (int i = 0; i < ratings; i++) {
+            user.rateMovie(1 + random.nextInt(600), 1 + random.nextInt(9) / 2.0);
+        }
+        return user;
+    }
+
+    /** Textbook definitions over boxed maps; cosine and adjusted cosine use each user's full ratings for norms and means. */
+    private static double naive(SimilarityMetric metric, Map<Integer, Double> first, Map<Integer, Double> second) {
+        List<Integer> common = new ArrayList<>();
+        for (Integer movieId : first.keySet()) {
+            if (second.containsKey(movieId)) common.add(movieId);
+        }
+        if (common.size() < UserSimilarityIndex.MIN_COMMON_MOVIES) return 0.0;
+        double score;
+        switch (metric) {
+            case PEARSON: {
+                double mean1 = 0, mean2 = 0;
+                for (int id : common) {
+                    mean1 += first.get(id);
+                    mean2 += second.get(id);
+                }
+                mean1 /= common.size();
+                mean2 /= common.size();
+                score = correlation(common, first, second, mean1, mean2);
+                break;
+            }
+            case COSINE: {
+                double dot = 0;
+                for (int id : common) dot += first.get(id) * second.get(id);
+                double norm = Math.sqrt(sumOfSquares(first.values())) * Math.sqrt(sumOfSquares(second.values()));
+                score = norm == 0 ? 0.0 : dot / norm;
+                break;
+            }
+            default:
+                score = correlation(common, first, second, mean(first.values()), mean(second.values()));
+        }
+        return Math.max(0, score);
+    }
+
+    private static double correlation(List<Integer> common, Map<Integer, Double> first, Map<Integer, Double> second,
+                                      double mean1, double mean2) {
+        double numerator = 0, variance1 = 0, variance2 = 0;
+        for (int id : common) {
+            double d1 = first.get(id) - mean1;
+            double d2 = second.get(id) - mean2;
+            numerator += d1 * d2;
+            variance1 += d1 * d1;
+            variance2 += d2 * d2;
+        }
+        double denominator = Math.sqrt(variance1 * variance2);
+        return denominator == 0 ? 0.0 : numerator / denominator;
+    }
+
+    private static double sumOfSquares(Collection<Double> values) {
+        double sum = 0;
+        for (double value : values) sum += value * value;
+        return sum;
+    }
+
+    private static double mean(Collection<Double> values) {
+        double sum = 0;
+        for (double value : values) sum += value;
+        return sum / values.size();
+    }
+}
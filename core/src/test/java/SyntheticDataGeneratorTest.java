@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SyntheticDataGeneratorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void outputDoesNotDependOnThreadCount() throws InterruptedException {
+        UserDatabase single = populate(generator(1), new MovieDatabase(false));
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase parallel = populate(generator(4), movies);
+
+        assertEquals(2000, movies.getMovieCount());
+        assertEquals(single.getAllUsers().size(), parallel.getAllUsers().size());
+        for (User user : single.getAllUsers()) {
+            User other = parallel.getUserById(user.getUserId());
+            assertEquals(user.getMovieRatings(), other.getMovieRatings());
+            assertEquals(user.getFavoriteGenres(), other.getFavoriteGenres());
+            assertEquals(user.getJoinDate(), other.getJoinDate());
+        }
+    }
+
+    @Test
+    void ratingsAreHalfStarsOnKnownWatchedMovies() throws InterruptedException {
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = populate(generator(2), movies);
+        long ratings = 0;
+        for (User user : users.getAllUsers()) {
+            assertFalse(user.getFavoriteGenres().isEmpty());
+            for (Map.Entry<Integer, Double> rating : user.getMovieRatings().entrySet()) {
+                assertNotNull(movies.getMovieById(rating.getKey()));
+                double value = rating.getValue();
+                assertTrue(value >= 1.0 && value <= 5.0 && value * 2 == Math.rint(value * 2), "rating " + value);
+                assertTrue(users.getRaterIds(rating.getKey()).contains(user.getUserId()));
+                assertTrue(user.hasWatched(rating.getKey()));
+                ratings++;
+            }
+        }
+        double mean = (double) ratings / users.getAllUsers().size();
+        assertTrue(mean > 10 && mean < 40, "mean ratings per user " + mean);
+    }
+
+    @Test
+    void popularityFollowsTheSkew() throws InterruptedException {
+        SyntheticDataGenerator skewed = generator(2);
+        skewed.setPopularitySkew(1.2);
+        SyntheticDataGenerator uniform = generator(2);
+        uniform.setPopularitySkew(0.0);
+        double skewedShare = topShare(populate(skewed, new MovieDatabase(false)));
+        double uniformShare = topShare(populate(uniform, new MovieDatabase(false)));
+        assertTrue(skewedShare > 2 * uniformShare, skewedShare + " vs " + uniformShare);
+    }
+
+    @Test
+    void csvLoadsBackIntoTheSameRatings() throws IOException, InterruptedException {
+        UserDatabase expected = populate(generator(2), new MovieDatabase(false));
+        generator(3).writeCsv(directory);
+
+        MovieDatabase movies = new MovieDatabase(false);
+        UserDatabase users = new UserDatabase(false);
+        new BulkImporter(movies, users).load(directory.resolve("movies.csv"), directory.resolve("ratings.csv"));
+        assertEquals(2000, movies.getMovieCount());
+        for (User user : expected.getAllUsers()) {
+            assertEquals(user.getMovieRatings(), users.getUserById(user.getUserId()).getMovieRatings());
+        }
+    }
+
+    @Test
+    void populatedIdsStartAfterTheExistingOnes() throws InterruptedException {
+        UserDatabase expected = populate(generator(2), new MovieDatabase(false));
+        MovieDatabase movies = new MovieDatabase(true);
+        UserDatabase users = new UserDatabase(true);
+        int movieOffset = movies.getMovieCount();
+        int userOffset = users.getUserCount();
+        generator(2).populate(movies, users);
+
+        assertEquals(movieOffset + 2000, movies.getMovieCount());
+        assertEquals(userOffset + expected.getUserCount(), users.getUserCount());
+        assertEquals("The Dark Knight", movies.getMovieById(1).getTitle());
+        for (User user : expected.getAllUsers()) {
+            Map<Integer, Double> shifted = new HashMap<>();
+            user.getMovieRatings().forEach((movieId, rating) -> shifted.put(movieId + movieOffset, rating));
+            assertEquals(shifted, users.getUserById(user.getUserId() + userOffset).getMovieRatings());
+        }
+    }
+
+    @Test
+    void takenUsernamesFailLoudly() {
+        UserDatabase users = new UserDatabase(false);
+        users.addUser("user2", "someone@example.com", "password");
+        assertThrows(IllegalStateException.class, () -> generator(2).populate(new MovieDatabase(false), users));
+    }
+
+    private static SyntheticDataGenerator generator(int threads) {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator();
+        generator.setMovieCount(2000);
+        generator.setUserCount(300);
+        generator.setMeanRatingsPerUser(20);
+        generator.setSeed(7);
+        generator.setThreads(threads);
+        return generator;
+    }
+
+    private static UserDatabase populate(SyntheticDataGenerator generator, MovieDatabase movies) throws InterruptedException {
+        UserDatabase users = new UserDatabase(false);
+        generator.populate(movies, users);
+        return users;
+    }
+
+    /** Share of all ratings that went to the 20 most rated movies. */
+    private static double topShare(UserDatabase users) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        long total = 0;
+        for (User user : users.getAllUsers()) {
+            for (int movieId : user.getMovieRatings().keySet()) {
+                counts.merge(movieId, 1, Integer::sum);
+                total++;
+            }
+        }
+        List<Integer> sorted = new ArrayList<>(counts.values());
+        sorted.sort(Comparator.reverseOrder());
+        long top = 0;
+        for (int i = 0; i < Math.min(20, sorted.size()); i++) {
+            top += sorted.get(i);
+        }
+        return (double) top / total;
+    }
+}
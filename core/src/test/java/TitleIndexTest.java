@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class TitleIndexTest {
+    private static final String[] WORDS = {"the", "Dark", "knight", "Return", "of", "Star", "wars", "Toy", "story", "aaa", "é"};
+
+    @Test
+    void substringSearchMatchesScan() {
+        TitleIndex index = new TitleIndex();
+        List<Movie> all = randomMovies(new Random(31), 300);
+        for (Movie movie : all) {
+            index.add(movie);
+        }
+        Random random = new Random(37);
+        List<String> queries = new ArrayList<>(Arrays.asList("", "a", "aa", "aaa", "aaaa", "the d", "STAR WARS", "xyz", "é"));
+        for (int i = 0; i < 200; i++) {
+            String title = all.get(random.nextInt(all.size())).getTitle();
+            int start = random.nextInt(title.length());
+            queries.add(title.substring(start, Math.min(title.length(), start + 1 + random.nextInt(8))));
+        }
+        for (String query : queries) {
+            String needle = query.toLowerCase(Locale.ROOT);
+            List<Movie> expected = all.stream()
+                    .filter(movie -> movie.getTitle().toLowerCase(Locale.ROOT).contains(needle))
+                    .collect(Collectors.toList());
+            assertEquals(expected, index.search(query), "query '" + query + "'");
+        }
+    }
+
+    @Test
+    void prefixSearchIsOrderedAndLimited() {
+        TitleIndex index = new TitleIndex();
+        List<Movie> all = randomMovies(new Random(41), 300);
+        for (Movie movie : all) {
+            index.add(movie);
+        }
+        for (String prefix : new String[] {"", "t", "The", "star w", "toy story", "zzz"}) {
+            String start = prefix.toLowerCase(Locale.ROOT);
+            List<String> expected = all.stream()
+                    .map(movie -> movie.getTitle().toLowerCase(Locale.ROOT))
+                    .filter(title -> title.startsWith(start))
+                    .sorted()
+                    .limit(10)
+                    .collect(Collectors.toList());
+            List<String> actual = index.searchPrefix(prefix, 10).stream()
+                    .map(movie -> movie.getTitle().toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual, "prefix '" + prefix + "'");
+        }
+    }
+
+    @Test
+    void databaseSearchUsesTheIndex() {
+        MovieDatabase movies = new MovieDatabase();
+        movies.addMovie("The Dark Knight Rises", "Action", 2012, 8.4, "Christopher Nolan", "", 164);
+        assertEquals(Arrays.asList("The Dark Knight", "The Dark Knight Rises"),
+                movies.searchByTitle("dark KNIGHT").stream().map(Movie::getTitle).collect(Collectors.toList()));
+        assertEquals(Collections.singletonList("The Dark Knight"),
+                movies.searchByTitlePrefix("the d", 1).stream().map(Movie::getTitle).collect(Collectors.toList()));
+    }
+
+    private static List<Movie> randomMovies(Random random, int count) {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 1 + random.nextInt(4); w > 0; w--) {
+                title.append(WORDS[random.nextInt(WORDS.length)]).append(w > 1 ? " " : "");
+            }
+            movies.add(new Movie(i + 1, title.toString(), "Drama", 2000, 5.0, "D", "", 90));
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+    @Test
+    void matchesSortedLimit() {
+        Random random = new Random(19);
+        for (int trial = 0; trial < 200; trial++) {
+            List<Integer> values = new ArrayList<>();
+            int n = random.nextInt(300);
+            for (int i = 0; i < n; i++) {
+                values.add(random.nextInt(1000));
+            }
+            int k = random.nextInt(20);
+            Comparator<Integer> order = Comparator.reverseOrder();
+            List<Integer> expected = values.stream().sorted(order).limit(k).collect(Collectors.toList());
+            assertEquals(expected, values.stream().collect(TopK.collector(k, order)), "trial " + trial);
+        }
+    }
+
+    @Test
+    void tiesKeepEncounterOrder() {
+        Random random = new Random(23);
+        Comparator<String> byLength = Comparator.comparingInt(String::length);
+        for (int trial = 0; trial < 100; trial++) {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                values.add("x".repeat(1 + random.nextInt(4)) + i);
+            }
+            int k = random.nextInt(60);
+            List<String> expected = values.stream().sorted(byLength).limit(k).collect(Collectors.toList());
+            assertEquals(expected, values.stream().collect(TopK.collector(k, byLength)), "trial " + trial);
+            assertEquals(expected, values.parallelStream().collect(TopK.collector(k, byLength)), "parallel " + trial);
+        }
+    }
+
+    @Test
+    void parallelCollectMergesWorkerHeaps() {
+        List<Integer> expected = IntStream.range(0, 100_000).boxed()
+                .sorted(Comparator.reverseOrder()).limit(25).collect(Collectors.toList());
+        List<Integer> actual = IntStream.range(0, 100_000).boxed().parallel()
+                .collect(TopK.collector(25, Comparator.reverseOrder()));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void offerReportsWhetherTheElementWasKept() {
+        TopK<Integer> top = new TopK<>(2, Comparator.naturalOrder());
+        assertTrue(top.offer(5));
+        assertTrue(top.offer(3));
+        assertFalse(top.offer(7));
+        assertTrue(top.offer(1));
+        assertEquals(Arrays.asList(1, 3), top.toList());
+        assertEquals(2, top.size());
+
+        TopK<Integer> none = new TopK<>(0, Comparator.naturalOrder());
+        assertFalse(none.offer(1));
+        assertTrue(none.toList().isEmpty());
+    }
+
+    @Test
+    void topRatedMoviesComeBestFirst() {
+        MovieDatabase movies = new MovieDatabase();
+        List<Double> expected = movies.getAllMovies().stream().map(Movie::getRating)
+                .sorted(Comparator.reverseOrder()).limit(3).collect(Collectors.toList());
+        List<Double> actual = movies.getTopRatedMovies(3).stream().map(Movie::getRating).collect(Collectors.toList());
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class TrendingEngineTest {
+    private static final String[] GENRES = {"Drama", "Comedy", "Horror"};
+
+    @Test
+    void topListsMatchScoresSortedByBruteForce() {
+        MovieDatabase movies = catalog(300);
+        TrendingEngine trending = new TrendingEngine(movies, 1000, 20);
+        long start = System.currentTimeMillis();
+        Random random = new Random(9);
+        long time = start;
+        for (int i = 0; i < 20000; i++) {
+            // Skewed towards low ids, drifting forward in time so later events weigh more.
+            int movieId = 1 + (int) (300 * Math.pow(random.nextDouble(), 2));
+            time += random.nextInt(3);
+            if (random.nextBoolean()) {
+                trending.recordView(movieId, time);
+            } else {
+                trending.recordRating(movieId, time);
+            }
+        }
+
+        assertEquals(expected(movies, trending, null, 20), ids(trending.getTrending(null, 20)));
+        assertEquals(expected(movies, trending, null, 5), ids(trending.getTrending(null, 5)));
+        for (String genre : GENRES) {
+            assertEquals(expected(movies, trending, genre, 20), ids(trending.getTrending(genre, 20)));
+        }
+        assertTrue(trending.getTrending("Western", 10).isEmpty());
+    }
+
+    @Test
+    void newerEventsOutweighOlderOnes() {
+        MovieDatabase movies = catalog(3);
+        TrendingEngine trending = new TrendingEngine(movies, 1000, 10);
+        long now = System.currentTimeMillis();
+        trending.recordView(1, now);
+        trending.recordView(1, now);
+        trending.recordView(1, now);
+        trending.recordView(2, now + 2000);
+        trending.recordRating(2, now + 2000);
+        assertEquals(Arrays.asList(2, 1), ids(trending.getTrending(null, 10)));
+        // One event two half-lives later is worth four earlier ones.
+        assertEquals(4 * trending.getViews(1) / 3, trending.getViews(2), 1e-9);
+        assertEquals(trending.getViews(2), trending.getRatings(2), 1e-9);
+    }
+
+    @Test
+    void rescalingKeepsTheOrder() {
+        MovieDatabase movies = catalog(4);
+        TrendingEngine trending = new TrendingEngine(movies, 1, 10);
+        long now = System.currentTimeMillis();
+        trending.recordView(1, now + 100);
+        trending.recordView(1, now + 100);
+        trending.recordView(2, now + 100);
+        // Far beyond the exponent limit: counters are rescaled, and the new event dominates.
+        trending.recordView(3, now + 1000);
+        assertEquals(Arrays.asList(3, 1, 2), ids(trending.getTrending(null, 10)));
+        assertTrue(Double.isFinite(trending.getScore(3)));
+    }
+
+    @Test
+    void largeIdsAndUnknownMoviesNeedNoIdSizedArrays() {
+        MovieDatabase movies = new MovieDatabase(false);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(movies.restoreMovie(new Movie(Integer.MAX_VALUE - i, "Movie " + i, GENRES[i], 2000, 5.0, "D", "d", 90)));
+        }
+        TrendingEngine trending = new TrendingEngine(movies, 1000, 10);
+        long now = System.currentTimeMillis();
+        trending.recordView(Integer.MAX_VALUE - 2, now);
+        trending.recordView(Integer.MAX_VALUE - 2, now);
+        trending.recordRating(Integer.MAX_VALUE, now);
+        trending.recordView(2_000_000_000, now);
+        trending.recordView(-5, now);
+
+        assertEquals(Arrays.asList(Integer.MAX_VALUE - 2, Integer.MAX_VALUE), ids(trending.getTrending(null, 10)));
+        assertEquals(Collections.singletonList(Integer.MAX_VALUE - 2), ids(trending.getTrending("Horror", 10)));
+        assertEquals(0.0, trending.getScore(2_000_000_000));
+        assertEquals(2 * trending.getScore(Integer.MAX_VALUE), trending.getScore(Integer.MAX_VALUE - 2), 1e-9);
+    }
+
+    @Test
+    void engineServesWatchedMoviesAndTopsUpWithStaticPicks() {
+        MovieDatabase movies = new MovieDatabase(false);
+        movies.addMovie("Old Classic", "Drama", 1990, 9.5, "D", "d", 90);
+        movies.addMovie("Recent Hit", "Drama", 2010, 8.5, "D", "d", 90);
+        movies.addMovie("Recent Miss", "Drama", 2012, 4.0, "D", "d", 90);
+        movies.addMovie("Recent Best", "Comedy", 2015, 9.0, "D", "d", 90);
+        UserDatabase users = new UserDatabase(false);
+        RecommendationEngine engine = new RecommendationEngine(movies, users);
+        User user = users.addUser("a", "a@example.com", "x");
+        Movie watched = movies.getMovieById(3);
+        user.addWatchedMovie(watched.getId());
+
+        List<Movie> list = engine.getTrendingMovies(3);
+        // Static picks are recent and rated 7.5 or more, best first.
+        assertEquals(Arrays.asList(3, 4, 2), ids(list));
+        assertEquals(Arrays.asList(3, 2), ids(engine.getTrendingMovies("Drama", 5)));
+    }
+
+    private static MovieDatabase catalog(int size) {
+        MovieDatabase movies = new MovieDatabase(false);
+        for (int i = 0; i < size; i++) {
+            movies.addMovie("Movie " + i, GENRES[i % GENRES.length], 2000, 5.0, "D", "d", 90);
+        }
+        return movies;
+    }
+
+    private static List<Integer> expected(MovieDatabase movies, TrendingEngine trending, String genre, int count) {
+        List<Movie> candidates = new ArrayList<>();
+        for (Movie movie : movies.getAllMovies()) {
+            if (trending.getScore(movie.getId()) > 0 && (genre == null || genre.equals(movie.getGenre()))) {
+                candidates.add(movie);
+            }
+        }
+        candidates.sort(Comparator.comparingDouble((Movie movie) -> trending.getScore(movie.getId())).reversed());
+        return ids(candidates.subList(0, Math.min(count, candidates.size())));
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        List<Integer> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class UserDatabaseTest {
+
+    @Test
+    void postingsMatchRatings() {
+        UserDatabase users = new UserDatabase();
+        Random random = new Random(13);
+        for (int u = 0; u < 40; u++) {
+            User user = users.addUser("rater" + u, "rater" + u + "@example.com", "x");
+            for (int r = 0; r < 8; r++) {
+                user.rateMovie(1 + random.nextInt(30), 1 + random.nextInt(5));
+            }
+        }
+        // Re-rating a movie must not duplicate its posting.
+        User first = users.getAllUsers().get(0);
+        int movieId = first.getMovieRatings().keySet().iterator().next();
+        first.rateMovie(movieId, 2.0);
+
+        for (int id = 1; id <= 30; id++) {
+            Set<Integer> expected = new HashSet<>();
+            for (User user : users.getAllUsers()) {
+                if (user.getMovieRatings().containsKey(id)) expected.add(user.getUserId());
+            }
+            assertEquals(expected, users.getRaterIds(id), "raters of movie " + id);
+        }
+        assertTrue(users.getRaterIds(999).isEmpty());
+    }
+
+    @Test
+    void coRatersShareEnoughMovies() {
+        UserDatabase users = new UserDatabase();
+        Random random = new Random(17);
+        for (int u = 0; u < 40; u++) {
+            User user = users.addUser("rater" + u, "rater" + u + "@example.com", "x");
+            for (int r = 0; r < 8; r++) {
+                user.rateMovie(1 + random.nextInt(30), 1 + random.nextInt(5));
+            }
+        }
+        for (User user : users.getAllUsers()) {
+            for (int minCommon = 1; minCommon <= 3; minCommon++) {
+                Set<Integer> expected = new TreeSet<>();
+                for (User other : users.getAllUsers()) {
+                    if (other == user) continue;
+                    Set<Integer> common = new HashSet<>(user.getMovieRatings().keySet());
+                    common.retainAll(other.getMovieRatings().keySet());
+                    if (common.size() >= minCommon) expected.add(other.getUserId());
+                }
+                Set<Integer> actual = new TreeSet<>();
+                List<User> coRaters = users.getCoRaters(user, minCommon);
+                for (User other : coRaters) {
+                    actual.add(other.getUserId());
+                }
+                assertEquals(actual.size(), coRaters.size(), "co-raters are listed once");
+                assertEquals(expected, actual, "co-raters of user " + user.getUserId() + " at " + minCommon);
+            }
+        }
+    }
+
+    @Test
+    void bulkRestoreBuildsTheSamePostings() {
+        UserDatabase single = new UserDatabase(false);
+        UserDatabase bulk = new UserDatabase(false);
+        User existing = bulk.addUser("existing", "e@example.com", "x");
+        existing.rateMovie(3, 4.0);
+        Random random = new Random(17);
+        List<User> restored = new ArrayList<>();
+        for (int u = 0; u < 50; u++) {
+            int userId = 10 + 3 * u;
+            int[] ids = new int[6];
+            float[] values = new float[6];
+            for (int r = 0; r < 6; r++) {
+                ids[r] = 1 + 5 * r + random.nextInt(5);
+                values[r] = 1 + random.nextInt(5);
+            }
+            User one = new User(userId, "restored" + u, "r" + u + "@example.com", "x");
+            one.restoreRatings(ids, values, 6);
+            User other = new User(userId, "restored" + u, "r" + u + "@example.com", "x");
+            other.restoreRatings(ids, values, 6);
+            assertTrue(single.restoreUser(one));
+            restored.add(other);
+        }
+        restored.add(new User(existing.getUserId(), "clash", "c@example.com", "x"));
+        assertEquals(50, bulk.restoreUsers(restored));
+
+        for (int movieId = 1; movieId <= 30; movieId++) {
+            Set<Integer> expected = new HashSet<>(single.getRaterIds(movieId));
+            if (movieId == 3) expected.add(existing.getUserId());
+            assertEquals(expected, bulk.getRaterIds(movieId), "raters of movie " + movieId);
+        }
+        assertSame(existing, bulk.getUserById(existing.getUserId()));
+        assertEquals(single.addUser("fresh", "f@example.com", "x").getUserId(),
+                bulk.addUser("fresh", "f@example.com", "x").getUserId());
+        // Restored users report later changes like any other.
+        bulk.getUserById(10).rateMovie(99, 5.0);
+        assertEquals(Collections.singleton(10), bulk.getRaterIds(99));
+    }
+
+    @Test
+    void refusedRegistrationsDoNotUseUpIds() {
+        UserDatabase users = new UserDatabase(false);
+        User first = users.addUser("Ann", "ann@example.com", "x");
+        assertThrows(IllegalArgumentException.class, () -> users.addUser("ann", "other@example.com", "y"));
+        assertSame(first, users.getUserByUsername("ANN"));
+        assertEquals("ann@example.com", users.getUserByUsername("ann").getEmail());
+        assertEquals(first.getUserId() + 1, users.addUser("bob", "bob@example.com", "x").getUserId());
+        assertEquals(2, users.getUserCount());
+    }
+}
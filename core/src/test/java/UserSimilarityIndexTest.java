@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserSimilarityIndexTest {
+    private static final int NEIGHBORS = 5;
+
+    private UserDatabase users;
+    private UserSimilarityIndex index;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        users = new UserDatabase();
+        index = new UserSimilarityIndex(users, UserSimilarityIndexTest::agreement, NEIGHBORS);
+        users.addListener(index);
+        random = new Random(42);
+        for (int u = 0; u < 60; u++) {
+            User user = users.addUser("user" + u, "user" + u + "@example.com", "secret");
+            for (int r = 0; r < 12; r++) {
+                user.rateMovie(1 + random.nextInt(40), 1 + random.nextInt(5));
+            }
+        }
+    }
+
+    @Test
+    void neighborListsMatchBruteForce() {
+        for (User user : users.getAllUsers()) {
+            assertNeighbors(user, index.getNeighbors(user));
+        }
+    }
+
+    @Test
+    void neighborListsFollowRatingChanges() {
+        List<User> all = users.getAllUsers();
+        for (User user : all) {
+            index.getNeighbors(user);
+        }
+        for (int i = 0; i < 200; i++) {
+            all.get(random.nextInt(all.size())).rateMovie(1 + random.nextInt(40), 1 + random.nextInt(5));
+        }
+        for (User user : all) {
+            assertNeighbors(user, index.getNeighbors(user));
+        }
+    }
+
+    @Test
+    void parallelSearchMatchesSerial() {
+        UserDatabase crowd = new UserDatabase();
+        for (int u = 0; u < UserSimilarityIndex.PARALLEL_THRESHOLD + 400; u++) {
+            User user = crowd.addUser("crowd" + u, "crowd" + u + "@example.com", "x");
+            for (int r = 0; r < 6; r++) {
+                user.rateMovie(1 + random.nextInt(12), 1 + random.nextInt(5));
+            }
+        }
+        UserSimilarityIndex serial = new UserSimilarityIndex(crowd, UserSimilarityIndexTest::agreement, NEIGHBORS);
+        UserSimilarityIndex parallel = new UserSimilarityIndex(crowd, UserSimilarityIndexTest::agreement, NEIGHBORS);
+        parallel.setParallel(true);
+        List<User> all = crowd.getAllUsers();
+        for (int i = 0; i < 50; i++) {
+            User user = all.get(random.nextInt(all.size()));
+            assertEquals(similarities(serial.getNeighbors(user)), similarities(parallel.getNeighbors(user)));
+        }
+    }
+
+    private void assertNeighbors(User user, List<UserSimilarityIndex.Neighbor> neighbors) {
+        assertTrue(neighbors.size() <= NEIGHBORS);
+        double previous = Double.POSITIVE_INFINITY;
+        for (UserSimilarityIndex.Neighbor neighbor : neighbors) {
+            assertNotEquals(user.getUserId(), neighbor.getUser().getUserId());
+            assertTrue(neighbor.getSimilarity() > UserSimilarityIndex.MIN_SIMILARITY);
+            assertTrue(neighbor.getSimilarity() <= previous, "neighbors must be sorted by similarity");
+            assertEquals(agreement(user, neighbor.getUser()), neighbor.getSimilarity());
+            previous = neighbor.getSimilarity();
+        }
+        assertEquals(bruteForce(user), similarities(neighbors), "neighbors of user " + user.getUserId());
+    }
+
+    /** Top similarities over every other user, computed from scratch. */
+    private List<Double> bruteForce(User user) {
+        List<Double> scores = new ArrayList<>();
+        for (User other : users.getAllUsers()) {
+            if (other == user) continue;
+            double score = agreement(user, other);
+            if (score > UserSimilarityIndex.MIN_SIMILARITY) {
+                scores.add(score);
+            }
+        }
+        scores.sort(Comparator.reverseOrder());
+        return scores.subList(0, Math.min(NEIGHBORS, scores.size()));
+    }
+
+    private static List<Double> similarities(List<UserSimilarityIndex.Neighbor> neighbors) {
+        List<Double> scores = new ArrayList<>();
+        for (UserSimilarityIndex.Neighbor neighbor : neighbors) {
+            scores.add(neighbor.getSimilarity());
+        }
+        return scores;
+    }
+
+    /** Share of co-rated movies rated within one star of each other; zero below two co-rated movies, like Pearson. */
+    private static double agreement(User first, User second) {
+        int common = 0;
+        int close = 0;
+        for (Map.Entry<Integer, Double> rating : first.getMovieRatings().entrySet()) {
+            Double other = second.getMovieRatings().get(rating.getKey());
+            if (other == null) continue;
+            common++;
+            if (Math.abs(other - rating.getValue()) <= 1.0) close++;
+        }
+        return common < 2 ? 0.0 : (double) close / common;
+    }
+}
@@ -0,0 +1,209 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class UserTest {
+
+    @Test
+    void ratingsStaySortedWithRunningAverage() {
+        User user = new User(1, "a", "a@example.com", "x");
+        Map<Integer, Double> expected = new TreeMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            int movieId = 1 + random.nextInt(300);
+            double rating = 1 + random.nextInt(9) / 2.0;
+            user.rateMovie(movieId, rating);
+            expected.put(movieId, rating);
+        }
+        assertSnapshot(expected, user.ratings());
+        assertEquals(expected, new TreeMap<>(user.getMovieRatings()));
+        assertEquals(expected.size(), user.getRatingCount());
+        for (Map.Entry<Integer, Double> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), user.getRatingForMovie(entry.getKey()));
+        }
+        double mean = expected.values().stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        assertEquals(mean, user.getAverageRating(), 1e-6);
+        assertNull(user.getRatingForMovie(1000));
+    }
+
+    @Test
+    void outOfRangeRatingsAreIgnored() {
+        User user = new User(1, "a", "a@example.com", "x");
+        user.rateMovie(1, 0.5);
+        user.rateMovie(2, 5.5);
+        user.rateMovie(3, 5.0);
+        assertEquals(Collections.singletonMap(3, 5.0), user.getMovieRatings());
+        assertEquals(Collections.singletonList(3), user.getWatchedMovieIds());
+    }
+
+    @Test
+    void unchangedRatingDoesNotNotify() {
+        User user = new User(1, "a", "a@example.com", "x");
+        List<Double> changes = new ArrayList<>();
+        user.setListener(new UserListener() {
+            @Override
+            public void ratingChanged(User changed, int movieId, double rating) {
+                changes.add(rating);
+            }
+        });
+        user.rateMovie(1, 4.0);
+        user.rateMovie(1, 4.0);
+        user.rateMovie(1, 3.5);
+        assertEquals(Arrays.asList(4.0, 3.5), changes);
+    }
+
+    @Test
+    void changesAreReportedAppliedOutsideTheLock() {
+        User user = new User(1, "a", "a@example.com", "x");
+        List<String> events = new ArrayList<>();
+        user.setListener(new UserListener() {
+            @Override
+            public void ratingChanged(User changed, int movieId, double rating) {
+                events.add("rate " + movieId + " " + Thread.holdsLock(changed));
+            }
+
+            @Override
+            public void ratingsChanged(User changed, int[] movieIds, float[] ratings, int count) {
+                events.add("batch " + count + " " + Thread.holdsLock(changed));
+            }
+
+            @Override
+            public void movieWatched(User changed, int movieId) {
+                events.add("watch " + movieId + " " + Thread.holdsLock(changed));
+            }
+
+            @Override
+            public void favoriteGenresChanged(User changed) {
+                events.add("genres " + Thread.holdsLock(changed));
+            }
+
+            @Override
+            public void changeApplied(User changed) {
+                events.add("applied " + Thread.holdsLock(changed));
+            }
+        });
+        user.rateMovie(1, 4.0);
+        user.rateMovie(1, 4.0);
+        user.rateMovies(new int[] {2, 3}, new float[] {3.0f, 9.0f}, 2);
+        user.addWatchedMovie(7);
+        user.addWatchedMovie(7);
+        user.addFavoriteGenre("Drama");
+        user.removeFavoriteGenre("Comedy");
+        user.setFavoriteGenres(Arrays.asList("Crime"));
+        assertEquals(Arrays.asList("rate 1 true", "applied false", "batch 1 true", "applied false",
+                "watch 7 true", "applied false", "genres true", "applied false", "genres true", "applied false"), events);
+    }
+
+    @Test
+    void oldSnapshotsNeverChange() {
+        User user = new User(1, "a", "a@example.com", "x");
+        user.rateMovie(1, 4.0);
+        User.Ratings before = user.ratings();
+        user.rateMovie(1, 2.0);
+        user.rateMovie(2, 5.0);
+        assertEquals(1, before.count);
+        assertEquals(4.0f, before.values[0]);
+        assertEquals(2, user.getRatingCount());
+    }
+
+    @Test
+    void watchedSetSurvivesGrowth() {
+        User user = new User(1, "a", "a@example.com", "x");
+        Set<Integer> expected = new TreeSet<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            int movieId = random.nextInt(20000);
+            if (random.nextBoolean()) {
+                user.addWatchedMovie(movieId);
+            } else {
+                user.rateMovie(movieId, 3.0);
+            }
+            expected.add(movieId);
+        }
+        assertEquals(new ArrayList<>(expected), user.getWatchedMovieIds());
+        for (int movieId = 0; movieId < 20000; movieId++) {
+            assertEquals(expected.contains(movieId), user.hasWatched(movieId));
+        }
+
+        user.restoreWatched(new int[] {3, 1, 2});
+        assertArrayEquals(new int[] {1, 2, 3}, user.watchedMovieIdArray());
+        user.setWatchedMovieIds(Arrays.asList(4, 4, 0));
+        assertEquals(Arrays.asList(0, 4), user.getWatchedMovieIds());
+    }
+
+    @Test
+    void watchedEventsFireOncePerMovie() {
+        UserDatabase users = new UserDatabase(false);
+        List<Integer> watched = new ArrayList<>();
+        users.addListener(new UserListener() {
+            @Override
+            public void movieWatched(User user, int movieId) {
+                watched.add(movieId);
+            }
+        });
+        User user = users.addUser("a", "a@example.com", "x");
+        user.addWatchedMovie(7);
+        user.addWatchedMovie(7);
+        user.rateMovie(8, 4.0);
+        user.addWatchedMovie(8);
+        assertEquals(Collections.singletonList(7), watched);
+    }
+
+    @Test
+    void intHashSetMatchesHashSet() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 10000; i++) {
+            int value = random.nextInt(4000) - 2000;
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (int value = -2100; value < 2100; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        int[] sorted = expected.stream().mapToInt(Integer::intValue).sorted().toArray();
+        assertArrayEquals(sorted, set.toSortedArray());
+        assertArrayEquals(sorted, set.copy(expected.size() * 4).toSortedArray());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    void intCountMapMatchesHashMap() {
+        IntCountMap counts = new IntCountMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(13);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(3000) - 1500;
+            int count = expected.merge(key, 1, Integer::sum);
+            assertEquals(count, counts.increment(key));
+        }
+        assertEquals(expected.size(), counts.size());
+        for (int key = -1600; key < 1600; key++) {
+            assertEquals(expected.getOrDefault(key, 0).intValue(), counts.get(key));
+        }
+        counts.clear();
+        assertEquals(0, counts.size());
+        assertEquals(0, counts.get(0));
+    }
+
+    private static void assertSnapshot(Map<Integer, Double> expected, User.Ratings ratings) {
+        assertEquals(expected.size(), ratings.count);
+        double sum = 0;
+        double squares = 0;
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : expected.entrySet()) {
+            assertEquals(entry.getKey().intValue(), ratings.ids[i]);
+            assertEquals(entry.getValue(), ratings.values[i], 0.0);
+            sum += entry.getValue();
+            squares += entry.getValue() * entry.getValue();
+            i++;
+        }
+        assertEquals(sum, ratings.sum, 1e-6);
+        assertEquals(squares, ratings.squareSum, 1e-6);
+    }
+}
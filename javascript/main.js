@@ -1,9 +1,20 @@
 // MovieBot Website Main JavaScript
 // Global variables and configuration
 
-const API_BASE_URL = '/api';  // Replace with your Spring Boot API URL
+const API_BASE_URL = '/api';  // Served by WebServer (see MovieApi.java)
+const MOVIES_PAGE_SIZE = 12;
 let currentUser = JSON.parse(localStorage.getItem('moviebot_user')) || null;
 
+// Filter selects and the GET /api/movies parameters they set
+const FILTER_PARAMS = {
+    genreFilter: 'genre',
+    yearFilter: 'year',
+    ratingFilter: 'minRating'
+};
+
+// Cleared when the API cannot be reached; the page then filters its static cards
+let moviesApiAvailable = true;
+
 // Initialize the website
 document.addEventListener('DOMContentLoaded', function() {
     initializeWebsite();
@@ -94,14 +105,16 @@ function handleSearchSubmit(e) {
 
 // Perform real-time search
 function performSearch(query) {
-    if (!query.trim()) return;
-
-    console.log('Searching for:', query);
+    if (usesMoviesApi()) {
+        updateURLParams('search', query.trim());
+        updateURLParams('page', '');
+        loadMovies();
+        return;
+    }
 
-    // In a real application, make API call here
-    // Example: fetchMovies({ search: query });
+    if (!query.trim()) return;
 
-    // Mock search functionality
+    // Filter the cards already on the page
     const movieCards = document.querySelectorAll('.movie-card');
     movieCards.forEach(card => {
         const title = card.querySelector('h3')?.textContent.toLowerCase();
@@ -139,8 +152,10 @@ function initializeMovieCards() {
         if (addToListBtn) {
             addToListBtn.addEventListener('click', function(e) {
                 e.stopPropagation();
-                const movieId = this.getAttribute('data-movie-id') || Math.floor(Math.random() * 1000);
-                addToWatchlist(movieId);
+                const movieId = this.getAttribute('data-movie-id');
+                if (movieId) {
+                    addToWatchlist(movieId);
+                }
             });
         }
     });
@@ -153,6 +168,25 @@ function initializeFilters() {
     const genre = urlParams.get('genre');
     const search = urlParams.get('search');
 
+    // Show the URL's filters in the selects
+    Object.entries(FILTER_PARAMS).forEach(([filterId, param]) => {
+        const select = document.getElementById(filterId);
+        if (select && urlParams.get(param)) {
+            select.value = urlParams.get(param);
+        }
+    });
+
+    // The movies page asks the API for the filtered page
+    if (usesMoviesApi()) {
+        if (search) {
+            document.querySelectorAll('.search-input, .filter-search').forEach(input => {
+                input.value = search;
+            });
+        }
+        loadMovies();
+        return;
+    }
+
     // Apply initial filters
     if (genre) {
         const genreFilter = document.getElementById('genreFilter');
@@ -176,6 +210,15 @@ function handleFilterChange(e) {
     const filterType = e.target.id;
     const filterValue = e.target.value;
 
+    // Update URL parameters, named as the API expects them
+    updateURLParams(FILTER_PARAMS[filterType] || filterType.replace('Filter', ''), filterValue);
+
+    if (usesMoviesApi()) {
+        updateURLParams('page', '');
+        loadMovies();
+        return;
+    }
+
     switch(filterType) {
         case 'genreFilter':
             filterMoviesByGenre(filterValue);
@@ -187,9 +230,105 @@ function handleFilterChange(e) {
             filterMoviesByRating(filterValue);
             break;
     }
+}
+
+// Whether this page lists movies from GET /api/movies
+function usesMoviesApi() {
+    return moviesApiAvailable && currentPage === 'movies' && document.querySelector('.movies-grid') !== null;
+}
+
+// Load the page of movies the URL describes into the grid
+async function loadMovies() {
+    const grid = document.querySelector('.movies-grid');
+    const urlParams = new URLSearchParams(window.location.search);
+    const filters = { pageSize: MOVIES_PAGE_SIZE };
+    ['genre', 'year', 'minRating', 'search', 'page'].forEach(key => {
+        if (urlParams.get(key)) {
+            filters[key] = urlParams.get(key);
+        }
+    });
+
+    try {
+        const result = await fetchMovies(filters);
+        renderMovies(grid, result.movies);
+        renderPagination(result.currentPage, result.totalPages);
+    } catch (error) {
+        // No API behind this page: keep the listed movies and filter them in place
+        console.warn('Movie API unavailable:', error.message);
+        moviesApiAvailable = false;
+        if (filters.genre) filterMoviesByGenre(filters.genre);
+        if (filters.year) filterMoviesByYear(filters.year);
+        if (filters.minRating) filterMoviesByRating(filters.minRating);
+        if (filters.search) performSearch(filters.search);
+    }
+}
+
+// Replace the grid with cards for the given movies
+function renderMovies(grid, movies) {
+    if (movies.length === 0) {
+        grid.innerHTML = '<p class="no-results">No movies match these filters.</p>';
+        return;
+    }
+
+    grid.innerHTML = movies.map(movie => `
+        <div class="movie-card" data-movie-id="${movie.id}">
+            <div class="movie-poster">
+                <img src="https://via.placeholder.com/300x450/1a1a2e/ff6b35?text=${encodeURIComponent(movie.title)}" alt="${escapeHtml(movie.title)}">
+                <div class="movie-overlay">
+                    <a href="movie-detail.html?id=${movie.id}" class="btn btn-primary">View Details</a>
+                    <button class="btn btn-outline add-to-list" data-movie-id="${movie.id}"><i class="fas fa-plus"></i></button>
+                </div>
+            </div>
+            <div class="movie-info">
+                <h3>${escapeHtml(movie.title)}</h3>
+                <p class="movie-year">${movie.year}</p>
+                <div class="movie-rating">${formatRating(movie.rating)}</div>
+                <div class="movie-genres">
+                    ${(movie.genres || []).map(genre => `<span class="genre-tag">${escapeHtml(genre)}</span>`).join('')}
+                </div>
+            </div>
+        </div>
+    `).join('');
+
+    initializeMovieCards();
+    addLoadingAnimations();
+    const watchlist = JSON.parse(localStorage.getItem('moviebot_watchlist')) || [];
+    watchlist.forEach(movieId => updateWatchlistButton(movieId, true));
+}
+
+// Page links for the API's page numbers (1-based)
+function renderPagination(current, totalPages) {
+    const pagination = document.querySelector('.pagination');
+    if (!pagination) return;
+
+    if (totalPages <= 1) {
+        pagination.innerHTML = '';
+        return;
+    }
+
+    const first = Math.max(1, Math.min(current - 2, totalPages - 4));
+    const last = Math.min(totalPages, first + 4);
+    let links = `<a href="#" class="page-link${current <= 1 ? ' disabled' : ''}" data-page="${current - 1}"><i class="fas fa-chevron-left"></i></a>`;
+    for (let page = first; page <= last; page++) {
+        links += `<a href="#" class="page-link${page === current ? ' active' : ''}" data-page="${page}">${page}</a>`;
+    }
+    links += `<a href="#" class="page-link${current >= totalPages ? ' disabled' : ''}" data-page="${current + 1}"><i class="fas fa-chevron-right"></i></a>`;
+    pagination.innerHTML = links;
+
+    pagination.querySelectorAll('.page-link:not(.disabled)').forEach(link => {
+        link.addEventListener('click', function(e) {
+            e.preventDefault();
+            updateURLParams('page', this.getAttribute('data-page'));
+            loadMovies();
+            window.scrollTo({ top: 0, behavior: 'smooth' });
+        });
+    });
+}
 
-    // Update URL parameters
-    updateURLParams(filterType.replace('Filter', ''), filterValue);
+function escapeHtml(text) {
+    const div = document.createElement('div');
+    div.textContent = text == null ? '' : String(text);
+    return div.innerHTML;
 }
 
 // Filter movies by genre
@@ -265,9 +404,8 @@ function handleMovieCardClick(e) {
     const movieCard = e.target.closest('.movie-card');
     if (!movieCard || e.target.closest('button') || e.target.closest('a')) return;
 
-    // Extract movie ID (in real app, this would be from data attribute)
-    const movieTitle = movieCard.querySelector('h3')?.textContent;
-    const movieId = Math.floor(Math.random() * 1000); // Mock ID
+    const movieId = movieCard.getAttribute('data-movie-id');
+    if (!movieId) return;
 
     window.location.href = `movie-detail.html?id=${movieId}`;
 }
@@ -456,38 +594,29 @@ function formatRuntime(minutes) {
     return hours > 0 ? `${hours}h ${mins}m` : `${mins}m`;
 }
 
-// API functions (mock implementations)
+// API functions
 async function fetchMovies(filters = {}) {
-    // In a real application, this would make an actual API call
-    console.log('Fetching movies with filters:', filters);
-
-    // Mock implementation
-    return new Promise(resolve => {
-        setTimeout(() => {
-            resolve({
-                movies: [],
-                totalPages: 10,
-                currentPage: 1
-            });
-        }, 500);
+    const params = new URLSearchParams();
+    Object.entries(filters).forEach(([key, value]) => {
+        if (value !== undefined && value !== null && value !== '') {
+            params.append(key, value);
+        }
     });
+
+    const response = await fetch(`${API_BASE_URL}/movies?${params.toString()}`);
+    if (!response.ok) {
+        throw new Error(`Failed to fetch movies (${response.status})`);
+    }
+    return response.json();
 }
 
 async function fetchMovieDetails(movieId) {
-    console.log('Fetching movie details for ID:', movieId);
-
-    // Mock implementation
-    return new Promise(resolve => {
-        setTimeout(() => {
-            resolve({
-                id: movieId,
-                title: 'Sample Movie',
-                overview: 'This is a sample movie description...',
-                rating: 8.5,
-                year: 2024
-            });
-        }, 500);
-    });
+    const response = await fetch(`${API_BASE_URL}/movies/${encodeURIComponent(movieId)}`);
+    if (!response.ok) {
+        throw new Error(`Failed to fetch movie ${movieId} (${response.status})`);
+    }
+    const movie = await response.json();
+    return { ...movie, overview: movie.description };
 }
 
 // Initialize watchlist state on page load
@@ -508,7 +637,7 @@ switch(currentPage) {
         console.log('Homepage loaded');
         break;
     case 'movies':
-        // Movies page specific functionality
+        // Movies page: the grid is loaded from the API by initializeFilters
         console.log('Movies page loaded');
         break;
     case 'genres':